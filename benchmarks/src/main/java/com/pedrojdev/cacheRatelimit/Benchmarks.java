@@ -0,0 +1,57 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+	* Ponto de entrada do {@code benchmarks.jar}.
+	*
+	* <p>
+	* Aceita as mesmas opções do {@code org.openjdk.jmh.Main} ({@code -p}, {@code -t}, {@code -f}, filtros por nome etc.)
+	* e acrescenta o profiler de GC quando nenhum profiler é informado, para que cada resultado venha com a taxa de
+	* alocação ({@code gc.alloc.rate.norm}, em bytes por operação) ao lado da vazão.
+	* </p>
+	*
+	* <p>
+	* Benchmarks disponíveis:
+	* <ul>
+	*     <li>{@link BucketKeysBenchmark} - chaves dos buckets e montagem das configurações</li>
+	*     <li>{@link RateLimiterBenchmark} - decisões dos rate limiters, em memória ou em um Redis local, com uma ou
+	*     várias chaves e uma ou várias threads</li>
+	*     <li>{@link CacheSerializerBenchmark} - serialização dos valores do cache de pokémons</li>
+	*     <li>{@link RejectionBenchmark} - resposta 429 do {@link RateLimiteFilter}</li>
+	* </ul>
+	* </p>
+	*/
+public final class Benchmarks {
+
+				private Benchmarks() {
+				}
+
+				public static void main(String[] args) throws RunnerException, IOException {
+								CommandLineOptions commandLine;
+								try {
+												commandLine = new CommandLineOptions(args);
+								} catch (CommandLineOptionException e) {
+												System.err.println("Opções inválidas: " + e.getMessage());
+												System.exit(1);
+												return;
+								}
+								if(commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()){
+												org.openjdk.jmh.Main.main(args);
+												return;
+								}
+								ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+								if(commandLine.getProfilers().isEmpty()){
+												options.addProfiler(GCProfiler.class);
+								}
+								new Runner(options.build()).run();
+				}
+}
@@ -0,0 +1,77 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Custo de montar o que cada requisição precisa antes de consultar o bucket.
+	*
+	* <p>
+	* <ul>
+	*     <li>{@link #apiKeyBucketKey()} - chave do bucket da API key, calculada pelo {@link RateLimiteFilter} a cada
+	*     requisição ({@link BucketKeys#of(String, String)}, com SHA-256)</li>
+	*     <li>{@link #ipBucketKey()} - chave do bucket por IP do {@link RateLimited}</li>
+	*     <li>{@link #annotationConfiguration()} - configuração de um {@link RateLimited}, montada pelo
+	*     {@link RateLimitRuleRegistry} a cada recarga das regras</li>
+	*     <li>{@link #overrideConfiguration()} - configuração lida do arquivo de sobrescritas</li>
+	*     <li>{@link #luaScriptArguments()} - argumentos do script GCRA do {@link LuaRateLimiter}</li>
+	* </ul>
+	* </p>
+	*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BucketKeysBenchmark {
+
+				private RateLimited rateLimited;
+
+				private BucketConfiguration configuration;
+
+				@Setup(Level.Trial)
+				public void setUp() throws NoSuchMethodException {
+								rateLimited = ApiController.class.getMethod("getPokemonBatch", List.class, HttpServletResponse.class).getAnnotation(RateLimited.class);
+								configuration = RateLimitRuleRegistry.configuration(rateLimited);
+				}
+
+				@Benchmark
+				public String apiKeyBucketKey() {
+								return BucketKeys.of("key", "3f8c2a9e-6b1d-4c7a-9e0f-5d2b8a1c7e44");
+				}
+
+				@Benchmark
+				public String ipBucketKey() {
+								return BucketKeys.of("ip", "203.0.113.42");
+				}
+
+				@Benchmark
+				public BucketConfiguration annotationConfiguration() {
+								return RateLimitRuleRegistry.configuration(rateLimited);
+				}
+
+				@Benchmark
+				public BucketConfiguration overrideConfiguration() {
+								return RateLimitRuleRegistry.parse("20:10/1s, 1000:1000/1h greedy");
+				}
+
+				@Benchmark
+				public String[] luaScriptArguments() {
+								return LuaRateLimiter.scriptArguments(configuration, 1);
+				}
+}
@@ -0,0 +1,150 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Serialização e desserialização de uma entrada do cache de pokémons ({@link CacheEntry} com um
+	* {@link CachedResponse}) no formato gravado no Redis.
+	*
+	* <p>
+	* O parâmetro {@code codec} compara o serializador original com as variantes do {@link CompactValueRedisSerializer}:
+	* <ul>
+	*     <li>{@code generic-json} - {@link GenericJackson2JsonRedisSerializer}, com o corpo em base64 dentro do JSON</li>
+	*     <li>{@code compact} - quadro binário com o corpo como está, sem compressão</li>
+	*     <li>{@code compact-deflate} - o mesmo quadro com o corpo comprimido com Deflate a partir de 512 bytes</li>
+	*     <li>{@code compact-deflate-dictionary} - Deflate com o dicionário {@code codec/pokemon-dictionary.txt}, como na
+	*     configuração padrão da aplicação</li>
+	* </ul>
+	* A codificação Smile do {@link CompactValueRedisSerializer} só vale para valores que não são {@link CachedResponse},
+	* então não muda o resultado aqui. O parâmetro {@code moves} controla o tamanho do documento, de alguns KB a algumas
+	* dezenas de KB, como os pokémons com poucos e com muitos golpes. O tamanho gravado de cada combinação é impresso
+	* na preparação do benchmark.
+	* </p>
+	*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializerBenchmark {
+
+				@Param({"generic-json", "compact", "compact-deflate", "compact-deflate-dictionary"})
+				public String codec;
+
+				@Param({"10", "100"})
+				public int moves;
+
+				private RedisSerializer<Object> serializer;
+
+				private CacheEntry entry;
+
+				private byte[] serialized;
+
+				@Setup(Level.Trial)
+				public void setUp() throws IOException {
+								serializer = switch (codec){
+												case "generic-json" -> new GenericJackson2JsonRedisSerializer();
+												case "compact" -> new CompactValueRedisSerializer(true, 0, 6, null);
+												case "compact-deflate" -> new CompactValueRedisSerializer(true, 512, 6, null);
+												case "compact-deflate-dictionary" -> new CompactValueRedisSerializer(true, 512, 6,
+																												StreamUtils.copyToByteArray(new ClassPathResource("codec/pokemon-dictionary.txt").getInputStream()));
+												default -> throw new IllegalArgumentException("Codec desconhecido: " + codec);
+								};
+								byte[] body = pokemon("pikachu", moves);
+								entry = CacheEntry.of(CachedResponse.of(body, "application/json; charset=utf-8", "W/\"7d1-upstream\""));
+								serialized = serializer.serialize(entry);
+								Object read = serializer.deserialize(serialized);
+								if(!(read instanceof CacheEntry copy) || !(copy.value() instanceof CachedResponse response)
+																								|| !Arrays.equals(response.body(), body)){
+												throw new IllegalStateException("O codec " + codec + " não devolveu a entrada gravada: " + read);
+								}
+								System.out.printf("%n%s, %d golpes: corpo de %d bytes gravado em %d bytes%n", codec, moves, body.length, serialized.length);
+				}
+
+				@Benchmark
+				public byte[] serialize() {
+								return serializer.serialize(entry);
+				}
+
+				@Benchmark
+				public Object deserialize() {
+								return serializer.deserialize(serialized);
+				}
+
+				/**
+					* Documento no formato da PokeAPI, com os campos mais volumosos ({@code moves}, {@code sprites},
+					* {@code game_indices}) repetidos na quantidade pedida.
+					*/
+				private static byte[] pokemon(String name, int moves) throws IOException {
+								Map<String, Object> pokemon = new LinkedHashMap<>();
+								pokemon.put("abilities", List.of(
+																								Map.of("ability", named("static", "ability/9"), "is_hidden", false, "slot", 1),
+																								Map.of("ability", named("lightning-rod", "ability/31"), "is_hidden", true, "slot", 3)));
+								pokemon.put("base_experience", 112);
+								pokemon.put("forms", List.of(named(name, "pokemon-form/25")));
+								List<Object> gameIndices = new ArrayList<>();
+								for(String version : List.of("red", "blue", "yellow", "gold", "silver", "crystal", "ruby", "sapphire", "emerald")){
+												gameIndices.add(Map.of("game_index", 84, "version", named(version, "version/1")));
+								}
+								pokemon.put("game_indices", gameIndices);
+								pokemon.put("height", 4);
+								pokemon.put("id", 25);
+								pokemon.put("is_default", true);
+								pokemon.put("location_area_encounters", "https://pokeapi.co/api/v2/pokemon/25/encounters");
+								List<Object> moveList = new ArrayList<>();
+								for(int i = 0; i < moves; i++){
+												List<Object> details = new ArrayList<>();
+												for(String versionGroup : List.of("red-blue", "yellow", "gold-silver", "crystal")){
+																details.add(Map.of("level_learned_at", i % 50, "move_learn_method", named("level-up", "move-learn-method/1"),
+																																"version_group", named(versionGroup, "version-group/1")));
+												}
+												moveList.add(Map.of("move", named("move-" + i, "move/" + i), "version_group_details", details));
+								}
+								pokemon.put("moves", moveList);
+								pokemon.put("name", name);
+								pokemon.put("order", 35);
+								pokemon.put("species", named(name, "pokemon-species/25"));
+								Map<String, Object> sprites = new LinkedHashMap<>();
+								for(String sprite : List.of("back_default", "back_shiny", "front_default", "front_shiny")){
+												sprites.put(sprite, "https://raw.githubusercontent.com/PokeAPI/sprites/master/sprites/pokemon/" + sprite + "/25.png");
+								}
+								pokemon.put("sprites", sprites);
+								List<Object> stats = new ArrayList<>();
+								for(String stat : List.of("hp", "attack", "defense", "special-attack", "special-defense", "speed")){
+												stats.add(Map.of("base_stat", 50, "effort", 0, "stat", named(stat, "stat/1")));
+								}
+								pokemon.put("stats", stats);
+								pokemon.put("types", List.of(Map.of("slot", 1, "type", named("electric", "type/13"))));
+								pokemon.put("weight", 60);
+								return new ObjectMapper().writeValueAsBytes(pokemon);
+				}
+
+				private static Map<String, Object> named(String name, String path) {
+								return Map.of("name", name, "url", "https://pokeapi.co/api/v2/" + path + "/");
+				}
+}
@@ -0,0 +1,91 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AbstractCompareAndSwapBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+	* {@code ProxyManager} do Bucket4j que guarda o estado dos buckets em um mapa em memória, no lugar do Redis.
+	*
+	* <p>
+	* Usa o mesmo protocolo de compare-and-swap do {@code LettuceBasedProxyManager}: o estado é lido e gravado como
+	* bytes serializados pelo Bucket4j e a troca falha se outro cliente gravou antes. O custo medido é o do cliente,
+	* sem a rede e sem o Redis, e a disputa por uma mesma chave aparece como novas tentativas do compare-and-swap.
+	* </p>
+	*/
+public class InMemoryProxyManager extends AbstractCompareAndSwapBasedProxyManager<String> {
+
+				private final Map<String, byte[]> states = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do gerenciador, com a configuração padrão do cliente.
+					*/
+				public InMemoryProxyManager() {
+								super(ClientSideConfig.getDefault());
+				}
+
+				@Override
+				protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+								return new CompareAndSwapOperation() {
+												@Override
+												public Optional<byte[]> getStateData(Optional<Long> timeoutNanos) {
+																return Optional.ofNullable(states.get(key));
+												}
+
+												@Override
+												public boolean compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState,
+																												Optional<Long> timeoutNanos) {
+																return swap(key, originalData, newData);
+												}
+								};
+				}
+
+				@Override
+				protected AsyncCompareAndSwapOperation beginAsyncCompareAndSwapOperation(String key) {
+								return new AsyncCompareAndSwapOperation() {
+												@Override
+												public CompletableFuture<Optional<byte[]>> getStateData(Optional<Long> timeoutNanos) {
+																return CompletableFuture.completedFuture(Optional.ofNullable(states.get(key)));
+												}
+
+												@Override
+												public CompletableFuture<Boolean> compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState,
+																												Optional<Long> timeoutNanos) {
+																return CompletableFuture.completedFuture(swap(key, originalData, newData));
+												}
+								};
+				}
+
+				/**
+					* Troca o estado se ele ainda for o lido; os arrays são comparados por identidade, como a instância lida do mapa.
+					*/
+				private boolean swap(String key, byte[] originalData, byte[] newData) {
+								if(originalData == null){
+												return states.putIfAbsent(key, newData) == null;
+								}
+								return states.replace(key, originalData, newData);
+				}
+
+				@Override
+				public void removeProxy(String key) {
+								states.remove(key);
+				}
+
+				@Override
+				protected CompletableFuture<Void> removeAsync(String key) {
+								states.remove(key);
+								return CompletableFuture.completedFuture(null);
+				}
+
+				@Override
+				public boolean isAsyncModeSupported() {
+								return true;
+				}
+}
@@ -0,0 +1,146 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Vazão das decisões de rate limit, de uma ou de várias threads, disputando uma chave ou espalhadas por várias.
+	*
+	* <p>
+	* O parâmetro {@code limiter} escolhe o motor e onde fica o estado dos buckets:
+	* <ul>
+	*     <li>{@code bucket4j-memory} e {@code leasing-memory} - {@link Bucket4jRateLimiter} e {@link LeasingRateLimiter}
+	*     sobre o {@link InMemoryProxyManager}: o custo do cliente (serialização do estado e compare-and-swap), sem rede</li>
+	*     <li>{@code bucket4j-redis}, {@code leasing-redis} e {@code lua-redis} - os mesmos motores e o
+	*     {@link LuaRateLimiter} em um Redis local, configurado por {@code REDIS_HOST} e {@code REDIS_PORT}</li>
+	* </ul>
+	* Com {@code keys=1} todas as threads disputam o mesmo bucket, como no bucket global sem stripes; com mais chaves
+	* cada chamada sorteia uma, como clientes diferentes. A capacidade da regra é alta o bastante para que todas as
+	* chamadas sejam permitidas; a rejeição é medida pelo {@link RejectionBenchmark}.
+	* </p>
+	*
+	* <p>
+	* As chaves usam o prefixo {@code bench:} e expiram como as da aplicação. Sem Redis local, rode só os motores em
+	* memória: {@code -p limiter=bucket4j-memory,leasing-memory}.
+	* </p>
+	*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+				@Param({"bucket4j-memory", "leasing-memory", "bucket4j-redis", "leasing-redis", "lua-redis"})
+				public String limiter;
+
+				@Param({"1", "10000"})
+				public int keys;
+
+				private RedisClient redisClient;
+
+				private RateLimiter rateLimiter;
+
+				private RateLimitRule rule;
+
+				private String[] bucketKeys;
+
+				@Setup(Level.Trial)
+				public void setUp() {
+								BucketConfiguration configuration = RateLimitRuleRegistry.parse("1000000000:1000000000/1s greedy");
+								rule = new RateLimitRule("benchmark", "IP", configuration, 1, RateLimitFallback.LOCAL);
+								bucketKeys = new String[keys];
+								for(int i = 0; i < keys; i++){
+												bucketKeys[i] = BucketKeys.of("bench", String.valueOf(i));
+								}
+								rateLimiter = switch (limiter){
+												case "bucket4j-memory" -> new Bucket4jRateLimiter(new InMemoryProxyManager(), 10_000);
+												case "leasing-memory" -> new LeasingRateLimiter(new InMemoryProxyManager(), 0.1, 50, Duration.ofSeconds(1));
+												case "bucket4j-redis" -> new Bucket4jRateLimiter(redisProxyManager(), 10_000);
+												case "leasing-redis" -> new LeasingRateLimiter(redisProxyManager(), 0.1, 50, Duration.ofSeconds(1));
+												case "lua-redis" -> new LuaRateLimiter(redisClient().connect());
+												default -> throw new IllegalArgumentException("Rate limiter desconhecido: " + limiter);
+								};
+				}
+
+				@TearDown(Level.Trial)
+				public void tearDown() {
+								if(rateLimiter instanceof AutoCloseable closeable){
+												try {
+																closeable.close();
+												} catch (Exception e) {
+																throw new IllegalStateException(e);
+												}
+								}
+								if(redisClient != null){
+												redisClient.shutdown();
+								}
+				}
+
+				private RedisClient redisClient() {
+								String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+								String port = System.getenv().getOrDefault("REDIS_PORT", "6379");
+								redisClient = RedisClient.create("redis://" + host + ":" + port);
+								return redisClient;
+				}
+
+				private ProxyManager<String> redisProxyManager() {
+								return LettuceBasedProxyManager.builderFor(redisClient().connect(RedisCodec.of(StringCodec.ASCII, ByteArrayCodec.INSTANCE)))
+																								.withClientSideConfig(ClientSideConfig.getDefault().withExpirationAfterWriteStrategy(
+																																ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofSeconds(5))))
+																								.build();
+				}
+
+				private String nextKey() {
+								return keys == 1 ? bucketKeys[0] : bucketKeys[ThreadLocalRandom.current().nextInt(keys)];
+				}
+
+				@Benchmark
+				@Threads(1)
+				public ConsumptionProbe singleThread() {
+								return rateLimiter.tryConsume(nextKey(), rule, 1);
+				}
+
+				@Benchmark
+				@Threads(8)
+				public ConsumptionProbe eightThreads() {
+								return rateLimiter.tryConsume(nextKey(), rule, 1);
+				}
+
+				/**
+					* As duas verificações de uma requisição ao {@code /pokemon/}, API key e IP, avaliadas juntas como no filtro.
+					*/
+				@Benchmark
+				@Threads(1)
+				public List<ConsumptionProbe> apiKeyAndIpChecks() {
+								return rateLimiter.tryConsumeAll(List.of(new RateLimitCheck(nextKey(), rule, 1), new RateLimitCheck(nextKey(), rule, 1)));
+				}
+}
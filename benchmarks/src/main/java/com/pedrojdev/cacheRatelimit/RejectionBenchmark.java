@@ -0,0 +1,100 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Custo do {@link RateLimiteFilter} por requisição, da chave do bucket até o corpo da resposta.
+	*
+	* <p>
+	* {@link #rejected()} mede a resposta 429 de uma API key sem tokens: decisão, headers e corpo JSON pré-serializado
+	* com o timestamp. {@link #allowed()} mede a mesma requisição com tokens sobrando, até a chamada do próximo filtro,
+	* como referência. O parâmetro {@code limiter} escolhe entre o {@link Bucket4jRateLimiter} sobre o
+	* {@link InMemoryProxyManager} e o mesmo motor atrás do {@link DenyCachingRateLimiter}, como na configuração padrão,
+	* que responde as rejeições repetidas sem consultar o bucket.
+	* </p>
+	*
+	* <p>
+	* As requisições e respostas são objetos do {@code spring-test} criados a cada chamada, e o filtro não resolve o
+	* handler, então só o limite da API key é avaliado.
+	* </p>
+	*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionBenchmark {
+
+				private static final String API_KEY = "3f8c2a9e-6b1d-4c7a-9e0f-5d2b8a1c7e44";
+
+				private static final FilterChain NEXT = (request, response) -> {
+				};
+
+				@Param({"bucket4j-memory", "deny-cache"})
+				public String limiter;
+
+				private RateLimiteFilter rejectingFilter;
+
+				private RateLimiteFilter allowingFilter;
+
+				@Setup(Level.Trial)
+				public void setUp() throws IOException, ServletException {
+								rejectingFilter = filter("1:1/1h");
+								allowingFilter = filter("1000000000:1000000000/1s greedy");
+								MockHttpServletResponse response = doFilter(rejectingFilter);
+								if(response.getStatus() != 200 || doFilter(rejectingFilter).getStatus() != 429){
+												throw new IllegalStateException("O bucket da API key não ficou sem tokens");
+								}
+				}
+
+				private RateLimiteFilter filter(String apiKeyBands) {
+								RateLimiter rateLimiter = new Bucket4jRateLimiter(new InMemoryProxyManager(), 10_000);
+								if("deny-cache".equals(limiter)){
+												rateLimiter = new DenyCachingRateLimiter(rateLimiter, 100_000);
+								}
+								RateLimitRuleRegistry ruleRegistry = new RateLimitRuleRegistry(RateLimitRuleRegistry.parse(apiKeyBands),
+																								RateLimitFallback.LOCAL, null, Duration.ofSeconds(5));
+								RateLimitPipeline pipeline = new RateLimitPipeline(rateLimiter, rateLimiter, ruleRegistry, new SimpleMeterRegistry());
+								return new RateLimiteFilter(pipeline, ruleRegistry, request -> null);
+				}
+
+				private static MockHttpServletResponse doFilter(RateLimiteFilter filter) throws IOException, ServletException {
+								MockHttpServletRequest request = new MockHttpServletRequest("GET", "/pokemon/");
+								request.addHeader("X-API-Key", API_KEY);
+								request.addParameter("nome", "pikachu");
+								MockHttpServletResponse response = new MockHttpServletResponse();
+								filter.doFilter(request, response, NEXT);
+								return response;
+				}
+
+				@Benchmark
+				public MockHttpServletResponse rejected() throws IOException, ServletException {
+								return doFilter(rejectingFilter);
+				}
+
+				@Benchmark
+				public MockHttpServletResponse allowed() throws IOException, ServletException {
+								return doFilter(allowingFilter);
+				}
+}
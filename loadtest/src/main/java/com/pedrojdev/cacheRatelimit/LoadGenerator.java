@@ -0,0 +1,270 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+	* Gerador de carga em malha aberta para o {@code GET /api/v1/pokemon/}.
+	*
+	* <p>
+	* As requisições saem em instantes fixos, a {@link LoadScenario#totalRate()} por segundo, sem esperar as respostas
+	* anteriores. A latência é medida a partir do instante planejado, não do envio: se o gerador ou a aplicação
+	* atrasarem, a espera entra na medida, em vez de esconder as respostas lentas (omissão coordenada).
+	* </p>
+	*
+	* <p>
+	* Cada requisição é de um cliente normal ou, na proporção das vazões, de um cliente abusivo. Cada cliente tem sua
+	* API key ({@code X-API-Key}) e seu IP ({@code X-Forwarded-For}, que a aplicação usa como endereço remoto no teste).
+	* O pokémon é sorteado pela distribuição Zipf do cenário, ou é um nome inexistente.
+	* </p>
+	*/
+public class LoadGenerator {
+
+				private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+				private final LoadScenario scenario;
+
+				private final String baseUrl;
+
+				private final HttpClient httpClient = HttpClient.newBuilder()
+																				.version(HttpClient.Version.HTTP_1_1)
+																				.connectTimeout(Duration.ofSeconds(2))
+																				.build();
+
+				private final SplittableRandom random = new SplittableRandom(42);
+
+				/**
+					* Distribuição acumulada das chaves, ou {@code null} para acesso uniforme.
+					*/
+				private final double[] cumulative;
+
+				/**
+					* Construtor do gerador.
+					*
+					* @param scenario cenário da execução
+					* @param baseUrl URL da aplicação, sem barra no final
+					*/
+				public LoadGenerator(LoadScenario scenario, String baseUrl) {
+								this.scenario = scenario;
+								this.baseUrl = baseUrl;
+								this.cumulative = scenario.skew() > 0 ? zipf(scenario.keys(), scenario.skew()) : null;
+				}
+
+				/**
+					* Envia requisições pelo tempo informado e espera as respostas pendentes; as que não chegarem a tempo
+					* são contadas em {@link Result#pending()}.
+					*
+					* @param duration duração do envio
+					* @return medidas das requisições enviadas no período
+					* @throws InterruptedException se a execução for interrompida
+					*/
+				public Result run(Duration duration) throws InterruptedException {
+								Result result = new Result();
+								Semaphore inFlight = new Semaphore(scenario.maxInFlight());
+								double abusiveShare = scenario.abusiveClients() * scenario.abusiveRate() / scenario.totalRate();
+								long intervalNanos = (long) (1_000_000_000L / scenario.totalRate());
+								long start = System.nanoTime();
+								long end = start + duration.toNanos();
+								for(long intended = start; intended < end; intended += intervalNanos){
+												long wait = intended - System.nanoTime();
+												if(wait > 0){
+																LockSupport.parkNanos(wait);
+												}
+												boolean abusive = abusiveShare > 0 && random.nextDouble() < abusiveShare;
+												if(!inFlight.tryAcquire()){
+																result.dropped.increment();
+																continue;
+												}
+												result.sent.increment();
+												send(request(abusive), abusive, intended, result, inFlight);
+								}
+								if(!inFlight.tryAcquire(scenario.maxInFlight(), REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS)){
+												result.pending = scenario.maxInFlight() - inFlight.availablePermits();
+								}
+								result.elapsedNanos = System.nanoTime() - start;
+								return result;
+				}
+
+				private void send(HttpRequest request, boolean abusive, long intended, Result result, Semaphore inFlight) {
+								httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+												long latency = System.nanoTime() - intended;
+												Counters counters = abusive ? result.abusive : result.normal;
+												counters.latencies.recordValue(Math.max(1, latency / 1000));
+												if(error != null){
+																counters.errors.increment();
+												}else{
+																counters.status(response.statusCode()).increment();
+												}
+												inFlight.release();
+								});
+				}
+
+				private HttpRequest request(boolean abusive) {
+								String apiKey;
+								String ip;
+								if(abusive){
+												int client = random.nextInt(scenario.abusiveClients());
+												apiKey = "abusive-" + client;
+												ip = "203.0." + (113 + client / 256) + "." + client % 256;
+								}else{
+												int client = random.nextInt(scenario.clients());
+												apiKey = "client-" + client;
+												ip = "10." + (client >> 16 & 0xff) + "." + (client >> 8 & 0xff) + "." + (client & 0xff);
+								}
+								return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/pokemon/?nome=" + pokemon()))
+																								.timeout(REQUEST_TIMEOUT)
+																								.header("X-API-Key", apiKey)
+																								.header("X-Forwarded-For", ip)
+																								.GET()
+																								.build();
+				}
+
+				private String pokemon() {
+								if(scenario.missingRate() > 0 && random.nextDouble() < scenario.missingRate()){
+												return "missing-" + random.nextInt(scenario.keys());
+								}
+								if(cumulative == null){
+												return "pokemon-" + random.nextInt(scenario.keys());
+								}
+								int index = Arrays.binarySearch(cumulative, random.nextDouble());
+								return "pokemon-" + (index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1));
+				}
+
+				/**
+					* Distribuição acumulada de Zipf: a chave de posição {@code k} tem peso {@code 1 / (k + 1)^skew}.
+					*/
+				private static double[] zipf(int keys, double skew) {
+								double[] cumulative = new double[keys];
+								double sum = 0;
+								for(int k = 0; k < keys; k++){
+												sum += 1 / Math.pow(k + 1, skew);
+												cumulative[k] = sum;
+								}
+								for(int k = 0; k < keys; k++){
+												cumulative[k] /= sum;
+								}
+								return cumulative;
+				}
+
+				/**
+					* Medidas de um período do gerador.
+					*/
+				public static final class Result {
+
+								private final LongAdder sent = new LongAdder();
+
+								private final LongAdder dropped = new LongAdder();
+
+								private final Counters normal = new Counters();
+
+								private final Counters abusive = new Counters();
+
+								private long elapsedNanos;
+
+								/**
+									* Requisições ainda sem resposta ao fim da espera, quando a aplicação não acompanha a taxa.
+									*/
+								private long pending;
+
+								public long sent() {
+												return sent.sum();
+								}
+
+								public long dropped() {
+												return dropped.sum();
+								}
+
+								public long pending() {
+												return pending;
+								}
+
+								public Counters normal() {
+												return normal;
+								}
+
+								public Counters abusive() {
+												return abusive;
+								}
+
+								public Duration elapsed() {
+												return Duration.ofNanos(elapsedNanos);
+								}
+				}
+
+				/**
+					* Respostas de um tipo de cliente, por classe de status, e histograma das latências em microssegundos.
+					*/
+				public static final class Counters {
+
+								private final Recorder latencies = new Recorder(3);
+
+								private final LongAdder ok = new LongAdder();
+
+								private final LongAdder notFound = new LongAdder();
+
+								private final LongAdder tooManyRequests = new LongAdder();
+
+								private final LongAdder serverErrors = new LongAdder();
+
+								private final LongAdder other = new LongAdder();
+
+								private final LongAdder errors = new LongAdder();
+
+								private LongAdder status(int status) {
+												if(status == 429){
+																return tooManyRequests;
+												}
+												if(status == 404){
+																return notFound;
+												}
+												if(status >= 500){
+																return serverErrors;
+												}
+												return status >= 200 && status < 400 ? ok : other;
+								}
+
+								public Histogram latencies() {
+												return latencies.getIntervalHistogram();
+								}
+
+								public long ok() {
+												return ok.sum();
+								}
+
+								public long notFound() {
+												return notFound.sum();
+								}
+
+								public long tooManyRequests() {
+												return tooManyRequests.sum();
+								}
+
+								public long serverErrors() {
+												return serverErrors.sum();
+								}
+
+								public long other() {
+												return other.sum();
+								}
+
+								public long errors() {
+												return errors.sum();
+								}
+
+								public long completed() {
+												return ok() + notFound() + tooManyRequests() + serverErrors() + other() + errors();
+								}
+				}
+}
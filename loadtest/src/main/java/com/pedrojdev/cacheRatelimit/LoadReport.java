@@ -0,0 +1,150 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+	* Relatório de um período medido do teste de carga.
+	*
+	* <p>
+	* Junta as medidas do {@link LoadGenerator} com a diferença entre duas leituras ({@link Snapshot}) feitas antes e
+	* depois do período: acertos e faltas do cache de pokémons ({@code cache.gets}), comandos Redis por tipo, vistos
+	* pelo cliente Lettuce ({@code lettuce.command.completion}), total de comandos no servidor Redis e chamadas recebidas
+	* pela API externa simulada.
+	* </p>
+	*/
+public class LoadReport {
+
+				private final LoadScenario scenario;
+
+				private final LoadGenerator.Result result;
+
+				private final Snapshot before;
+
+				private final Snapshot after;
+
+				/**
+					* Construtor do relatório.
+					*
+					* @param scenario cenário da execução
+					* @param result medidas do gerador no período
+					* @param before leitura feita no início do período
+					* @param after leitura feita no fim do período
+					*/
+				public LoadReport(LoadScenario scenario, LoadGenerator.Result result, Snapshot before, Snapshot after) {
+								this.scenario = scenario;
+								this.result = result;
+								this.before = before;
+								this.after = after;
+				}
+
+				/**
+					* Lê os contadores da aplicação, do Redis e da API externa simulada.
+					*
+					* @param registry registro de métricas da aplicação
+					* @param redis Redis usado pela aplicação
+					* @param upstream API externa simulada
+					* @return leitura atual
+					*/
+				public static Snapshot snapshot(MeterRegistry registry, LocalRedis redis, StubUpstream upstream) {
+								Map<String, Long> commands = new HashMap<>();
+								for(Timer timer : registry.find("lettuce.command.completion").timers()){
+												commands.merge(timer.getId().getTag("command"), timer.count(), Long::sum);
+								}
+								return new Snapshot(cacheGets(registry, "hit"), cacheGets(registry, "miss"), commands, redis.commandsProcessed(),
+																								upstream.requests());
+				}
+
+				private static long cacheGets(MeterRegistry registry, String result) {
+								Counter counter = registry.find("cache.gets").tag("cache", ServicoApi.CACHE_NAME).tag("result", result).counter();
+								return counter != null ? (long) counter.count() : 0;
+				}
+
+				/**
+					* Escreve o relatório.
+					*
+					* @param out destino do relatório
+					*/
+				public void print(PrintStream out) {
+								LoadGenerator.Counters normal = result.normal();
+								LoadGenerator.Counters abusive = result.abusive();
+								long completed = normal.completed() + abusive.completed();
+								double seconds = result.elapsed().toNanos() / 1e9;
+								out.println();
+								out.printf(Locale.ROOT, "=== Cenário %s: %.0f s medidos, alvo de %.0f req/s (%.0f de clientes abusivos) ===%n",
+																								scenario.name(), seconds, scenario.totalRate(), scenario.abusiveClients() * scenario.abusiveRate());
+								out.printf(Locale.ROOT, "Requisições: %d enviadas, %d concluídas, %d descartadas pelo gerador, %d sem resposta%n",
+																								result.sent(), completed, result.dropped(), result.pending());
+								out.printf(Locale.ROOT, "Vazão: %.1f req/s%n", completed / seconds);
+								latencies(out, "clientes normais", normal);
+								if(abusive.completed() > 0){
+												latencies(out, "clientes abusivos", abusive);
+								}
+								statuses(out, "clientes normais", normal);
+								if(abusive.completed() > 0){
+												statuses(out, "clientes abusivos", abusive);
+								}
+								long hits = after.cacheHits() - before.cacheHits();
+								long misses = after.cacheMisses() - before.cacheMisses();
+								out.printf(Locale.ROOT, "Cache %s: %.1f%% de acertos (%d acertos, %d faltas)%n", ServicoApi.CACHE_NAME,
+																								percent(hits, hits + misses), hits, misses);
+								long upstreamCalls = after.upstreamRequests() - before.upstreamRequests();
+								out.printf(Locale.ROOT, "API externa: %d chamadas, %.3f por requisição%n", upstreamCalls, perRequest(upstreamCalls, completed));
+								long redisCommands = after.redisCommands() - before.redisCommands();
+								out.printf(Locale.ROOT, "Redis: %.2f comandos por requisição (%d no servidor)%n", perRequest(redisCommands, completed),
+																								redisCommands);
+								Map<String, Long> commands = new TreeMap<>();
+								after.commands().forEach((command, count) -> {
+												long delta = count - before.commands().getOrDefault(command, 0L);
+												if(delta > 0){
+																commands.put(command, delta);
+												}
+								});
+								StringBuilder line = new StringBuilder("  por comando, no cliente Lettuce:");
+								commands.forEach((command, count) -> line.append(String.format(Locale.ROOT, " %s %.2f", command, perRequest(count, completed))));
+								out.println(line);
+				}
+
+				private static void latencies(PrintStream out, String clients, LoadGenerator.Counters counters) {
+								Histogram histogram = counters.latencies();
+								out.printf(Locale.ROOT, "Latência, %s (ms): p50 %.2f  p99 %.2f  p99.9 %.2f  máx %.2f%n", clients,
+																								histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+																								histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0);
+				}
+
+				private static void statuses(PrintStream out, String clients, LoadGenerator.Counters counters) {
+								out.printf(Locale.ROOT, "Respostas, %s: 2xx/3xx %d, 404 %d, 429 %d (%.2f%%), 5xx %d, outras %d, falhas %d%n", clients,
+																								counters.ok(), counters.notFound(), counters.tooManyRequests(),
+																								percent(counters.tooManyRequests(), counters.completed()), counters.serverErrors(), counters.other(),
+																								counters.errors());
+				}
+
+				private static double percent(long part, long total) {
+								return total > 0 ? 100.0 * part / total : 0;
+				}
+
+				private static double perRequest(long count, long requests) {
+								return requests > 0 ? (double) count / requests : 0;
+				}
+
+				/**
+					* Contadores lidos em um instante.
+					*
+					* @param cacheHits acertos do cache de pokémons
+					* @param cacheMisses faltas do cache de pokémons
+					* @param commands comandos Redis enviados pelos clientes Lettuce da aplicação, por tipo
+					* @param redisCommands comandos processados pelo servidor Redis
+					* @param upstreamRequests chamadas recebidas pela API externa simulada
+					*/
+				public record Snapshot(long cacheHits, long cacheMisses, Map<String, Long> commands, long redisCommands,
+																				long upstreamRequests) {
+				}
+}
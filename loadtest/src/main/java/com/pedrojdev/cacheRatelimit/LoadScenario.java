@@ -0,0 +1,151 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+	* Parâmetros de uma execução do teste de carga, lidos da linha de comando no formato {@code --nome=valor}.
+	*
+	* <p>
+	* O cenário ({@code --scenario}) define os valores padrão da distribuição das chaves e dos clientes abusivos, e
+	* qualquer opção informada os substitui:
+	* <ul>
+	*     <li>{@code mixed} (padrão) - 10 mil pokémons com acesso Zipf (s = 0,9), 5% de nomes inexistentes e 5 clientes
+	*     abusivos</li>
+	*     <li>{@code hot} - mil pokémons muito concentrados (s = 1,2), sem abusivos</li>
+	*     <li>{@code cold} - 100 mil pokémons com acesso uniforme, quase tudo falta no cache, sem abusivos</li>
+	*     <li>{@code abuse} - o {@code mixed} com 20 clientes abusivos</li>
+	* </ul>
+	* As opções {@code --app.<propriedade>=<valor>} são repassadas à aplicação como {@code --<propriedade>=<valor>}.
+	* </p>
+	*
+	* @param name nome do cenário
+	* @param rate requisições por segundo dos clientes normais, somadas
+	* @param warmup duração do aquecimento, não medido
+	* @param duration duração da medição
+	* @param keys quantidade de pokémons distintos
+	* @param skew expoente da distribuição Zipf das chaves; {@code 0} para acesso uniforme
+	* @param missingRate fração das requisições por pokémons inexistentes
+	* @param clients quantidade de clientes normais, cada um com sua API key e seu IP
+	* @param abusiveClients quantidade de clientes abusivos
+	* @param abusiveRate requisições por segundo de cada cliente abusivo
+	* @param apiKeyLimit bandas do bucket da API key, no formato das sobrescritas, ou vazio para a regra padrão
+	* @param ipLimit bandas do bucket por IP do {@code /pokemon/}, ou vazio para a regra da anotação
+	* @param upstreamLatency latência mínima da API externa simulada
+	* @param upstreamJitter atraso adicional máximo da API externa simulada
+	* @param payloadBytes tamanho aproximado de cada pokémon
+	* @param upstreamErrorRate fração das chamadas à API externa que falham com 503
+	* @param cacheTtl tempo de vida das entradas do cache
+	* @param maxInFlight requisições simultâneas máximas do gerador; acima disso as requisições são descartadas
+	* @param redis {@code host:porta} de um Redis existente, ou vazio para iniciar um {@code redis-server}
+	* @param redisServer executável usado para iniciar o Redis
+	* @param application propriedades repassadas à aplicação
+	*/
+public record LoadScenario(String name, double rate, Duration warmup, Duration duration, int keys, double skew,
+																double missingRate, int clients, int abusiveClients, double abusiveRate, String apiKeyLimit,
+																String ipLimit, Duration upstreamLatency, Duration upstreamJitter, int payloadBytes,
+																double upstreamErrorRate, Duration cacheTtl, int maxInFlight, String redis, String redisServer,
+																Map<String, String> application) {
+
+				private static final String APPLICATION_PREFIX = "app.";
+
+				/**
+					* Lê o cenário da linha de comando.
+					*
+					* @param args argumentos no formato {@code --nome=valor}
+					* @return cenário com os padrões do {@code --scenario} escolhido e as opções informadas
+					* @throws IllegalArgumentException se algum argumento estiver fora do formato ou for desconhecido
+					*/
+				public static LoadScenario parse(String[] args) {
+								Map<String, String> options = new LinkedHashMap<>();
+								Map<String, String> application = new LinkedHashMap<>();
+								for(String arg : args){
+												int separator = arg.indexOf('=');
+												if(!arg.startsWith("--") || separator < 0){
+																throw new IllegalArgumentException("Argumento fora do formato --nome=valor: " + arg);
+												}
+												String key = arg.substring(2, separator);
+												String value = arg.substring(separator + 1);
+												if(key.startsWith(APPLICATION_PREFIX)){
+																application.put(key.substring(APPLICATION_PREFIX.length()), value);
+												}else{
+																options.put(key, value);
+												}
+								}
+								String name = options.getOrDefault("scenario", "mixed");
+								Map<String, String> defaults = switch (name){
+												case "mixed" -> Map.of("keys", "10000", "skew", "0.9", "missing-rate", "0.05", "abusive-clients", "5");
+												case "hot" -> Map.of("keys", "1000", "skew", "1.2", "missing-rate", "0", "abusive-clients", "0");
+												case "cold" -> Map.of("keys", "100000", "skew", "0", "missing-rate", "0", "abusive-clients", "0");
+												case "abuse" -> Map.of("keys", "10000", "skew", "0.9", "missing-rate", "0.05", "abusive-clients", "20");
+												default -> throw new IllegalArgumentException("Cenário desconhecido: " + name);
+								};
+								Options values = new Options(options, defaults);
+								LoadScenario scenario = new LoadScenario(name,
+																								values.decimal("rate", "200"),
+																								Duration.ofSeconds(values.integer("warmup-seconds", "10")),
+																								Duration.ofSeconds(values.integer("duration-seconds", "30")),
+																								values.integer("keys", null),
+																								values.decimal("skew", null),
+																								values.decimal("missing-rate", null),
+																								values.integer("clients", "1000"),
+																								values.integer("abusive-clients", null),
+																								values.decimal("abusive-rate", "50"),
+																								values.text("api-key-limit", "20:5/1s"),
+																								values.text("ip-limit", "20:5/1s"),
+																								Duration.ofMillis(values.integer("upstream-latency-ms", "20")),
+																								Duration.ofMillis(values.integer("upstream-jitter-ms", "10")),
+																								values.integer("payload-bytes", "4096"),
+																								values.decimal("upstream-error-rate", "0"),
+																								Duration.ofSeconds(values.integer("cache-ttl-seconds", "300")),
+																								values.integer("max-in-flight", "2000"),
+																								values.text("redis", ""),
+																								values.text("redis-server", "redis-server"),
+																								Map.copyOf(application));
+								options.keySet().removeAll(values.read);
+								options.remove("scenario");
+								if(!options.isEmpty()){
+												throw new IllegalArgumentException("Opções desconhecidas: " + options.keySet());
+								}
+								return scenario;
+				}
+
+				/**
+					* Requisições por segundo de todos os clientes, normais e abusivos.
+					*
+					* @return vazão alvo do gerador
+					*/
+				public double totalRate() {
+								return rate + abusiveClients * abusiveRate;
+				}
+
+				private static final class Options {
+
+								private final Map<String, String> options;
+
+								private final Map<String, String> defaults;
+
+								private final Set<String> read = new HashSet<>();
+
+								private Options(Map<String, String> options, Map<String, String> defaults) {
+												this.options = options;
+												this.defaults = defaults;
+								}
+
+								private String text(String key, String fallback) {
+												read.add(key);
+												return options.getOrDefault(key, defaults.getOrDefault(key, fallback));
+								}
+
+								private int integer(String key, String fallback) {
+												return Integer.parseInt(text(key, fallback));
+								}
+
+								private double decimal(String key, String fallback) {
+												return Double.parseDouble(text(key, fallback));
+								}
+				}
+}
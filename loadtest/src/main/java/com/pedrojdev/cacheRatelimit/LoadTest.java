@@ -0,0 +1,105 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+	* Teste de carga de ponta a ponta, sem a API externa real e sem um Redis compartilhado.
+	*
+	* <p>
+	* Inicia um {@link LocalRedis}, a {@link StubUpstream} e a aplicação neste mesmo processo, apontada para os dois,
+	* com as regras de rate limit do cenário gravadas em um arquivo de sobrescritas. Em seguida o {@link LoadGenerator}
+	* aquece a aplicação, sem medir, e mede um período; o {@link LoadReport} é escrito na saída padrão.
+	* </p>
+	*
+	* <p>
+	* O gerador roda no mesmo processo e nas mesmas CPUs da aplicação; os números servem para comparar versões e
+	* configurações na mesma máquina, não como capacidade absoluta. Exemplo:
+	* <pre>{@code
+	* mvn -f loadtest/pom.xml package
+	* java -jar loadtest/target/loadtest.jar --scenario=abuse --rate=500 --upstream-latency-ms=50 --app.rate-limit.engine=lua
+	* }</pre>
+	* Ver {@link LoadScenario} para todas as opções.
+	* </p>
+	*/
+public final class LoadTest {
+
+				private LoadTest() {
+				}
+
+				public static void main(String[] args) throws Exception {
+								LoadScenario scenario = LoadScenario.parse(args);
+								Path overrides = Files.createTempFile("loadtest-rules", ".properties");
+								overrides.toFile().deleteOnExit();
+								writeOverrides(scenario, overrides);
+								try (LocalRedis redis = redis(scenario);
+												 StubUpstream upstream = new StubUpstream(scenario.upstreamLatency(), scenario.upstreamJitter(),
+																												 scenario.payloadBytes(), scenario.upstreamErrorRate());
+												 ConfigurableApplicationContext application = SpringApplication.run(CacheRateLimitApplication.class,
+																												 applicationArguments(scenario, redis, upstream, overrides))) {
+												int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+												MeterRegistry registry = application.getBean(MeterRegistry.class);
+												LoadGenerator generator = new LoadGenerator(scenario, "http://127.0.0.1:" + port);
+												System.out.printf("Aquecendo por %d s...%n", scenario.warmup().toSeconds());
+												generator.run(scenario.warmup());
+												System.out.printf("Medindo por %d s...%n", scenario.duration().toSeconds());
+												LoadReport.Snapshot before = LoadReport.snapshot(registry, redis, upstream);
+												LoadGenerator.Result result = generator.run(scenario.duration());
+												LoadReport.Snapshot after = LoadReport.snapshot(registry, redis, upstream);
+												new LoadReport(scenario, result, before, after).print(System.out);
+								}
+								System.exit(0);
+				}
+
+				private static LocalRedis redis(LoadScenario scenario) throws IOException, InterruptedException {
+								if(scenario.redis().isBlank()){
+												return LocalRedis.start(scenario.redisServer());
+								}
+								int separator = scenario.redis().lastIndexOf(':');
+								return LocalRedis.connect(scenario.redis().substring(0, separator),
+																								Integer.parseInt(scenario.redis().substring(separator + 1)));
+				}
+
+				private static void writeOverrides(LoadScenario scenario, Path overrides) throws IOException {
+								List<String> lines = new ArrayList<>();
+								if(!scenario.apiKeyLimit().isBlank()){
+												lines.add(RateLimitRuleRegistry.API_KEY_RULE + "=" + scenario.apiKeyLimit());
+								}
+								if(!scenario.ipLimit().isBlank()){
+												lines.add("ApiController.getPokemon=" + scenario.ipLimit());
+								}
+								Files.write(overrides, lines);
+				}
+
+				/**
+					* Propriedades da aplicação como argumentos de linha de comando, que têm precedência sobre o
+					* {@code application.yaml}; as propriedades {@code --app.*} do cenário substituem as padrão.
+					*/
+				private static String[] applicationArguments(LoadScenario scenario, LocalRedis redis, StubUpstream upstream,
+																				Path overrides) {
+								Map<String, String> properties = new LinkedHashMap<>();
+								properties.put("server.port", "0");
+								properties.put("server.forward-headers-strategy", "framework");
+								properties.put("REDIS_HOST", redis.host());
+								properties.put("spring.data.redis.host", redis.host());
+								properties.put("spring.data.redis.port", String.valueOf(redis.port()));
+								properties.put("api-url", upstream.baseUrl());
+								properties.put("cache-ttl-seconds", String.valueOf(scenario.cacheTtl().toSeconds()));
+								properties.put("rate-limit.rules.overrides-file", overrides.toString());
+								properties.put("logging.level.root", "WARN");
+								properties.putAll(scenario.application());
+								return properties.entrySet().stream()
+																								.map(property -> "--" + property.getKey() + "=" + property.getValue())
+																								.toArray(String[]::new);
+				}
+}
@@ -0,0 +1,128 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Redis usado pelo teste de carga: um {@code redis-server} iniciado só para o teste, ou um Redis já existente.
+	*
+	* <p>
+	* O processo iniciado escuta em uma porta livre do loopback, sem persistência, e é encerrado no {@link #close()}.
+	* A conexão própria serve só para ler o {@code INFO stats} do servidor, então a contagem de comandos inclui tudo o
+	* que a aplicação executou, de todos os clientes, mais uma chamada {@code INFO} por leitura.
+	* </p>
+	*/
+public class LocalRedis implements AutoCloseable {
+
+				private final Process process;
+
+				private final String host;
+
+				private final int port;
+
+				private final RedisClient client;
+
+				private final StatefulRedisConnection<String, String> connection;
+
+				private LocalRedis(Process process, String host, int port) throws InterruptedException {
+								this.process = process;
+								this.host = host;
+								this.port = port;
+								this.client = RedisClient.create(RedisURI.create(host, port));
+								this.connection = connect();
+				}
+
+				/**
+					* Inicia um {@code redis-server} em uma porta livre.
+					*
+					* @param executable caminho ou nome do executável {@code redis-server}
+					* @return Redis pronto para receber comandos
+					* @throws IOException se o processo não puder ser iniciado
+					* @throws InterruptedException se a espera pelo servidor for interrompida
+					*/
+				public static LocalRedis start(String executable) throws IOException, InterruptedException {
+								int port;
+								try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+												port = socket.getLocalPort();
+								}
+								Process process = new ProcessBuilder(executable, "--port", String.valueOf(port), "--bind", "127.0.0.1",
+																								"--save", "", "--appendonly", "no")
+																								.redirectErrorStream(true)
+																								.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+																								.start();
+								try {
+												return new LocalRedis(process, "127.0.0.1", port);
+								} catch (RuntimeException | InterruptedException e) {
+												process.destroyForcibly();
+												throw e;
+								}
+				}
+
+				/**
+					* Usa um Redis já em execução; os dados dele não são apagados.
+					*
+					* @param host endereço do Redis
+					* @param port porta do Redis
+					* @return Redis conectado
+					* @throws InterruptedException se a espera pelo servidor for interrompida
+					*/
+				public static LocalRedis connect(String host, int port) throws InterruptedException {
+								return new LocalRedis(null, host, port);
+				}
+
+				private StatefulRedisConnection<String, String> connect() throws InterruptedException {
+								long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+								while(true){
+												try {
+																return client.connect();
+												} catch (RedisConnectionException e) {
+																if(System.nanoTime() > deadline || process != null && !process.isAlive()){
+																				client.shutdown();
+																				throw e;
+																}
+																Thread.sleep(100);
+												}
+								}
+				}
+
+				public String host() {
+								return host;
+				}
+
+				public int port() {
+								return port;
+				}
+
+				/**
+					* Total de comandos processados pelo servidor desde que ele foi iniciado.
+					*
+					* @return valor de {@code total_commands_processed} do {@code INFO stats}
+					*/
+				public long commandsProcessed() {
+								for(String line : connection.sync().info("stats").split("\r?\n")){
+												if(line.startsWith("total_commands_processed:")){
+																return Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+												}
+								}
+								throw new IllegalStateException("INFO stats sem total_commands_processed");
+				}
+
+				@Override
+				public void close() throws InterruptedException {
+								connection.close();
+								client.shutdown();
+								if(process != null){
+												process.destroy();
+												if(!process.waitFor(5, TimeUnit.SECONDS)){
+																process.destroyForcibly();
+												}
+								}
+				}
+}
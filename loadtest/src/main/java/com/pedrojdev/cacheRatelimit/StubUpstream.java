@@ -0,0 +1,160 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+	* API externa simulada, no lugar da PokeAPI, em um servidor HTTP local.
+	*
+	* <p>
+	* Responde {@code GET /api/v2/pokemon/<nome>} com um documento JSON de cerca de {@code payloadBytes} bytes, sempre
+	* o mesmo para o mesmo nome e com ETag, depois de esperar {@code latency} mais um atraso aleatório de até
+	* {@code jitter}. Uma fração {@code errorRate} das chamadas responde 503, e nomes que começam com {@code missing}
+	* respondem 404, para exercitar o cache negativo. Um {@code If-None-Match} com o ETag atual responde 304.
+	* </p>
+	*/
+public class StubUpstream implements AutoCloseable {
+
+				private static final String PATH = "/api/v2/pokemon/";
+
+				private final HttpServer server;
+
+				private final ExecutorService executor;
+
+				private final long latencyNanos;
+
+				private final long jitterNanos;
+
+				private final int payloadBytes;
+
+				private final double errorRate;
+
+				private final LongAdder requests = new LongAdder();
+
+				private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+
+				/**
+					* Inicia o servidor em uma porta livre do loopback.
+					*
+					* @param latency tempo mínimo de cada resposta
+					* @param jitter atraso adicional máximo, sorteado a cada resposta
+					* @param payloadBytes tamanho aproximado do corpo de cada pokémon
+					* @param errorRate fração das chamadas respondidas com 503, de 0 a 1
+					* @throws IOException se o servidor não puder ser iniciado
+					*/
+				public StubUpstream(Duration latency, Duration jitter, int payloadBytes, double errorRate) throws IOException {
+								this.latencyNanos = latency.toNanos();
+								this.jitterNanos = jitter.toNanos();
+								this.payloadBytes = payloadBytes;
+								this.errorRate = errorRate;
+								AtomicInteger threads = new AtomicInteger();
+								this.executor = Executors.newCachedThreadPool(runnable -> {
+												Thread thread = new Thread(runnable, "stub-upstream-" + threads.incrementAndGet());
+												thread.setDaemon(true);
+												return thread;
+								});
+								this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+								server.setExecutor(executor);
+								server.createContext(PATH, this::handle);
+								server.start();
+				}
+
+				/**
+					* URL base a ser configurada em {@code api-url}.
+					*
+					* @return URL à qual a aplicação acrescenta o nome do pokémon
+					*/
+				public String baseUrl() {
+								return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+				}
+
+				/**
+					* Quantidade de chamadas recebidas desde o início.
+					*
+					* @return chamadas recebidas
+					*/
+				public long requests() {
+								return requests.sum();
+				}
+
+				private void handle(HttpExchange exchange) throws IOException {
+								requests.increment();
+								try (exchange) {
+												String name = exchange.getRequestURI().getPath().substring(PATH.length());
+												ThreadLocalRandom random = ThreadLocalRandom.current();
+												long delay = latencyNanos + (jitterNanos > 0 ? random.nextLong(jitterNanos) : 0);
+												if(delay > 0){
+																try {
+																				TimeUnit.NANOSECONDS.sleep(delay);
+																} catch (InterruptedException e) {
+																				Thread.currentThread().interrupt();
+																				return;
+																}
+												}
+												if(errorRate > 0 && random.nextDouble() < errorRate){
+																exchange.sendResponseHeaders(503, -1);
+																return;
+												}
+												if(name.isEmpty() || name.startsWith("missing")){
+																exchange.sendResponseHeaders(404, -1);
+																return;
+												}
+												byte[] body = bodies.computeIfAbsent(name, this::body);
+												String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+												exchange.getResponseHeaders().set("ETag", etag);
+												if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))){
+																exchange.sendResponseHeaders(304, -1);
+																return;
+												}
+												exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+												exchange.sendResponseHeaders(200, body.length);
+												try (OutputStream output = exchange.getResponseBody()) {
+																output.write(body);
+												}
+								}
+				}
+
+				/**
+					* Documento no formato da PokeAPI, completado com golpes até chegar a {@code payloadBytes}.
+					*/
+				private byte[] body(String name) {
+								int id = Math.floorMod(name.hashCode(), 10_000);
+								StringBuilder json = new StringBuilder(payloadBytes + 256)
+																								.append("{\"name\":\"").append(name).append("\",\"id\":").append(id)
+																								.append(",\"base_experience\":112,\"height\":4,\"weight\":60,\"is_default\":true")
+																								.append(",\"species\":{\"name\":\"").append(name).append("\",\"url\":\"https://pokeapi.co/api/v2/pokemon-species/")
+																								.append(id).append("/\"},\"types\":[{\"slot\":1,\"type\":{\"name\":\"electric\",\"url\":\"https://pokeapi.co/api/v2/type/13/\"}}]")
+																								.append(",\"moves\":[");
+								for(int move = 0; json.length() < payloadBytes; move++){
+												if(move > 0){
+																json.append(',');
+												}
+												json.append("{\"move\":{\"name\":\"move-").append(move).append("\",\"url\":\"https://pokeapi.co/api/v2/move/")
+																												.append(move).append("/\"},\"version_group_details\":[{\"level_learned_at\":").append(move % 50)
+																												.append(",\"move_learn_method\":{\"name\":\"level-up\",\"url\":\"https://pokeapi.co/api/v2/move-learn-method/1/\"}}]}");
+								}
+								return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+				}
+
+				@Override
+				public void close() {
+								server.stop(0);
+								executor.shutdownNow();
+				}
+}
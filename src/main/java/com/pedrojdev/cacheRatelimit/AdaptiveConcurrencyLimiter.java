@@ -0,0 +1,348 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+	* Limite adaptativo de chamadas simultâneas a um recurso, ajustado pela latência medida.
+	*
+	* <p>
+	* O limite segue um esquema de gradiente: cada chamada bem-sucedida compara a sua latência com a latência sem fila,
+	* estimada pela menor latência das duas últimas janelas de {@code rttWindow} chamadas. Enquanto a latência fica abaixo
+	* de {@code tolerance} vezes a latência sem fila, o limite cresce cerca de sua raiz quadrada; quando ela sobe, o limite
+	* diminui na proporção. As janelas fazem a referência acompanhar uma API que ficou mais lenta de fato.
+	* Chamadas que falham por erro do recurso ou timeout reduzem o limite em 10%. O novo valor é suavizado por {@code smoothing} e fica sempre entre {@code minLimit} e {@code maxLimit}.
+	* Com {@code minLimit} igual a {@code maxLimit} o limite é fixo.
+	* </p>
+	*
+	* <p>
+	* Com o limite atingido, até {@code queueSize} chamadas esperam por no máximo {@code maxWait} uma vaga; as demais
+	* são recusadas na hora. Assim o excesso de carga é descartado rapidamente em vez de ocupar threads esperando
+	* um recurso já saturado. A espera bloqueia a thread em {@link #tryAcquire()}; em {@link #acquireAsync()} ela
+	* não ocupa thread nenhuma e as vagas liberadas vão primeiro para essas chamadas.
+	* </p>
+	*/
+public class AdaptiveConcurrencyLimiter {
+
+				private static final double DROP_RATIO = 0.9;
+
+				private final int minLimit;
+
+				private final int maxLimit;
+
+				private final double tolerance;
+
+				private final double smoothing;
+
+				private final int rttWindow;
+
+				private final int queueSize;
+
+				private final long maxWaitNanos;
+
+				private final ReentrantLock lock = new ReentrantLock();
+
+				private final Condition released = lock.newCondition();
+
+				/**
+					* Chamadas de {@link #acquireAsync()} esperando uma vaga, na ordem de chegada. Contam em {@code waiting}.
+					*/
+				private final Deque<CompletableFuture<Boolean>> asyncWaiters = new ArrayDeque<>();
+
+				private final LongAdder accepted = new LongAdder();
+
+				private final LongAdder rejected = new LongAdder();
+
+				private final LongAdder dropped = new LongAdder();
+
+				private volatile double limit;
+
+				private volatile int inFlight;
+
+				private volatile int waiting;
+
+				private volatile long noLoadRttNanos;
+
+				private long previousWindowMinRttNanos = Long.MAX_VALUE;
+
+				private long windowMinRttNanos = Long.MAX_VALUE;
+
+				private int windowSamples;
+
+				/**
+					* Construtor do limitador.
+					*
+					* @param initialLimit limite inicial de chamadas simultâneas
+					* @param minLimit limite mínimo
+					* @param maxLimit limite máximo
+					* @param tolerance quanto a latência pode crescer em relação à latência sem fila antes de reduzir o limite
+					* @param smoothing peso de cada novo cálculo do limite, de 0 a 1
+					* @param rttWindow quantidade de chamadas em cada janela da latência mínima
+					* @param queueSize quantidade máxima de threads esperando uma vaga
+					* @param maxWait tempo máximo de espera por uma vaga
+					*/
+				public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+																				int rttWindow, int queueSize, Duration maxWait) {
+								this.minLimit = Math.max(1, minLimit);
+								this.maxLimit = Math.max(this.minLimit, maxLimit);
+								this.tolerance = Math.max(1.0, tolerance);
+								this.smoothing = Math.min(1.0, Math.max(0.01, smoothing));
+								this.rttWindow = Math.max(1, rttWindow);
+								this.queueSize = Math.max(0, queueSize);
+								this.maxWaitNanos = maxWait.toNanos();
+								this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+				}
+
+				/**
+					* Reserva uma vaga para uma chamada, esperando na fila se o limite estiver atingido. Toda vaga reservada deve
+					* ser devolvida com {@link #onSuccess(long)}, {@link #onDropped()} ou {@link #onIgnore()}.
+					*
+					* @return {@code true} se a chamada pode ser feita; {@code false} se foi recusada
+					*/
+				public boolean tryAcquire() {
+								return tryAcquire(true);
+				}
+
+				/**
+					* Reserva uma vaga apenas se houver uma livre agora, sem entrar na fila. Usado por chamadas opcionais,
+					* como as requisições de hedge, que não devem disputar vagas com as chamadas principais.
+					*
+					* @return {@code true} se a chamada pode ser feita; {@code false} se foi recusada
+					*/
+				public boolean tryAcquireNow() {
+								return tryAcquire(false);
+				}
+
+				/**
+					* Reserva uma vaga para uma chamada sem bloquear a thread. Com o limite atingido, a chamada entra na mesma
+					* fila de {@link #tryAcquire()} e o future é concluído quando uma vaga for liberada ou depois de {@code maxWait}.
+					* Uma vaga concedida deve ser devolvida como em {@link #tryAcquire()}.
+					*
+					* @return future com {@code true} se a chamada pode ser feita, ou {@code false} se foi recusada
+					*/
+				public CompletableFuture<Boolean> acquireAsync() {
+								CompletableFuture<Boolean> waiter;
+								lock.lock();
+								try {
+												if(inFlight < (int) limit){
+																return CompletableFuture.completedFuture(admit());
+												}
+												if(waiting >= queueSize || maxWaitNanos <= 0){
+																rejected.increment();
+																return CompletableFuture.completedFuture(false);
+												}
+												waiter = new CompletableFuture<>();
+												asyncWaiters.add(waiter);
+												waiting++;
+								} finally {
+												lock.unlock();
+								}
+								CompletableFuture.delayedExecutor(maxWaitNanos, TimeUnit.NANOSECONDS).execute(() -> expire(waiter));
+								return waiter;
+				}
+
+				/**
+					* Recusa uma chamada de {@link #acquireAsync()} que esperou {@code maxWait} sem receber uma vaga.
+					*/
+				private void expire(CompletableFuture<Boolean> waiter) {
+								lock.lock();
+								try {
+												if(!asyncWaiters.remove(waiter)){
+																return;
+												}
+												waiting--;
+												rejected.increment();
+								} finally {
+												lock.unlock();
+								}
+								waiter.complete(false);
+				}
+
+				private boolean tryAcquire(boolean wait) {
+								lock.lock();
+								try {
+												if(inFlight < (int) limit){
+																return admit();
+												}
+												if(!wait || waiting >= queueSize || maxWaitNanos <= 0){
+																rejected.increment();
+																return false;
+												}
+												waiting++;
+												try {
+																long remaining = maxWaitNanos;
+																while(inFlight >= (int) limit){
+																				if(remaining <= 0){
+																								rejected.increment();
+																								return false;
+																				}
+																				remaining = released.awaitNanos(remaining);
+																}
+																return admit();
+												} catch (InterruptedException e) {
+																Thread.currentThread().interrupt();
+																rejected.increment();
+																return false;
+												} finally {
+																waiting--;
+												}
+								} finally {
+												lock.unlock();
+								}
+				}
+
+				private boolean admit() {
+								inFlight++;
+								accepted.increment();
+								return true;
+				}
+
+				/**
+					* Devolve a vaga de uma chamada que o recurso respondeu, usando a sua latência no ajuste do limite.
+					*
+					* @param rttNanos duração da chamada em nanossegundos
+					*/
+				public void onSuccess(long rttNanos) {
+								List<CompletableFuture<Boolean>> admitted;
+								lock.lock();
+								try {
+												int inFlightAtCall = inFlight;
+												inFlight--;
+												double previous = limit;
+												long rtt = Math.max(1, rttNanos);
+												long noLoadRtt = sampleRtt(rtt);
+												// sem demanda perto do limite, a latência não diz nada sobre ele
+												if(inFlightAtCall >= previous / 2){
+																double gradient = Math.max(0.5, Math.min(1.0, tolerance * noLoadRtt / rtt));
+																double target = previous * gradient + Math.sqrt(previous);
+																limit = clamp(previous * (1 - smoothing) + target * smoothing);
+												}
+												admitted = wakeUp(previous);
+								} finally {
+												lock.unlock();
+								}
+								grant(admitted);
+				}
+
+				/**
+					* Devolve a vaga de uma chamada que falhou por erro do recurso ou timeout, reduzindo o limite.
+					*/
+				public void onDropped() {
+								List<CompletableFuture<Boolean>> admitted;
+								lock.lock();
+								try {
+												inFlight--;
+												dropped.increment();
+												double previous = limit;
+												limit = clamp(previous * DROP_RATIO);
+												admitted = wakeUp(previous);
+								} finally {
+												lock.unlock();
+								}
+								grant(admitted);
+				}
+
+				/**
+					* Devolve a vaga de uma chamada sem ajustar o limite, por exemplo quando ela foi cancelada antes da resposta.
+					*/
+				public void onIgnore() {
+								List<CompletableFuture<Boolean>> admitted;
+								lock.lock();
+								try {
+												inFlight--;
+												admitted = wakeUp(limit);
+								} finally {
+												lock.unlock();
+								}
+								grant(admitted);
+				}
+
+				/**
+					* Registra a latência na janela atual e devolve a latência sem fila: a menor entre a janela atual e a anterior.
+					*/
+				private long sampleRtt(long rtt) {
+								windowMinRttNanos = Math.min(windowMinRttNanos, rtt);
+								long noLoadRtt = Math.min(windowMinRttNanos, previousWindowMinRttNanos);
+								if(++windowSamples >= rttWindow){
+												previousWindowMinRttNanos = windowMinRttNanos;
+												windowMinRttNanos = Long.MAX_VALUE;
+												windowSamples = 0;
+								}
+								noLoadRttNanos = noLoadRtt;
+								return noLoadRtt;
+				}
+
+				/**
+					* Entrega as vagas livres às chamadas de {@link #acquireAsync()} em espera e acorda as threads de
+					* {@link #tryAcquire()}. Os futures das chamadas admitidas são concluídos por {@link #grant(List)}, fora do lock.
+					*/
+				private List<CompletableFuture<Boolean>> wakeUp(double previous) {
+								List<CompletableFuture<Boolean>> admitted = List.of();
+								while(inFlight < (int) limit && !asyncWaiters.isEmpty()){
+												if(admitted.isEmpty()){
+																admitted = new ArrayList<>();
+												}
+												admitted.add(asyncWaiters.poll());
+												waiting--;
+												admit();
+								}
+								if((int) limit > (int) previous){
+												released.signalAll();
+								}else{
+												released.signal();
+								}
+								return admitted;
+				}
+
+				/**
+					* Conclui as chamadas admitidas por {@link #wakeUp(double)}. Se quem esperava já desistiu do future,
+					* a vaga é devolvida.
+					*/
+				private void grant(List<CompletableFuture<Boolean>> admitted) {
+								for(CompletableFuture<Boolean> waiter : admitted){
+												if(!waiter.complete(true)){
+																onIgnore();
+												}
+								}
+				}
+
+				private double clamp(double value) {
+								return Math.min(maxLimit, Math.max(minLimit, value));
+				}
+
+				/**
+					* Limite atual de chamadas simultâneas.
+					*
+					* @return limite atual
+					*/
+				public int limit() {
+								return (int) limit;
+				}
+
+				/**
+					* Estado atual e contadores do limitador desde a inicialização.
+					*
+					* @return limite, chamadas em andamento, fila e contadores de chamadas aceitas, recusadas e com falha
+					*/
+				public Map<String, Object> stats() {
+								Map<String, Object> stats = new LinkedHashMap<>();
+								stats.put("limit", limit());
+								stats.put("inFlight", inFlight);
+								stats.put("waiting", waiting);
+								stats.put("noLoadRttMs", (double) noLoadRttNanos / TimeUnit.MILLISECONDS.toNanos(1));
+								stats.put("accepted", accepted.sum());
+								stats.put("rejected", rejected.sum());
+								stats.put("dropped", dropped.sum());
+								return stats;
+				}
+}
@@ -0,0 +1,161 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.Bandwidth;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Endpoints administrativos de diagnóstico do cache e do rate limiting.
+	*
+	* <p>
+	* Ficam fora de {@code /api/v1}, então não passam pelo filtro de rate limit. São protegidos pelo {@link AdminTokenFilter}:
+	* cada requisição precisa do header {@code X-Admin-Token} com o valor de {@code admin.token}, e sem ele configurado
+	* os endpoints respondem 403.
+	* </p>
+	*/
+@RestController
+@RequestMapping("admin")
+public class AdminController {
+
+				private final CompactValueRedisSerializer cacheValueSerializer;
+
+				private final RateLimitRuleRegistry ruleRegistry;
+
+				private final LatencyCircuitBreaker rateLimitCircuitBreaker;
+
+				private final InstanceHeartbeat instanceHeartbeat;
+
+				private final RateLimitStorageReport rateLimitStorageReport;
+
+				private final AdaptiveConcurrencyLimiter upstreamLimiter;
+
+				private final HotKeyTracker hotKeyTracker;
+
+				public AdminController(CompactValueRedisSerializer cacheValueSerializer, RateLimitRuleRegistry ruleRegistry,
+												LatencyCircuitBreaker rateLimitCircuitBreaker, InstanceHeartbeat instanceHeartbeat,
+												RateLimitStorageReport rateLimitStorageReport, AdaptiveConcurrencyLimiter upstreamLimiter,
+												HotKeyTracker hotKeyTracker) {
+								this.cacheValueSerializer = cacheValueSerializer;
+								this.ruleRegistry = ruleRegistry;
+								this.rateLimitCircuitBreaker = rateLimitCircuitBreaker;
+								this.instanceHeartbeat = instanceHeartbeat;
+								this.rateLimitStorageReport = rateLimitStorageReport;
+								this.upstreamLimiter = upstreamLimiter;
+								this.hotKeyTracker = hotKeyTracker;
+				}
+
+				/**
+					* Estatísticas do serializador de valores do cache: bytes gravados antes e depois da compressão
+					* e bytes transferidos por leitura.
+					*
+					* @return contadores do serializador
+					*/
+				@GetMapping("/cache/codec")
+				public Map<String, Object> cacheCodecStats(){
+								return cacheValueSerializer.stats();
+				}
+
+				/**
+					* Chaves mais acessadas do cache de pokémons, base da lista usada no aquecimento do cache.
+					*
+					* @param limit quantidade máxima de chaves
+					* @return contagem aproximada de acessos por chave, em ordem decrescente
+					*/
+				@GetMapping("/cache/hot-keys")
+				public Map<String, Long> hotKeys(@RequestParam(name = "limit", defaultValue = "20") int limit){
+								Map<String, Long> hotKeys = new LinkedHashMap<>();
+								hotKeyTracker.top(limit).forEach((key, count) -> hotKeys.put(key.toString(), count));
+								return hotKeys;
+				}
+
+				/**
+					* Regras de rate limit em uso, já com as sobrescritas aplicadas.
+					*
+					* @return regras ordenadas pelo identificador
+					*/
+				@GetMapping("/rate-limit/rules")
+				public List<Map<String, Object>> rateLimitRules(){
+								List<Map<String, Object>> rules = new ArrayList<>();
+								ruleRegistry.rules().stream()
+																.sorted(Comparator.comparing(RateLimitRule::id))
+																.forEach(rule -> rules.add(describe(rule)));
+								return rules;
+				}
+
+				/**
+					* Relê o arquivo de sobrescritas das regras de rate limit sem esperar a próxima verificação periódica.
+					*
+					* @return regras de rate limit após a recarga
+					*/
+				@PostMapping("/rate-limit/rules/reload")
+				public List<Map<String, Object>> reloadRateLimitRules(){
+								ruleRegistry.reload();
+								return rateLimitRules();
+				}
+
+				/**
+					* Estado do circuit breaker das chamadas de rate limit ao Redis e quantidade estimada de instâncias.
+					*
+					* @return estado da contingência do rate limit
+					*/
+				@GetMapping("/rate-limit/resilience")
+				public Map<String, Object> rateLimitResilience(){
+								Map<String, Object> resilience = new LinkedHashMap<>();
+								resilience.put("state", rateLimitCircuitBreaker.state());
+								resilience.put("retryInMs", TimeUnit.NANOSECONDS.toMillis(rateLimitCircuitBreaker.nanosUntilRetry()));
+								resilience.put("instances", instanceHeartbeat.instances());
+								return resilience;
+				}
+
+				/**
+					* Quantidade de buckets de rate limit no Redis e estimativa da memória ocupada por eles.
+					*
+					* @param sample quantidade máxima de chaves medidas com {@code MEMORY USAGE}
+					* @return quantidade de chaves por formato e estimativa de bytes
+					*/
+				@GetMapping("/rate-limit/buckets")
+				public Map<String, Object> rateLimitBuckets(@RequestParam(defaultValue = "1000") int sample){
+								return rateLimitStorageReport.report(sample);
+				}
+
+				/**
+					* Limite adaptativo de chamadas simultâneas à API externa e contadores de chamadas aceitas e recusadas.
+					*
+					* @return estado do limitador
+					*/
+				@GetMapping("/upstream/concurrency")
+				public Map<String, Object> upstreamConcurrency(){
+								return upstreamLimiter.stats();
+				}
+
+				private static Map<String, Object> describe(RateLimitRule rule){
+								List<Map<String, Object>> limits = new ArrayList<>();
+								for(Bandwidth bandwidth : rule.configuration().getBandwidths()){
+												Map<String, Object> limit = new LinkedHashMap<>();
+												limit.put("capacity", bandwidth.getCapacity());
+												limit.put("tokens", bandwidth.getRefillTokens());
+												limit.put("period", Duration.ofNanos(bandwidth.getRefillPeriodNanos()).toString());
+												limit.put("initialTokens", bandwidth.getInitialTokens());
+												limit.put("greedy", !bandwidth.isRefillIntervally());
+												limits.add(limit);
+								}
+								Map<String, Object> description = new LinkedHashMap<>();
+								description.put("id", rule.id());
+								description.put("scope", rule.scope());
+								description.put("version", rule.version());
+								description.put("fallback", rule.fallback());
+								description.put("limits", limits);
+								return description;
+				}
+}
@@ -0,0 +1,58 @@
+package com.pedrojdev.cacheRatelimit;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+	* Filtro que protege os endpoints do {@link AdminController} com um segredo compartilhado.
+	*
+	* <p>
+	* A requisição precisa trazer o segredo no header {@value #TOKEN_HEADER}; a comparação é feita em tempo constante com
+	* {@link MessageDigest#isEqual(byte[], byte[])}, para não revelar o segredo pelo tempo de resposta. Sem segredo
+	* configurado os endpoints ficam desligados. Em ambos os casos a recusa é um 403.
+	* </p>
+	*/
+public class AdminTokenFilter implements Filter {
+
+				/**
+					* Header com o segredo dos endpoints administrativos.
+					*/
+				public static final String TOKEN_HEADER = "X-Admin-Token";
+
+				private final byte[] token;
+
+				/**
+					* Construtor do filtro.
+					*
+					* @param token segredo esperado no header {@value #TOKEN_HEADER}; vazio recusa todas as requisições
+					*/
+				public AdminTokenFilter(String token) {
+								this.token = token == null || token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+				}
+
+				@Override
+				public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
+								HttpServletRequest request = (HttpServletRequest) servletRequest;
+								HttpServletResponse response = (HttpServletResponse) servletResponse;
+								if(token == null){
+												response.sendError(HttpStatus.FORBIDDEN.value(), "Endpoints administrativos desligados");
+												return;
+								}
+								String provided = request.getHeader(TOKEN_HEADER);
+								if(provided == null || !MessageDigest.isEqual(token, provided.getBytes(StandardCharsets.UTF_8))){
+												response.sendError(HttpStatus.FORBIDDEN.value(), "Token administrativo inválido");
+												return;
+								}
+								filterChain.doFilter(servletRequest, servletResponse);
+				}
+}
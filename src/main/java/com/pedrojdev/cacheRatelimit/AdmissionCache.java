@@ -0,0 +1,163 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+	* Decorator de {@link Cache} que só admite no cache as chaves acessadas com frequência.
+	*
+	* <p>
+	* Cada acesso a uma chave conta uma vez em um {@link FrequencySketch}: as leituras que encontram o valor contam na
+	* leitura e as faltas contam na gravação do valor carregado. Assim a releitura que o {@link CoalescingCache} faz antes
+	* de carregar não conta o mesmo acesso duas vezes. O valor só é gravado se a chave já foi acessada pelo menos
+	* {@code minFrequency} vezes na janela do sketch. Uma varredura de nomes aleatórios ou inválidos, em que cada chave
+	* aparece uma vez, não é gravada e portanto não expulsa as entradas quentes do near-cache nem do Redis. Como os acertos
+	* também contam, uma chave quente continua quente no sketch e volta a ser admitida logo depois de expirar.
+	* </p>
+	*
+	* <p>
+	* As remoções passam direto para o cache decorado. O sketch é local à instância. As chaves carregadas
+	* pelo {@link CacheWarmer} já são sabidamente frequentes, são sempre admitidas e as leituras do aquecimento não contam.
+	* As atualizações do refresh-ahead também são sempre admitidas e não contam: a chave já estava no cache e a leitura
+	* que disparou a atualização já foi contada.
+	* </p>
+	*/
+public class AdmissionCache implements Cache, BatchCache {
+
+				private final Cache delegate;
+
+				private final FrequencySketch sketch;
+
+				private final int minFrequency;
+
+				private final LongAdder admitted = new LongAdder();
+
+				private final LongAdder rejected = new LongAdder();
+
+				/**
+					* Construtor do cache.
+					*
+					* @param delegate cache decorado
+					* @param sketch contagem das cargas de cada chave
+					* @param minFrequency quantidade mínima de cargas da chave para que o valor seja gravado
+					*/
+				public AdmissionCache(Cache delegate, FrequencySketch sketch, int minFrequency) {
+								this.delegate = delegate;
+								this.sketch = sketch;
+								this.minFrequency = minFrequency;
+				}
+
+				@Override
+				public String getName() {
+								return delegate.getName();
+				}
+
+				@Override
+				public Object getNativeCache() {
+								return delegate.getNativeCache();
+				}
+
+				@Override
+				public ValueWrapper get(Object key) {
+								ValueWrapper cached = delegate.get(key);
+								if(cached != null){
+												record(key);
+								}
+								return cached;
+				}
+
+				@Override
+				public <T> T get(Object key, Class<T> type) {
+								T value = delegate.get(key, type);
+								if(value != null){
+												record(key);
+								}
+								return value;
+				}
+
+				/**
+					* Repassa a leitura com carga ao cache decorado, que grava o valor carregado sem passar pela admissão;
+					* o acesso conta no sketch, seja ele um acerto ou uma carga.
+					*/
+				@Override
+				public <T> T get(Object key, Callable<T> valueLoader) {
+								record(key);
+								return delegate.get(key, valueLoader);
+				}
+
+				@Override
+				public void put(Object key, Object value) {
+								if(admit(key)){
+												delegate.put(key, value);
+								}
+				}
+
+				@Override
+				public Map<Object, Object> getAll(Collection<?> keys) {
+								Map<Object, Object> values = BatchCache.getAllFrom(delegate, keys);
+								values.keySet().forEach(this::record);
+								return values;
+				}
+
+				@Override
+				public void putAll(Map<?, ?> values) {
+								Map<Object, Object> admittedValues = new LinkedHashMap<>();
+								values.forEach((key, value) -> {
+												if(admit(key)){
+																admittedValues.put(key, value);
+												}
+								});
+								BatchCache.putAllInto(delegate, admittedValues);
+				}
+
+				@Override
+				public void evict(Object key) {
+								delegate.evict(key);
+				}
+
+				@Override
+				public void clear() {
+								delegate.clear();
+				}
+
+				/**
+					* Conta o acesso de uma falta e decide se o valor carregado é gravado.
+					*/
+				private boolean admit(Object key) {
+								if(CoalescingCache.refreshingValue() != null){
+												admitted.increment();
+												return true;
+								}
+								record(key);
+								if(CacheWarmer.isWarming() || sketch.frequency(key) >= minFrequency){
+												admitted.increment();
+												return true;
+								}
+								rejected.increment();
+								return false;
+				}
+
+				private void record(Object key) {
+								if(!CacheWarmer.isWarming()){
+												sketch.increment(key);
+								}
+				}
+
+				/**
+					* Contadores de gravações admitidas e recusadas desde a inicialização.
+					*
+					* @return gravações admitidas e recusadas
+					*/
+				public Map<String, Object> stats() {
+								Map<String, Object> stats = new LinkedHashMap<>();
+								stats.put("minFrequency", minFrequency);
+								stats.put("admitted", admitted.sum());
+								stats.put("rejected", rejected.sum());
+								return stats;
+				}
+}
@@ -0,0 +1,69 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+	* {@link CacheManager} que envolve cada cache em um {@link AdmissionCache}.
+	*
+	* <p>
+	* Cada cache tem o seu próprio {@link FrequencySketch}, então as cargas de um cache não contam para os outros.
+	* </p>
+	*/
+public class AdmissionCacheManager implements CacheManager {
+
+				private final CacheManager delegate;
+
+				private final long expectedKeys;
+
+				private final int minFrequency;
+
+				private final Map<String, AdmissionCache> caches = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do gerenciador.
+					*
+					* @param delegate gerenciador dos caches decorados
+					* @param expectedKeys quantidade esperada de chaves distintas por cache, usada no tamanho do sketch
+					* @param minFrequency quantidade mínima de acessos à chave para que o valor seja gravado
+					*/
+				public AdmissionCacheManager(CacheManager delegate, long expectedKeys, int minFrequency) {
+								this.delegate = delegate;
+								this.expectedKeys = expectedKeys;
+								this.minFrequency = minFrequency;
+				}
+
+				@Override
+				public Cache getCache(String name) {
+								AdmissionCache cache = caches.get(name);
+								if(cache != null){
+												return cache;
+								}
+								Cache target = delegate.getCache(name);
+								if(target == null){
+												return null;
+								}
+								return caches.computeIfAbsent(name, cacheName -> new AdmissionCache(target, new FrequencySketch(expectedKeys), minFrequency));
+				}
+
+				@Override
+				public Collection<String> getCacheNames() {
+								return delegate.getCacheNames();
+				}
+
+				/**
+					* Contadores de admissão de cada cache já usado.
+					*
+					* @return contadores por nome de cache
+					*/
+				public Map<String, Object> stats() {
+								Map<String, Object> stats = new TreeMap<>();
+								caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+								return stats;
+				}
+}
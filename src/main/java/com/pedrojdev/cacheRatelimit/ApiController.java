@@ -1,13 +1,26 @@
 package com.pedrojdev.cacheRatelimit;
 
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 
 @RestController
@@ -16,18 +29,102 @@ public class ApiController {
 
 				private static Logger log = LoggerFactory.getLogger(ApiController.class);
 
+				private static final byte[] NULL_JSON = "null".getBytes(StandardCharsets.US_ASCII);
+
+				/**
+					* Limita o log das requisições a um registro a cada 10 segundos; o volume fica nas métricas do Actuator.
+					*/
+				private final LogSampler requestLog = new LogSampler(Duration.ofSeconds(10));
+
 				private final ServicoApi servicoApi;
 
+				/**
+					* Quantidade máxima de nomes por requisição em lote.
+					*/
+				@Value("${batch.max-size:50}")
+				private int batchMaxSize;
+
 				public ApiController(ServicoApi servicoApi) {
 								this.servicoApi = servicoApi;
 				}
 
 
+				/**
+					* Busca o pokémon pelo nome e escreve o corpo armazenado em cache direto na resposta,
+					* sem convertê-lo em objetos.
+					*
+					* <p>
+					* A resposta leva o ETag forte gravado com a entrada; se ele casar com o {@code If-None-Match}
+					* da requisição, a resposta é 304 sem corpo. Pokémons inexistentes na API externa respondem 404.
+					* </p>
+					*
+					* @param nome nome do pokémon
+					* @param request requisição, usada na verificação do {@code If-None-Match}
+					* @param response resposta HTTP
+					* @throws IOException se houver erro ao escrever no corpo da resposta
+					*/
 				@GetMapping("/pokemon/")
 				@RateLimited(maxCapacity = 5,initialTokens = 5 ,tokensPerTimeWindow = 2, scope = "IP")
-				public ResponseEntity<?> getPokemon(@RequestParam(name = "nome") String nome){
-        log.info("Requisicao recebida {}", nome);
-								Object result = servicoApi.get(nome);
-								return ResponseEntity.ok(result);
+				public void getPokemon(@RequestParam(name = "nome") String nome, WebRequest request, HttpServletResponse response) throws IOException{
+								long requests = requestLog.sample();
+								if(requests > 0){
+												log.info("Requisicao recebida {} ({} requisições desde o último registro)", nome, requests);
+								}
+								CachedResponse result = servicoApi.get(nome);
+								if(result.isNotFound()){
+												throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pokémon não encontrado: " + nome);
+								}
+								if(request.checkNotModified(result.etag())){
+												return;
+								}
+								response.setStatus(HttpStatus.OK.value());
+								response.setContentType(result.contentType() != null ? result.contentType() : MediaType.APPLICATION_JSON_VALUE);
+								response.setContentLength(result.body().length);
+								response.getOutputStream().write(result.body());
+				}
+
+				/**
+					* Busca vários pokémons em uma única requisição.
+					*
+					* <p>
+					* O cache é lido em lote e apenas os nomes ausentes são buscados na API externa, em paralelo.
+					* A resposta é um objeto JSON com um campo por nome, cujo valor é o corpo armazenado em cache, escrito
+					* direto na resposta, ou {@code null} se o pokémon não foi encontrado ou não pôde ser buscado, por exemplo
+					* com a API externa saturada. Os nomes são lidos por {@link RateLimitPipeline#items(java.util.Collection)}, que
+					* separa as vírgulas de todos os valores e descarta os nomes em branco. O rate limit consome um token por nome,
+					* em uma única operação (ver {@link RateLimitCost}); por isso a capacidade do bucket cobre um lote de
+					* {@code batch.max-size} nomes, com o mesmo refil por nome da busca individual.
+					* </p>
+					*
+					* @param nomes nomes dos pokémons, separados por vírgula ou em parâmetros repetidos, no máximo {@code batch.max-size}
+					* @param response resposta HTTP
+					* @throws IOException se houver erro ao escrever no corpo da resposta
+					*/
+				@GetMapping("/pokemon/batch")
+				@RateLimited(maxCapacity = 50,initialTokens = 50 ,tokensPerTimeWindow = 2, scope = "IP")
+				public void getPokemonBatch(@RequestParam(name = "nomes") @RateLimitCost List<String> nomes, HttpServletResponse response) throws IOException{
+								List<String> names = RateLimitPipeline.items(nomes);
+								if(names.size() > batchMaxSize){
+												throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No máximo " + batchMaxSize + " nomes por requisição");
+								}
+								Map<String, CachedResponse> results = servicoApi.getAll(names);
+								response.setStatus(HttpStatus.OK.value());
+								response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+								ServletOutputStream outputStream = response.getOutputStream();
+								outputStream.write('{');
+								boolean first = true;
+								for(Map.Entry<String, CachedResponse> result : results.entrySet()){
+												if(!first){
+																outputStream.write(',');
+												}
+												first = false;
+												outputStream.write('"');
+												outputStream.write(JsonStringEncoder.getInstance().quoteAsUTF8(result.getKey()));
+												outputStream.write('"');
+												outputStream.write(':');
+												outputStream.write(result.getValue() != null ? result.getValue().body() : NULL_JSON);
+								}
+								outputStream.write('}');
 				}
 }
@@ -0,0 +1,156 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+	* Cache que lê e grava várias chaves em uma única operação.
+	*
+	* <p>
+	* Implementado pelo {@link BatchRedisCache}, que usa um único {@code MGET} e grava em pipeline, e pelos
+	* decorators {@link TwoLevelCache} e {@link CoalescingCache}, que repassam ao nível seguinte apenas o que
+	* não conseguem resolver. Caches que não implementam a interface são atendidos chave a chave
+	* por {@link #getAllFrom(Cache, Collection)}, {@link #putAllInto(Cache, Map)} e {@link #loadAllFrom(Cache, Collection, Function)}.
+	* </p>
+	*/
+public interface BatchCache {
+
+				/**
+					* Lê várias chaves de uma vez.
+					*
+					* @param keys chaves a serem lidas
+					* @return valores encontrados, por chave; chaves ausentes não aparecem no mapa
+					*/
+				Map<Object, Object> getAll(Collection<?> keys);
+
+				/**
+					* Grava vários valores de uma vez.
+					*
+					* @param values valores a serem gravados, por chave
+					*/
+				void putAll(Map<?, ?> values);
+
+				/**
+					* Carrega várias chaves ausentes e grava os valores carregados em um único lote.
+					*
+					* <p>
+					* As cargas são disparadas juntas e a thread espera todas terminarem. A implementação padrão não coordena
+					* cargas concorrentes da mesma chave; o {@link CoalescingCache} as deduplica como faz em {@code get(key, valueLoader)}.
+					* </p>
+					*
+					* @param keys chaves a serem carregadas
+					* @param loader carga assíncrona de uma chave; um resultado {@code null} não é gravado
+					* @return valores carregados, por chave; chaves cuja carga falhou ou devolveu {@code null} não aparecem no mapa
+					*/
+				default Map<Object, Object> loadAll(Collection<?> keys, Function<Object, CompletableFuture<?>> loader) {
+								Map<Object, Object> values = awaitAll(startAll(keys, loader));
+								if(!values.isEmpty()){
+												putAll(values);
+								}
+								return values;
+				}
+
+				/**
+					* Lê várias chaves do cache, em lote se ele implementar {@link BatchCache}.
+					*
+					* @param cache cache consultado
+					* @param keys chaves a serem lidas
+					* @return valores encontrados, por chave
+					*/
+				static Map<Object, Object> getAllFrom(Cache cache, Collection<?> keys) {
+								if(cache instanceof BatchCache batchCache){
+												return batchCache.getAll(keys);
+								}
+								Map<Object, Object> values = new LinkedHashMap<>();
+								for(Object key : keys){
+												Cache.ValueWrapper cached = cache.get(key);
+												if(cached != null && cached.get() != null){
+																values.put(key, cached.get());
+												}
+								}
+								return values;
+				}
+
+				/**
+					* Carrega várias chaves ausentes e as grava no cache, em lote se ele implementar {@link BatchCache}.
+					*
+					* @param cache cache de destino
+					* @param keys chaves a serem carregadas
+					* @param loader carga assíncrona de uma chave
+					* @return valores carregados, por chave
+					*/
+				static Map<Object, Object> loadAllFrom(Cache cache, Collection<?> keys, Function<Object, CompletableFuture<?>> loader) {
+								if(cache instanceof BatchCache batchCache){
+												return batchCache.loadAll(keys, loader);
+								}
+								Map<Object, Object> values = awaitAll(startAll(keys, loader));
+								values.forEach(cache::put);
+								return values;
+				}
+
+				/**
+					* Dispara a carga de cada chave. Uma falha síncrona do {@code loader} vira uma carga falha.
+					*
+					* @param keys chaves a serem carregadas
+					* @param loader carga assíncrona de uma chave
+					* @return carga de cada chave
+					*/
+				static Map<Object, CompletableFuture<?>> startAll(Collection<?> keys, Function<Object, CompletableFuture<?>> loader) {
+								Map<Object, CompletableFuture<?>> loads = new LinkedHashMap<>();
+								for(Object key : keys){
+												CompletableFuture<?> load;
+												try {
+																load = loader.apply(key);
+												} catch (RuntimeException e) {
+																load = CompletableFuture.failedFuture(e);
+												}
+												loads.put(key, load);
+								}
+								return loads;
+				}
+
+				/**
+					* Espera as cargas e reúne os valores das que terminaram com sucesso e sem {@code null}.
+					*
+					* @param loads carga de cada chave
+					* @return valores carregados, por chave
+					*/
+				static Map<Object, Object> awaitAll(Map<?, ? extends CompletableFuture<?>> loads) {
+								Map<Object, Object> values = new LinkedHashMap<>();
+								loads.forEach((key, load) -> {
+												try {
+																Object value = load.join();
+																if(value != null){
+																				values.put(key, value);
+																}
+												} catch (CompletionException | CancellationException e) {
+																// quem fornece a carga decide como tratar as falhas; aqui a chave só fica fora do mapa
+												}
+								});
+								return values;
+				}
+
+				/**
+					* Grava vários valores no cache, em lote se ele implementar {@link BatchCache}.
+					*
+					* @param cache cache de destino
+					* @param values valores a serem gravados, por chave
+					*/
+				static void putAllInto(Cache cache, Map<?, ?> values) {
+								if(values.isEmpty()){
+												return;
+								}
+								if(cache instanceof BatchCache batchCache){
+												batchCache.putAll(values);
+												return;
+								}
+								values.forEach(cache::put);
+				}
+}
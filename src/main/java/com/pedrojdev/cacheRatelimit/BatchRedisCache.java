@@ -0,0 +1,154 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+	* {@link RedisCache} com leitura e escrita em lote.
+	*
+	* <p>
+	* {@link #getAll(Collection)} busca todas as chaves em um único {@code MGET} e {@link #putAll(Map)} grava todos os
+	* valores em um pipeline de {@code SET ... PX}, cada um com o TTL da configuração do cache. Chaves, prefixo e
+	* serialização dos valores são os mesmos das operações individuais do {@link RedisCache}.
+	* </p>
+	*
+	* <p>
+	* {@link #getAllWithTtl(Collection)} lê as chaves junto com o tempo de vida restante de cada uma, no mesmo round trip,
+	* para que um near-cache na frente do Redis não guarde a entrada por mais tempo que ele.
+	* </p>
+	*/
+public class BatchRedisCache extends RedisCache implements BatchCache {
+
+				private final RedisConnectionFactory connectionFactory;
+
+				/**
+					* Construtor do cache.
+					*
+					* @param name nome do cache
+					* @param cacheWriter writer usado pelas operações individuais
+					* @param cacheConfiguration configuração do cache
+					* @param connectionFactory fábrica de conexões usada pelas operações em lote
+					*/
+				protected BatchRedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfiguration,
+																				RedisConnectionFactory connectionFactory) {
+								super(name, cacheWriter, cacheConfiguration);
+								this.connectionFactory = connectionFactory;
+				}
+
+				@Override
+				public Map<Object, Object> getAll(Collection<?> keys) {
+								Map<Object, Object> values = new LinkedHashMap<>();
+								if(keys.isEmpty()){
+												return values;
+								}
+								List<Object> keyList = new ArrayList<>(keys);
+								byte[][] redisKeys = new byte[keyList.size()][];
+								for(int i = 0; i < redisKeys.length; i++){
+												redisKeys[i] = serializeCacheKey(createCacheKey(keyList.get(i)));
+								}
+								List<byte[]> cached;
+								try (RedisConnection connection = connectionFactory.getConnection()) {
+												cached = connection.stringCommands().mGet(redisKeys);
+								}
+								if(cached == null){
+												return values;
+								}
+								for(int i = 0; i < redisKeys.length; i++){
+												byte[] bytes = cached.get(i);
+												Object value = bytes != null ? fromStoreValue(deserializeCacheValue(bytes)) : null;
+												if(value != null){
+																values.put(keyList.get(i), value);
+												}
+								}
+								return values;
+				}
+
+				/**
+					* Lê várias chaves com um {@code MGET} e o {@code PTTL} de cada uma, em um único pipeline.
+					*
+					* @param keys chaves a serem lidas
+					* @return valor e tempo de vida restante das chaves encontradas
+					*/
+				@SuppressWarnings("unchecked")
+				public Map<Object, TimedValue> getAllWithTtl(Collection<?> keys) {
+								Map<Object, TimedValue> values = new LinkedHashMap<>();
+								if(keys.isEmpty()){
+												return values;
+								}
+								List<Object> keyList = new ArrayList<>(keys);
+								byte[][] redisKeys = new byte[keyList.size()][];
+								for(int i = 0; i < redisKeys.length; i++){
+												redisKeys[i] = serializeCacheKey(createCacheKey(keyList.get(i)));
+								}
+								List<Object> results;
+								try (RedisConnection connection = connectionFactory.getConnection()) {
+												connection.openPipeline();
+												try {
+																connection.stringCommands().mGet(redisKeys);
+																for(byte[] redisKey : redisKeys){
+																				connection.keyCommands().pTtl(redisKey);
+																}
+												} finally {
+																results = connection.closePipeline();
+												}
+								}
+								List<byte[]> cached = (List<byte[]>) results.get(0);
+								if(cached == null){
+												return values;
+								}
+								for(int i = 0; i < redisKeys.length; i++){
+												byte[] bytes = cached.get(i);
+												Object value = bytes != null ? fromStoreValue(deserializeCacheValue(bytes)) : null;
+												if(value != null){
+																Long ttlMillis = (Long) results.get(i + 1);
+																Duration ttl = ttlMillis == null || ttlMillis == -1 ? null : Duration.ofMillis(Math.max(0, ttlMillis));
+																values.put(keyList.get(i), new TimedValue(value, ttl));
+												}
+								}
+								return values;
+				}
+
+				@Override
+				public void putAll(Map<?, ?> values) {
+								if(values.isEmpty()){
+												return;
+								}
+								try (RedisConnection connection = connectionFactory.getConnection()) {
+												connection.openPipeline();
+												try {
+																values.forEach((key, value) -> {
+																				if(value == null){
+																								return;
+																				}
+																				Duration ttl = getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+																				Expiration expiration = ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl);
+																				connection.stringCommands().set(serializeCacheKey(createCacheKey(key)), serializeCacheValue(value),
+																																				expiration, RedisStringCommands.SetOption.upsert());
+																});
+												} finally {
+																connection.closePipeline();
+												}
+								}
+				}
+
+				/**
+					* Valor lido do Redis e o tempo de vida restante da chave.
+					*
+					* @param value valor armazenado
+					* @param ttl tempo de vida restante, ou {@code null} se a chave não expira
+					*/
+				public record TimedValue(Object value, Duration ttl) {
+				}
+}
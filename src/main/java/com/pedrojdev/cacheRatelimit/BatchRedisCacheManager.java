@@ -0,0 +1,32 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+	* {@link RedisCacheManager} que cria caches {@link BatchRedisCache}.
+	*/
+public class BatchRedisCacheManager extends RedisCacheManager {
+
+				private final RedisConnectionFactory connectionFactory;
+
+				/**
+					* Construtor do gerenciador.
+					*
+					* @param connectionFactory fábrica de conexões Redis
+					* @param defaultCacheConfiguration configuração usada por todos os caches
+					*/
+				public BatchRedisCacheManager(RedisConnectionFactory connectionFactory, RedisCacheConfiguration defaultCacheConfiguration) {
+								super(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), defaultCacheConfiguration);
+								this.connectionFactory = connectionFactory;
+				}
+
+				@Override
+				protected RedisCache createRedisCache(String name, RedisCacheConfiguration cacheConfiguration) {
+								return new BatchRedisCache(name, getCacheWriter(), cacheConfiguration != null ? cacheConfiguration : getDefaultCacheConfiguration(),
+																								connectionFactory);
+				}
+}
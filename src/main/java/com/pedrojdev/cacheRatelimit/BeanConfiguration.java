@@ -1,29 +1,50 @@
 package com.pedrojdev.cacheRatelimit;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
 import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.ClientOptions;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.TimeoutOptions;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.Filter;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.util.StreamUtils;
 
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
@@ -33,9 +54,18 @@ import java.util.function.Supplier;
 	* Configura:
 	* <ul>
 	*     <li>Cache Redis com TTL configurável</li>
+	*     <li>Near-cache em memória na frente do Redis, invalidado via pub/sub</li>
+	*     <li>Carregamento único por chave (single-flight) nas faltas de cache</li>
+	*     <li>Admissão por frequência no cache e cache curto das respostas 404</li>
+	*     <li>Contagem das chaves mais acessadas e aquecimento do cache na inicialização</li>
+	*     <li>Métricas do cache, da API externa, do rate limit e dos comandos Lettuce no Micrometer</li>
+	*     <li>Cliente HTTP da API externa, com pool de conexões, timeouts e hedge opcional</li>
+	*     <li>Limite adaptativo de chamadas simultâneas à API externa</li>
 	*     <li>Filter de rate limiting via Bucket4j para endpoints específicos</li>
 	*     <li>ProxyManager do Bucket4j para integração com Redis</li>
 	*     <li>Supplier de BucketConfiguration com regras de rate limit</li>
+	*     <li>Registro das regras de rate limit compiladas a partir de {@link RateLimited}</li>
+	*     <li>Timeout e circuit breaker das chamadas de rate limit ao Redis, com buckets locais de contingência</li>
 	* </ul>
 	* </p>
 	*/
@@ -59,23 +89,668 @@ public class BeanConfiguration {
 				@Value("${spring.data.redis.port}")
 				private String redisPort;
 
+				/**
+					* Codificação dos valores do cache que não são {@link CachedResponse}: {@code smile} ou {@code json}.
+					*/
+				@Value("${cache-codec.format:smile}")
+				private String cacheCodecFormat;
+
+				/**
+					* Tamanho mínimo, em bytes, a partir do qual os valores do cache são comprimidos. Zero desliga a compressão.
+					*/
+				@Value("${cache-codec.compression-threshold-bytes:512}")
+				private int cacheCodecCompressionThreshold;
+
+				/**
+					* Nível de compressão do Deflate, de 1 a 9.
+					*/
+				@Value("${cache-codec.compression-level:6}")
+				private int cacheCodecCompressionLevel;
+
+				/**
+					* Dicionário de compressão no classpath. Vazio desliga o uso de dicionário.
+					*/
+				@Value("${cache-codec.dictionary:codec/pokemon-dictionary.txt}")
+				private String cacheCodecDictionary;
+
+				/**
+					* URL base da API externa.
+					*/
+				@Value("${api-url}")
+				private String apiUrl;
+
+				/**
+					* Habilita o near-cache em memória (L1) na frente do cache Redis.
+					*/
+				@Value("${near-cache.enabled:true}")
+				private boolean nearCacheEnabled;
+
+				/**
+					* Número máximo de entradas do near-cache. Usado quando {@code near-cache.maximum-weight} é zero.
+					*/
+				@Value("${near-cache.maximum-size:10000}")
+				private long nearCacheMaximumSize;
+
+				/**
+					* Peso máximo (bytes estimados) do near-cache. Quando maior que zero, substitui o limite por quantidade.
+					*/
+				@Value("${near-cache.maximum-weight:0}")
+				private long nearCacheMaximumWeight;
+
+				/**
+					* Canal pub/sub do Redis usado para invalidar os near-caches das outras instâncias.
+					*/
+				@Value("${near-cache.invalidation-channel:cache-invalidation}")
+				private String invalidationChannel;
+
+				/**
+					* Habilita a admissão por frequência: só são gravadas no cache as chaves acessadas várias vezes.
+					*
+					* <p>
+					* Desligada por padrão: a admissão descarta a primeira carga de toda chave nova, mesmo com o cache vazio, e o
+					* L1 Caffeine já aplica a sua própria admissão W-TinyLFU. Só compensa quando varreduras de nomes aleatórios
+					* estão expulsando as entradas quentes do Redis.
+					* </p>
+					*/
+				@Value("${cache-admission.enabled:false}")
+				private boolean admissionEnabled;
+
+				/**
+					* Quantidade mínima de acessos a uma chave, na janela do sketch, para que ela seja gravada no cache.
+					*/
+				@Value("${cache-admission.min-frequency:2}")
+				private int admissionMinFrequency;
+
+				/**
+					* Quantidade esperada de chaves distintas por cache, usada no tamanho do sketch de frequência.
+					*/
+				@Value("${cache-admission.expected-keys:100000}")
+				private long admissionExpectedKeys;
+
+				/**
+					* Tempo de vida em segundos das respostas 404 da API externa no cache.
+					*/
+				@Value("${negative-cache.ttl-seconds:30}")
+				private long negativeCacheTtlSeconds;
+
+				/**
+					* Segredo exigido no header {@code X-Admin-Token} pelos endpoints administrativos. Vazio os desliga.
+					*/
+				@Value("${admin.token:}")
+				private String adminToken;
+
+				/**
+					* Habilita a contagem das chaves mais acessadas, gravadas na lista usada no aquecimento do cache.
+					*/
+				@Value("${hot-keys.enabled:true}")
+				private boolean hotKeysEnabled;
+
+				/**
+					* Quantidade de chaves mais acessadas mantidas e gravadas na lista.
+					*/
+				@Value("${hot-keys.top-n:1000}")
+				private int hotKeysTopN;
+
+				/**
+					* Intervalo, em segundos, entre as gravações da lista de chaves mais acessadas.
+					*/
+				@Value("${hot-keys.snapshot-interval-seconds:60}")
+				private long hotKeysSnapshotIntervalSeconds;
+
+				/**
+					* Arquivo local da lista de chaves mais acessadas; vazio grava a lista no Redis.
+					*/
+				@Value("${hot-keys.snapshot-file:}")
+				private String hotKeysSnapshotFile;
+
+				/**
+					* Tempo de vida, em horas, da lista de chaves mais acessadas no Redis.
+					*/
+				@Value("${hot-keys.snapshot-ttl-hours:168}")
+				private long hotKeysSnapshotTtlHours;
+
+				/**
+					* Carrega as chaves da lista no cache logo depois que a aplicação fica pronta.
+					*/
+				@Value("${hot-keys.warm.enabled:true}")
+				private boolean warmEnabled;
+
+				/**
+					* Quantidade máxima de chaves carregadas por segundo no aquecimento.
+					*/
+				@Value("${hot-keys.warm.keys-per-second:50}")
+				private double warmKeysPerSecond;
+
+				/**
+					* Quantidade de chaves carregadas em cada lote do aquecimento.
+					*/
+				@Value("${hot-keys.warm.batch-size:25}")
+				private int warmBatchSize;
+
+				/**
+					* Coordena o carregamento de chaves entre instâncias com um lock curto no Redis,
+					* além da deduplicação local que está sempre ativa.
+					*/
+				@Value("${single-flight.distributed-lock:false}")
+				private boolean singleFlightDistributedLock;
+
+				/**
+					* Tempo máximo de vida, em milissegundos, do lock de carregamento no Redis.
+					*/
+				@Value("${single-flight.lock-ttl-ms:5000}")
+				private long singleFlightLockTtlMillis;
+
+				/**
+					* Intervalo, em milissegundos, entre as consultas ao cache enquanto outra instância carrega a chave.
+					*/
+				@Value("${single-flight.poll-interval-ms:50}")
+				private long singleFlightPollIntervalMillis;
+
+				/**
+					* Habilita o modo refresh-ahead / stale-while-revalidate do cache.
+					*/
+				@Value("${refresh-ahead.enabled:false}")
+				private boolean refreshAheadEnabled;
+
+				/**
+					* Janela, em segundos, antes do vencimento em que uma leitura dispara a atualização em segundo plano.
+					*/
+				@Value("${refresh-ahead.window-seconds:10}")
+				private long refreshAheadWindowSeconds;
+
+				/**
+					* Tempo, em segundos, após o vencimento em que a entrada ainda pode ser servida como dado vencido.
+					*/
+				@Value("${refresh-ahead.stale-grace-seconds:300}")
+				private long refreshAheadStaleGraceSeconds;
+
+				/**
+					* Espera máxima, em milissegundos, pela atualização antes de servir um valor vencido.
+					*/
+				@Value("${refresh-ahead.stale-wait-ms:200}")
+				private long refreshAheadStaleWaitMillis;
+
+				/**
+					* Quantidade de threads dedicadas às atualizações em segundo plano.
+					*/
+				@Value("${refresh-ahead.threads:4}")
+				private int refreshAheadThreads;
+
+				/**
+					* Motor de rate limit: {@code bucket4j} (compare-and-swap via ProxyManager) ou {@code lua} (script atômico).
+					*/
+				@Value("${rate-limit.engine:bucket4j}")
+				private String rateLimitEngine;
+
+				/**
+					* Habilita a reserva local de lotes de tokens (leasing), evitando um round trip ao Redis por requisição.
+					*/
+				@Value("${rate-limit.lease.enabled:false}")
+				private boolean leaseEnabled;
+
+				/**
+					* Fração da capacidade do bucket reservada por lote. Valores maiores reduzem as chamadas ao Redis
+					* e aumentam a imprecisão do limite entre instâncias.
+					*/
+				@Value("${rate-limit.lease.capacity-fraction:0.1}")
+				private double leaseCapacityFraction;
+
+				/**
+					* Tamanho máximo de um lote de tokens.
+					*/
+				@Value("${rate-limit.lease.max-batch:50}")
+				private long leaseMaxBatch;
+
+				/**
+					* Tempo de vida, em milissegundos, de um lote; depois disso os tokens não usados voltam para o Redis.
+					*/
+				@Value("${rate-limit.lease.ttl-ms:1000}")
+				private long leaseTtlMillis;
+
+				/**
+					* Quantidade de stripes em que o bucket do escopo {@code GLOBAL} é dividido. Com 1, o bucket não é dividido.
+					*/
+				@Value("${rate-limit.global.stripes:1}")
+				private int globalStripes;
+
+				/**
+					* Quantidade de stripes vizinhas consultadas quando a stripe escolhida está sem tokens.
+					*/
+				@Value("${rate-limit.global.borrow-attempts:2}")
+				private int globalBorrowAttempts;
+
+				/**
+					* Memoriza localmente as rejeições até o próximo refil, evitando consultar o Redis para clientes já bloqueados.
+					*/
+				@Value("${rate-limit.deny-cache.enabled:true}")
+				private boolean denyCacheEnabled;
+
+				/**
+					* Quantidade máxima de chaves bloqueadas mantidas no deny-cache.
+					*/
+				@Value("${rate-limit.deny-cache.maximum-size:100000}")
+				private long denyCacheMaximumSize;
+
+				/**
+					* Quantidade máxima de proxies de bucket do Bucket4j mantidos em memória por regra.
+					*/
+				@Value("${rate-limit.proxy-cache.maximum-size:10000}")
+				private long proxyCacheMaximumSize;
+
+				/**
+					* Arquivo de propriedades com sobrescritas das regras de rate limit. Vazio desliga as sobrescritas.
+					*/
+				@Value("${rate-limit.rules.overrides-file:}")
+				private String rulesOverridesFile;
+
+				/**
+					* Intervalo, em milissegundos, entre as verificações do arquivo de sobrescritas.
+					*/
+				@Value("${rate-limit.rules.reload-interval-ms:5000}")
+				private long rulesReloadIntervalMillis;
+
+				/**
+					* Protege as requisições de um Redis lento ou fora do ar com timeout, circuit breaker e buckets locais.
+					*/
+				@Value("${rate-limit.resilience.enabled:true}")
+				private boolean resilienceEnabled;
+
+				/**
+					* Tempo máximo, em milissegundos, de um comando de rate limit no Redis.
+					*/
+				@Value("${rate-limit.resilience.timeout-ms:100}")
+				private long resilienceTimeoutMillis;
+
+				/**
+					* Duração, em milissegundos, a partir da qual uma chamada bem-sucedida conta como falha para o circuit breaker.
+					*/
+				@Value("${rate-limit.resilience.slow-call-ms:50}")
+				private long resilienceSlowCallMillis;
+
+				/**
+					* Fração de chamadas com falha ou lentas, entre as últimas {@code window-size}, que abre o circuito.
+					*/
+				@Value("${rate-limit.resilience.failure-rate-threshold:0.5}")
+				private double resilienceFailureRateThreshold;
+
+				/**
+					* Quantidade de chamadas consideradas pelo circuit breaker.
+					*/
+				@Value("${rate-limit.resilience.window-size:50}")
+				private int resilienceWindowSize;
+
+				/**
+					* Quantidade mínima de chamadas antes de o circuit breaker avaliar a taxa de falhas.
+					*/
+				@Value("${rate-limit.resilience.minimum-calls:10}")
+				private int resilienceMinimumCalls;
+
+				/**
+					* Tempo, em milissegundos, em que o circuito fica aberto antes de testar o Redis de novo.
+					*/
+				@Value("${rate-limit.resilience.open-duration-ms:5000}")
+				private long resilienceOpenDurationMillis;
+
+				/**
+					* Intervalo, em milissegundos, entre os heartbeats que estimam a quantidade de instâncias.
+					*/
+				@Value("${rate-limit.resilience.heartbeat-interval-ms:5000}")
+				private long resilienceHeartbeatIntervalMillis;
+
+				/**
+					* Quantidade máxima de buckets locais por regra enquanto o Redis está indisponível.
+					*/
+				@Value("${rate-limit.resilience.maximum-local-buckets:100000}")
+				private long resilienceMaximumLocalBuckets;
+
+				/**
+					* Comportamento do bucket da API key enquanto o Redis está indisponível: {@code LOCAL}, {@code ALLOW} ou {@code DENY}.
+					*/
+				@Value("${rate-limit.resilience.api-key-fallback:LOCAL}")
+				private RateLimitFallback apiKeyFallback;
+
+				/**
+					* Tempo em milissegundos que o estado de um bucket do Bucket4j permanece no Redis depois de o bucket voltar a estar cheio.
+					*/
+				@Value("${rate-limit.bucket-expiry.keep-after-refill-ms:5000}")
+				private long bucketKeepAfterRefillMillis;
+
+				/**
+					* Limite inicial de chamadas simultâneas à API externa.
+					*/
+				@Value("${upstream.concurrency.initial-limit:20}")
+				private int upstreamInitialLimit;
+
+				/**
+					* Limite mínimo de chamadas simultâneas à API externa.
+					*/
+				@Value("${upstream.concurrency.min-limit:4}")
+				private int upstreamMinLimit;
+
+				/**
+					* Limite máximo de chamadas simultâneas à API externa. Igual a {@code upstream.concurrency.min-limit} fixa o limite.
+					*/
+				@Value("${upstream.concurrency.max-limit:200}")
+				private int upstreamMaxLimit;
+
+				/**
+					* Quanto a latência da API externa pode crescer em relação à latência sem fila antes de o limite diminuir.
+					*/
+				@Value("${upstream.concurrency.tolerance:1.5}")
+				private double upstreamTolerance;
+
+				/**
+					* Peso de cada novo cálculo do limite de chamadas simultâneas, de 0 a 1.
+					*/
+				@Value("${upstream.concurrency.smoothing:0.2}")
+				private double upstreamSmoothing;
+
+				/**
+					* Quantidade de chamadas em cada janela da latência mínima da API externa, usada como latência sem fila.
+					*/
+				@Value("${upstream.concurrency.rtt-window:100}")
+				private int upstreamRttWindow;
+
+				/**
+					* Quantidade máxima de requisições esperando uma vaga para chamar a API externa.
+					*/
+				@Value("${upstream.concurrency.queue-size:16}")
+				private int upstreamQueueSize;
+
+				/**
+					* Tempo máximo em milissegundos de espera por uma vaga para chamar a API externa.
+					*/
+				@Value("${upstream.concurrency.max-wait-ms:50}")
+				private long upstreamMaxWaitMillis;
+
+				/**
+					* Versão HTTP preferida nas chamadas à API externa: {@code HTTP_2}, com volta automática para HTTP/1.1, ou {@code HTTP_1_1}.
+					*/
+				@Value("${upstream.http.version:HTTP_2}")
+				private HttpClient.Version upstreamHttpVersion;
+
+				/**
+					* Tempo máximo em milissegundos para abrir uma conexão com a API externa.
+					*/
+				@Value("${upstream.http.connect-timeout-ms:1000}")
+				private long upstreamConnectTimeoutMillis;
+
+				/**
+					* Tempo máximo em milissegundos de cada requisição à API externa.
+					*/
+				@Value("${upstream.http.request-timeout-ms:3000}")
+				private long upstreamRequestTimeoutMillis;
+
+				/**
+					* Habilita as requisições de hedge nas chamadas à API externa.
+					*/
+				@Value("${upstream.hedging.enabled:false}")
+				private boolean hedgingEnabled;
+
+				/**
+					* Percentil da latência da API externa usado como atraso das requisições de hedge.
+					*/
+				@Value("${upstream.hedging.percentile:0.95}")
+				private double hedgingPercentile;
+
+				/**
+					* Atraso mínimo em milissegundos das requisições de hedge.
+					*/
+				@Value("${upstream.hedging.min-delay-ms:10}")
+				private long hedgingMinDelayMillis;
+
+				/**
+					* Quantidade de latências da API externa consideradas no percentil do hedge.
+					*/
+				@Value("${upstream.hedging.window-size:200}")
+				private int hedgingWindowSize;
+
 
 				/**
 					* Configura o {@link CacheManager} com Redis, incluindo TTL e serialização.
 					*
+					* <p>
+					* Com {@code near-cache.enabled}, os caches Redis são envolvidos por um {@link TwoLevelCacheManager},
+					* que mantém um L1 Caffeine limitado por quantidade ou por peso, que nunca guarda uma entrada por mais tempo que o Redis.
+					* </p>
+					*
+					* <p>
+					* Com {@code cache-admission.enabled}, os caches são envolvidos por um {@link AdmissionCacheManager}, que só
+					* grava as chaves acessadas pelo menos {@code cache-admission.min-frequency} vezes; varreduras de nomes
+					* aleatórios não expulsam as entradas quentes. O marcador {@link CachedResponse#NOT_FOUND} fica no Redis e no
+					* near-cache por apenas {@code negative-cache.ttl-seconds}.
+					* </p>
+					*
+					* <p>
+					* Os caches são envolvidos por um {@link CoalescingCacheManager}, que garante um único
+					* carregamento por chave para os métodos {@code @Cacheable(sync = true)}. Com {@code refresh-ahead.enabled},
+					* as entradas ficam no Redis pelo TTL mais o período de graça e são atualizadas em segundo plano.
+					* </p>
+					*
+					* <p>
+					* Com {@code hot-keys.enabled}, o cache de pokémons é envolvido por um {@link HotKeyCacheManager}, que
+					* conta os acessos a cada chave para o {@link CacheWarmer}. Por fim, o {@link MeteredCacheManager} publica
+					* acertos, faltas, cargas e o tempo das leituras de cada cache.
+					* </p>
+					*
+					* <p>
+					* Os caches Redis são {@link BatchRedisCache}, que também leem e gravam várias chaves em um único round trip.
+					* Os valores são gravados pelo {@link CompactValueRedisSerializer}: {@link CachedResponse} como bytes opacos,
+					* os demais em Smile, comprimidos a partir de um tamanho mínimo. O prefixo das chaves inclui a versão do formato ({@code v2}), para que
+					* entradas gravadas no formato antigo não sejam lidas como {@link CachedResponse}.
+					* </p>
+					*
 					* @param redisConnectionFactory fábrica de conexão Redis
+					* @param cacheInvalidationBus barramento de invalidação dos near-caches
+					* @param stringRedisTemplate template usado pelo lock de carregamento distribuído
+					* @param cacheValueSerializer serializador dos valores do cache
+					* @param hotKeyTracker contagem dos acessos às chaves do cache de pokémons
+					* @param meterRegistry registro das métricas dos caches
 					* @return CacheManager configurado
 					*/
 				@Bean
-				public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory){
+				public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, CacheInvalidationBus cacheInvalidationBus,
+												StringRedisTemplate stringRedisTemplate, CompactValueRedisSerializer cacheValueSerializer, HotKeyTracker hotKeyTracker,
+												MeterRegistry meterRegistry){
+								RefreshAheadPolicy refreshPolicy = refreshAheadEnabled ? refreshAheadPolicy() : null;
+								Duration storageTtl = refreshPolicy != null ? refreshPolicy.storageTtl() : Duration.ofSeconds(ttlSeconds);
+
 								RedisCacheConfiguration cacheConfiguration  = RedisCacheConfiguration.defaultCacheConfig()
-																.entryTtl(Duration.ofSeconds(ttlSeconds))
+																.entryTtl((key, value) -> entryTtl(value, storageTtl))
+																.computePrefixWith(cacheName -> cacheName + "::v2::")
 																.serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new org.springframework.data.redis.serializer.StringRedisSerializer()))
-																.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+																.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cacheValueSerializer))
 																.disableCachingNullValues();
 
-								return RedisCacheManager.builder(redisConnectionFactory).cacheDefaults(cacheConfiguration).build();
+								RedisCacheManager redisCacheManager = new BatchRedisCacheManager(redisConnectionFactory, cacheConfiguration);
+								redisCacheManager.initializeCaches();
+								CacheManager cacheManager = nearCacheEnabled
+																? new TwoLevelCacheManager(redisCacheManager, () -> nearCacheBuilder(storageTtl), cacheInvalidationBus)
+																: redisCacheManager;
+								if(admissionEnabled){
+												cacheManager = new AdmissionCacheManager(cacheManager, admissionExpectedKeys, admissionMinFrequency);
+								}
+								CacheLoadLock loadLock = singleFlightDistributedLock
+																? new CacheLoadLock(stringRedisTemplate, Duration.ofMillis(singleFlightLockTtlMillis), singleFlightPollIntervalMillis)
+																: null;
+								cacheManager = new CoalescingCacheManager(cacheManager, loadLock, refreshPolicy);
+								if(hotKeysEnabled){
+												cacheManager = new HotKeyCacheManager(cacheManager, Map.of(ServicoApi.CACHE_NAME, hotKeyTracker));
+								}
+								return new MeteredCacheManager(cacheManager, meterRegistry);
+
+				}
+
+				/**
+					* Cria a contagem das chaves mais acessadas do cache de pokémons.
+					*
+					* @return HotKeyTracker configurado
+					*/
+				@Bean
+				public HotKeyTracker hotKeyTracker(){
+								return new HotKeyTracker(hotKeysTopN, admissionExpectedKeys);
+				}
 
+				/**
+					* Cria o aquecedor do cache de pokémons, que grava periodicamente a lista das chaves mais acessadas e a carrega
+					* no cache quando a aplicação fica pronta.
+					*
+					* @param hotKeyTracker contagem dos acessos às chaves
+					* @param servicoApi serviço usado para carregar as chaves
+					* @param stringRedisTemplate template usado para gravar a lista no Redis
+					* @return CacheWarmer configurado
+					*/
+				@Bean(destroyMethod = "close")
+				public CacheWarmer cacheWarmer(HotKeyTracker hotKeyTracker, ServicoApi servicoApi, StringRedisTemplate stringRedisTemplate){
+								Path snapshotFile = hotKeysSnapshotFile.isBlank() ? null : Path.of(hotKeysSnapshotFile);
+								return new CacheWarmer(hotKeyTracker, servicoApi, stringRedisTemplate, ServicoApi.CACHE_NAME + "::hot-keys", snapshotFile,
+																Duration.ofHours(hotKeysSnapshotTtlHours), Duration.ofSeconds(hotKeysSnapshotIntervalSeconds), hotKeysTopN,
+																warmEnabled, warmKeysPerSecond, warmBatchSize);
+				}
+
+				/**
+					* Tempo de vida de um valor do cache: {@code negative-cache.ttl-seconds} para o marcador
+					* {@link CachedResponse#NOT_FOUND}, limitado a {@code ttl}, e {@code ttl} para os demais.
+					*
+					* @param value valor gravado, possivelmente dentro de um {@link CacheEntry}
+					* @param ttl tempo de vida dos valores encontrados
+					* @return tempo de vida do valor
+					*/
+				private Duration entryTtl(Object value, Duration ttl){
+								Object content = value instanceof CacheEntry entry ? entry.value() : value;
+								if(content instanceof CachedResponse response && response.isNotFound()){
+												Duration negativeTtl = Duration.ofSeconds(negativeCacheTtlSeconds);
+												return negativeTtl.compareTo(ttl) < 0 ? negativeTtl : ttl;
+								}
+								return ttl;
+				}
+
+				/**
+					* Gera as chaves do cache de pokémons a partir do nome normalizado (ver {@link ServicoApi#normalize(String)}),
+					* para que variações de maiúsculas e espaços do mesmo nome ocupem uma única entrada.
+					*
+					* @return KeyGenerator usado por {@link ServicoApi#get(String)}
+					*/
+				@Bean
+				public KeyGenerator pokemonKeyGenerator(){
+								return (target, method, params) -> ServicoApi.normalize((String) params[0]);
+				}
+
+				/**
+					* Cria as regras do modo refresh-ahead, com um pool de threads daemon para as atualizações.
+					*
+					* @return RefreshAheadPolicy configurada
+					*/
+				private RefreshAheadPolicy refreshAheadPolicy(){
+								AtomicInteger threadCount = new AtomicInteger();
+								ThreadPoolExecutor executor = new ThreadPoolExecutor(refreshAheadThreads, refreshAheadThreads,
+																60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1000), runnable -> {
+																				Thread thread = new Thread(runnable, "refresh-ahead-" + threadCount.incrementAndGet());
+																				thread.setDaemon(true);
+																				return thread;
+																});
+								executor.allowCoreThreadTimeOut(true);
+								return new RefreshAheadPolicy(Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(refreshAheadWindowSeconds),
+																Duration.ofSeconds(refreshAheadStaleGraceSeconds), Duration.ofMillis(refreshAheadStaleWaitMillis), executor);
+				}
+
+				/**
+					* Cria o builder do near-cache (L1) com eviction por quantidade ou por peso.
+					*
+					* @param ttl tempo de vida das entradas gravadas por esta instância, o mesmo usado no Redis, inclusive o das
+					* respostas 404; as entradas promovidas do Redis usam o tempo de vida restante lá
+					* @return builder Caffeine configurado
+					*/
+				private Caffeine<Object, Object> nearCacheBuilder(Duration ttl){
+								Caffeine<Object, Object> builder = Caffeine.newBuilder()
+																.expireAfter(Expiry.writing((key, value) -> entryTtl(value, ttl)));
+								if(nearCacheMaximumWeight > 0){
+												return builder.maximumWeight(nearCacheMaximumWeight)
+																				.weigher((key, value) -> TwoLevelCache.estimateWeight(value));
+								}
+								return builder.maximumSize(nearCacheMaximumSize);
+				}
+
+				/**
+					* Cria o limitador adaptativo de chamadas simultâneas à API externa.
+					*
+					* @return AdaptiveConcurrencyLimiter configurado
+					*/
+				@Bean
+				public AdaptiveConcurrencyLimiter upstreamConcurrencyLimiter(){
+								return new AdaptiveConcurrencyLimiter(upstreamInitialLimit, upstreamMinLimit, upstreamMaxLimit, upstreamTolerance,
+																upstreamSmoothing, upstreamRttWindow, upstreamQueueSize, Duration.ofMillis(upstreamMaxWaitMillis));
+				}
+
+				/**
+					* Cria o cliente da API externa.
+					*
+					* <p>
+					* O {@link HttpClient} mantém um pool de conexões reaproveitadas entre as chamadas e tenta HTTP/2 conforme
+					* {@code upstream.http.version}. O tempo de vida das conexões ociosas é uma propriedade de sistema do JDK
+					* ({@code jdk.httpclient.keepalive.timeout}), lida uma única vez por JVM, na carga da implementação do
+					* {@link HttpClient}; por isso ela é passada na linha de comando (ver o {@code Dockerfile}) e não configurada
+					* aqui. Com {@code upstream.hedging.enabled}, o cliente usa uma {@link HedgingPolicy}.
+					* </p>
+					*
+					* @param upstreamConcurrencyLimiter limite de chamadas simultâneas à API externa
+					* @param meterRegistry registro das métricas das chamadas
+					* @return UpstreamClient configurado
+					*/
+				@Bean
+				public UpstreamClient upstreamClient(AdaptiveConcurrencyLimiter upstreamConcurrencyLimiter, MeterRegistry meterRegistry){
+								HttpClient httpClient = HttpClient.newBuilder()
+																.version(upstreamHttpVersion)
+																.connectTimeout(Duration.ofMillis(upstreamConnectTimeoutMillis))
+																.followRedirects(HttpClient.Redirect.NORMAL)
+																.build();
+								HedgingPolicy hedgingPolicy = hedgingEnabled
+																? new HedgingPolicy(hedgingPercentile, Duration.ofMillis(hedgingMinDelayMillis), hedgingWindowSize)
+																: null;
+								return new UpstreamClient(httpClient, apiUrl, Duration.ofMillis(upstreamRequestTimeoutMillis),
+																upstreamConcurrencyLimiter, hedgingPolicy, meterRegistry);
+				}
+
+				/**
+					* Cria o serializador compacto dos valores do cache, com o dicionário de compressão do classpath.
+					*
+					* @return CompactValueRedisSerializer configurado
+					* @throws IOException se o dicionário configurado não puder ser lido
+					*/
+				@Bean
+				public CompactValueRedisSerializer cacheValueSerializer() throws IOException{
+								byte[] dictionary = cacheCodecDictionary.isBlank()
+																? null
+																: StreamUtils.copyToByteArray(new ClassPathResource(cacheCodecDictionary).getInputStream());
+								return new CompactValueRedisSerializer("smile".equalsIgnoreCase(cacheCodecFormat), cacheCodecCompressionThreshold,
+																cacheCodecCompressionLevel, dictionary);
+				}
+
+				/**
+					* Cria o barramento de invalidação dos near-caches via Redis pub/sub.
+					*
+					* @param stringRedisTemplate template usado para publicar as invalidações
+					* @return CacheInvalidationBus configurado
+					*/
+				@Bean
+				public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate stringRedisTemplate){
+								return new CacheInvalidationBus(stringRedisTemplate, invalidationChannel);
+				}
+
+				/**
+					* Registra o {@link CacheInvalidationBus} como ouvinte do canal de invalidação.
+					*
+					* @param redisConnectionFactory fábrica de conexão Redis
+					* @param cacheInvalidationBus barramento de invalidação dos near-caches
+					* @return container de listeners configurado
+					*/
+				@Bean
+				public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+												CacheInvalidationBus cacheInvalidationBus){
+								RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+								container.setConnectionFactory(redisConnectionFactory);
+								container.addMessageListener(cacheInvalidationBus, new ChannelTopic(cacheInvalidationBus.getChannel()));
+								return container;
 				}
 
 				/**
@@ -92,19 +767,181 @@ public class BeanConfiguration {
 								return registrationBean;
 				}
 
+				/**
+					* Registra o {@link AdminTokenFilter} na frente dos endpoints do {@link AdminController}.
+					*
+					* @return FilterRegistrationBean configurado
+					*/
+				@Bean
+				public FilterRegistrationBean<AdminTokenFilter> adminTokenFilter(){
+								FilterRegistrationBean<AdminTokenFilter> registrationBean = new FilterRegistrationBean<>(new AdminTokenFilter(adminToken));
+								registrationBean.addUrlPatterns("/admin/*");
+								return registrationBean;
+				}
+
+				/**
+					* Cria o {@link RedisClient} Lettuce dedicado ao rate limiting.
+					*
+					* <p>
+					* Com {@code rate-limit.resilience.enabled}, todo comando tem o tempo limitado por
+					* {@code rate-limit.resilience.timeout-ms} e, com a conexão caída, os comandos falham na hora em vez de
+					* ficarem enfileirados até a reconexão.
+					* </p>
+					*
+					* <p>
+					* O cliente usa os {@link ClientResources} do Spring Boot, compartilhando as threads de I/O com a conexão do cache
+					* e o registro de latência dos comandos no Micrometer ({@code lettuce.command.completion} e
+					* {@code lettuce.command.firstresponse}).
+					* </p>
+					*
+					* @param clientResources recursos Lettuce configurados pelo Spring Boot
+					* @return RedisClient configurado
+					*/
+				@Bean(destroyMethod = "shutdown")
+				public RedisClient rateLimitRedisClient(ClientResources clientResources){
+								RedisClient client = RedisClient.create(clientResources, "redis://"+redisHost+":"+redisPort);
+								if(resilienceEnabled){
+												client.setOptions(ClientOptions.builder()
+																				.timeoutOptions(TimeoutOptions.enabled(Duration.ofMillis(resilienceTimeoutMillis)))
+																				.disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+																				.build());
+								}
+								return client;
+				}
+
+				/**
+					* Cria o circuit breaker das chamadas de rate limit ao Redis.
+					*
+					* @return LatencyCircuitBreaker configurado
+					*/
+				@Bean
+				public LatencyCircuitBreaker rateLimitCircuitBreaker(){
+								return new LatencyCircuitBreaker(Duration.ofMillis(resilienceSlowCallMillis), resilienceFailureRateThreshold,
+																resilienceWindowSize, resilienceMinimumCalls, Duration.ofMillis(resilienceOpenDurationMillis));
+				}
+
+				/**
+					* Cria o {@link InstanceHeartbeat}, que estima a quantidade de instâncias para os buckets locais de contingência.
+					*
+					* @param stringRedisTemplate template usado para registrar a instância
+					* @return InstanceHeartbeat configurado
+					*/
+				@Bean(destroyMethod = "close")
+				public InstanceHeartbeat instanceHeartbeat(StringRedisTemplate stringRedisTemplate){
+								return new InstanceHeartbeat(stringRedisTemplate, BucketKeys.NAMESPACE + "instances", Duration.ofMillis(resilienceHeartbeatIntervalMillis));
+				}
+
+				/**
+					* Cria o relatório de chaves e memória do rate limit no Redis.
+					*
+					* @param stringRedisTemplate template usado para consultar o Redis
+					* @return RateLimitStorageReport configurado
+					*/
+				@Bean
+				public RateLimitStorageReport rateLimitStorageReport(StringRedisTemplate stringRedisTemplate){
+								return new RateLimitStorageReport(stringRedisTemplate);
+				}
+
 				/**
 					* Cria o {@link ProxyManager} do Bucket4j integrado com Redis via Lettuce.
 					*
-					* @param connectionFactory conexão Lettuce do Spring
+					* <p>
+					* Com {@code rate-limit.resilience.enabled}, o tempo total de cada operação, incluindo as retentativas do
+					* compare-and-swap, também é limitado por {@code rate-limit.resilience.timeout-ms}.
+					* </p>
+					*
+					* <p>
+					* Cada bucket expira no Redis quando voltaria a estar cheio, mais {@code rate-limit.bucket-expiry.keep-after-refill-ms}:
+					* um bucket cheio equivale a um bucket inexistente, então clientes inativos não ocupam memória.
+					* </p>
+					*
+					* @param rateLimitRedisClient cliente Lettuce do rate limiting
 					* @return ProxyManager configurado
 					*/
 
 				@Bean
-				public ProxyManager<String> proxyManager(LettuceConnectionFactory connectionFactory){
-								RedisClient redisClient = RedisClient.create("redis://"+redisHost+":"+redisPort);
+				public ProxyManager<String> proxyManager(RedisClient rateLimitRedisClient){
 								StatefulRedisConnection<String, byte[]> redisConnection =
-																redisClient.connect(RedisCodec.of(StringCodec.ASCII,ByteArrayCodec.INSTANCE));
-								return LettuceBasedProxyManager.builderFor(redisConnection).build();
+																rateLimitRedisClient.connect(RedisCodec.of(StringCodec.ASCII,ByteArrayCodec.INSTANCE));
+								ClientSideConfig clientSideConfig = ClientSideConfig.getDefault()
+																.withExpirationAfterWriteStrategy(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(
+																								Duration.ofMillis(bucketKeepAfterRefillMillis)));
+								if(resilienceEnabled){
+												clientSideConfig = clientSideConfig.withRequestTimeout(Duration.ofMillis(resilienceTimeoutMillis));
+								}
+								return LettuceBasedProxyManager.builderFor(redisConnection)
+																.withClientSideConfig(clientSideConfig)
+																.build();
+				}
+
+				/**
+					* Cria o {@link RateLimiter} usado pelo filtro e pelo aspecto de rate limit.
+					*
+					* <p>
+					* O motor é escolhido por {@code rate-limit.engine}:
+					* <ul>
+					*     <li>{@code bucket4j} - {@link Bucket4jRateLimiter}, ou {@link LeasingRateLimiter} com {@code rate-limit.lease.enabled}</li>
+					*     <li>{@code lua} - {@link LuaRateLimiter}, GCRA atômico em um único {@code EVALSHA}</li>
+					* </ul>
+					* Com {@code rate-limit.resilience.enabled}, o motor é envolvido por um {@link ResilientRateLimiter}, que decide
+					* localmente enquanto o Redis está lento ou fora do ar. Com {@code rate-limit.deny-cache.enabled}, o resultado
+					* é envolvido por um {@link DenyCachingRateLimiter}.
+					* </p>
+					*
+					* @param proxyManager gerenciador de buckets
+					* @param rateLimitRedisClient cliente Lettuce do rate limiting
+					* @param rateLimitCircuitBreaker circuit breaker das chamadas ao Redis
+					* @param instanceHeartbeat estimativa da quantidade de instâncias
+					* @return RateLimiter configurado
+					*/
+				@Bean
+				@Primary
+				public RateLimiter rateLimiter(ProxyManager<String> proxyManager, RedisClient rateLimitRedisClient,
+												LatencyCircuitBreaker rateLimitCircuitBreaker, InstanceHeartbeat instanceHeartbeat){
+								RateLimiter engine;
+								if("lua".equalsIgnoreCase(rateLimitEngine)){
+												engine = new LuaRateLimiter(rateLimitRedisClient.connect());
+								}else if(leaseEnabled){
+												engine = new LeasingRateLimiter(proxyManager, leaseCapacityFraction, leaseMaxBatch, Duration.ofMillis(leaseTtlMillis));
+								}else{
+												engine = new Bucket4jRateLimiter(proxyManager, proxyCacheMaximumSize);
+								}
+								if(resilienceEnabled){
+												engine = new ResilientRateLimiter(engine, rateLimitCircuitBreaker, instanceHeartbeat, resilienceMaximumLocalBuckets);
+								}
+								return denyCacheEnabled ? new DenyCachingRateLimiter(engine, denyCacheMaximumSize) : engine;
+				}
+
+				/**
+					* Cria o {@link RateLimiter} do escopo {@code GLOBAL} do {@link RateLimitAspect}.
+					*
+					* <p>
+					* Com {@code rate-limit.global.stripes} maior que 1, o bucket global é dividido em sub-buckets
+					* ({@link StripedRateLimiter}), para que todo o tráfego não dispute uma única chave no Redis.
+					* </p>
+					*
+					* @param rateLimiter rate limiter de cada stripe
+					* @return RateLimiter do escopo global
+					*/
+				@Bean
+				public RateLimiter globalRateLimiter(RateLimiter rateLimiter){
+								if(globalStripes <= 1){
+												return rateLimiter;
+								}
+								return new StripedRateLimiter(rateLimiter, globalStripes, globalBorrowAttempts);
+				}
+
+				/**
+					* Cria o {@link RateLimitRuleRegistry}, que compila as anotações {@link RateLimited} na inicialização
+					* e aplica as sobrescritas de {@code rate-limit.rules.overrides-file}.
+					*
+					* @param bucketConfigurationSupplier configuração padrão do bucket da API key
+					* @return RateLimitRuleRegistry configurado
+					*/
+				@Bean(destroyMethod = "close")
+				public RateLimitRuleRegistry rateLimitRuleRegistry(Supplier<BucketConfiguration> bucketConfigurationSupplier){
+								Path overridesFile = rulesOverridesFile.isBlank() ? null : Path.of(rulesOverridesFile);
+								return new RateLimitRuleRegistry(bucketConfigurationSupplier.get(), apiKeyFallback, overridesFile, Duration.ofMillis(rulesReloadIntervalMillis));
 				}
 
 				/**
@@ -117,6 +954,7 @@ public class BeanConfiguration {
 					*     <li>Refil de 5 tokens a cada 2 minutos</li>
 					*     <li>Tokens iniciais: 5</li>
 					* </ul>
+					* É a configuração da regra {@value RateLimitRuleRegistry#API_KEY_RULE}, que pode ser sobrescrita sem reinício.
 					* </p>
 					*
 					* @return Supplier de BucketConfiguration
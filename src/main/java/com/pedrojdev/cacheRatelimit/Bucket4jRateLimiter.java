@@ -0,0 +1,135 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteAsyncBucketBuilder;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+	* {@link RateLimiter} que consulta o bucket no Redis a cada chamada, via {@link ProxyManager} do Bucket4j.
+	*
+	* <p>
+	* Em {@link #tryConsumeAll(List)} as verificações são disparadas juntas pela API assíncrona do Bucket4j e seguem
+	* em pipeline na mesma conexão, custando o tempo de um round trip. O Bucket4j não consome várias chaves de forma
+	* atômica; se alguma verificação for rejeitada, os tokens já consumidos nas outras são devolvidos com {@code addTokens}.
+	* </p>
+	*
+	* <p>
+	* Os proxies dos buckets são guardados por regra e por chave, até {@code maximumBuckets} por regra, em vez de
+	* serem criados a cada chamada. Quando a configuração é uma {@link RateLimitRule}, o proxy usa a versão da regra:
+	* um bucket criado com uma versão anterior passa a usar a nova configuração no próximo consumo.
+	* </p>
+	*/
+public class Bucket4jRateLimiter implements RateLimiter {
+
+				/**
+					* Prefixo das chaves dos buckets gravados pelo Bucket4j.
+					*/
+				static final String KEY_PREFIX = BucketKeys.NAMESPACE + "b4j:";
+
+				private final ProxyManager<String> proxyManager;
+
+				private final long maximumBuckets;
+
+				/**
+					* Proxies por fornecedor de configuração; regras substituídas por uma recarga são descartadas pelo coletor.
+					*/
+				private final Cache<Supplier<BucketConfiguration>, Cache<String, Buckets>> proxies = Caffeine.newBuilder()
+												.weakKeys()
+												.build();
+
+				/**
+					* Construtor do rate limiter.
+					*
+					* @param proxyManager gerenciador de buckets
+					* @param maximumBuckets quantidade máxima de proxies guardados por regra
+					*/
+				public Bucket4jRateLimiter(ProxyManager<String> proxyManager, long maximumBuckets) {
+								this.proxyManager = proxyManager;
+								this.maximumBuckets = maximumBuckets;
+				}
+
+				@Override
+				public ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								return buckets(key, configuration).bucket().tryConsumeAndReturnRemaining(tokens);
+				}
+
+				@Override
+				public void charge(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								buckets(key, configuration).bucket().consumeIgnoringRateLimits(tokens);
+				}
+
+				@Override
+				public void refund(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								buckets(key, configuration).bucket().addTokens(tokens);
+				}
+
+				@Override
+				public List<ConsumptionProbe> tryConsumeAll(List<RateLimitCheck> checks) {
+								if(checks.size() == 1 || !proxyManager.isAsyncModeSupported()){
+												return RateLimiter.super.tryConsumeAll(checks);
+								}
+								List<AsyncBucketProxy> buckets = new ArrayList<>(checks.size());
+								List<CompletableFuture<ConsumptionProbe>> futures = new ArrayList<>(checks.size());
+								for(RateLimitCheck check : checks){
+												AsyncBucketProxy bucket = buckets(check.key(), check.configuration()).asyncBucket();
+												buckets.add(bucket);
+												futures.add(bucket.tryConsumeAndReturnRemaining(check.tokens()));
+								}
+								List<ConsumptionProbe> probes = new ArrayList<>(checks.size());
+								for(CompletableFuture<ConsumptionProbe> future : futures){
+												probes.add(future.join());
+								}
+								if(probes.stream().anyMatch(probe -> !probe.isConsumed())){
+												for(int i = 0; i < probes.size(); i++){
+																if(probes.get(i).isConsumed()){
+																				buckets.get(i).addTokens(checks.get(i).tokens());
+																}
+												}
+								}
+								return probes;
+				}
+
+				private Buckets buckets(String key, Supplier<BucketConfiguration> configuration) {
+								Cache<String, Buckets> byKey = proxies.getIfPresent(configuration);
+								if(byKey == null){
+												byKey = proxies.get(configuration, ignored -> Caffeine.newBuilder().maximumSize(maximumBuckets).build());
+								}
+								Buckets buckets = byKey.getIfPresent(key);
+								if(buckets == null){
+												buckets = byKey.get(key, ignored -> createBuckets(key, configuration));
+								}
+								return buckets;
+				}
+
+				private Buckets createBuckets(String key, Supplier<BucketConfiguration> configuration) {
+								RemoteBucketBuilder<String> builder = proxyManager.builder();
+								if(configuration instanceof RateLimitRule rule){
+												builder = builder.withImplicitConfigurationReplacement(rule.version(), TokensInheritanceStrategy.PROPORTIONALLY);
+								}
+								BucketProxy bucket = builder.build(KEY_PREFIX + key, configuration);
+								AsyncBucketProxy asyncBucket = null;
+								if(proxyManager.isAsyncModeSupported()){
+												RemoteAsyncBucketBuilder<String> asyncBuilder = proxyManager.asAsync().builder();
+												if(configuration instanceof RateLimitRule rule){
+																asyncBuilder = asyncBuilder.withImplicitConfigurationReplacement(rule.version(), TokensInheritanceStrategy.PROPORTIONALLY);
+												}
+												asyncBucket = asyncBuilder.build(KEY_PREFIX + key, () -> CompletableFuture.completedFuture(configuration.get()));
+								}
+								return new Buckets(bucket, asyncBucket);
+				}
+
+				private record Buckets(BucketProxy bucket, AsyncBucketProxy asyncBucket) {
+				}
+}
@@ -0,0 +1,66 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+	* Chaves lógicas dos buckets de rate limit.
+	*
+	* <p>
+	* O identificador do cliente (IP, API key) não vai para o Redis: a chave é {@code <escopo>:<hash>}, com os 128 primeiros
+	* bits do SHA-256 do identificador em base64url. A chave fica curta e com tamanho fixo, não expõe API keys no Redis
+	* e não permite escolher um identificador que caia no bucket de outro cliente.
+	* </p>
+	*
+	* <p>
+	* Os rate limiters que gravam no Redis acrescentam o prefixo do seu formato de estado, por exemplo
+	* {@code rl:b4j:} ou {@code rl:gcra:}, para que buckets de motores diferentes não se misturem.
+	* </p>
+	*/
+public final class BucketKeys {
+
+				/**
+					* Prefixo comum de todas as chaves de rate limit no Redis.
+					*/
+				public static final String NAMESPACE = "rl:";
+
+				/**
+					* Instância de referência, clonada a cada chave: o {@link MessageDigest} não é thread-safe e um
+					* {@code ThreadLocal} não é reaproveitado quando cada requisição roda na sua própria virtual thread.
+					*/
+				private static final MessageDigest SHA_256;
+
+				static {
+								try {
+												SHA_256 = MessageDigest.getInstance("SHA-256");
+								} catch (NoSuchAlgorithmException e) {
+												throw new IllegalStateException("SHA-256 indisponível", e);
+								}
+				}
+
+				private BucketKeys() {
+				}
+
+				/**
+					* Cria a chave lógica do bucket de um cliente.
+					*
+					* @param scope escopo da chave, por exemplo {@code ip} ou {@code key}
+					* @param identifier identificador do cliente
+					* @return chave {@code <escopo>:<hash>}
+					*/
+				public static String of(String scope, String identifier) {
+								byte[] digest = sha256().digest(String.valueOf(identifier).getBytes(StandardCharsets.UTF_8));
+								return scope + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+				}
+
+				private static MessageDigest sha256() {
+								try {
+												return (MessageDigest) SHA_256.clone();
+								} catch (CloneNotSupportedException e) {
+												throw new IllegalStateException("SHA-256 não pode ser clonado", e);
+								}
+				}
+}
@@ -0,0 +1,35 @@
+package com.pedrojdev.cacheRatelimit;
+
+/**
+	* Envelope gravado no cache quando o modo refresh-ahead está ativo.
+	*
+	* <p>
+	* Guarda o instante de escrita junto com o valor, para que o {@link CoalescingCache} saiba
+	* se a entrada ainda está fresca, se já deve ser atualizada em segundo plano ou se só pode
+	* ser servida como dado vencido (stale).
+	* </p>
+	*
+	* @param value valor armazenado
+	* @param writtenAt instante da escrita, em milissegundos desde a época
+	*/
+public record CacheEntry(Object value, long writtenAt) {
+
+				/**
+					* Cria um envelope com o instante atual.
+					*
+					* @param value valor armazenado
+					* @return envelope do valor
+					*/
+				public static CacheEntry of(Object value) {
+								return new CacheEntry(value, System.currentTimeMillis());
+				}
+
+				/**
+					* Idade da entrada no instante atual.
+					*
+					* @return idade em milissegundos
+					*/
+				public long ageMillis() {
+								return System.currentTimeMillis() - writtenAt;
+				}
+}
@@ -0,0 +1,131 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+	* Barramento de invalidação dos near-caches via Redis pub/sub.
+	*
+	* <p>
+	* Toda escrita ou remoção em um {@link TwoLevelCache} publica uma mensagem no canal configurado.
+	* As outras instâncias recebem a mensagem e removem a entrada do seu L1, forçando a próxima leitura
+	* a buscar o valor atualizado no Redis. Mensagens publicadas pela própria instância são ignoradas.
+	* </p>
+	*
+	* <p>
+	* Formato da mensagem: {@code <instanceId>\n<cacheName>\n<k:chave | m:chave\nchave... | *>}, onde {@code m:} lista
+	* as chaves de uma escrita em lote, uma por linha, e {@code *} indica limpeza total.
+	* </p>
+	*/
+public class CacheInvalidationBus implements MessageListener {
+
+				private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+				private final String instanceId = UUID.randomUUID().toString();
+
+				private final StringRedisTemplate redisTemplate;
+
+				private final String channel;
+
+				private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do barramento.
+					*
+					* @param redisTemplate template usado para publicar as mensagens
+					* @param channel canal pub/sub de invalidação
+					*/
+				public CacheInvalidationBus(StringRedisTemplate redisTemplate, String channel) {
+								this.redisTemplate = redisTemplate;
+								this.channel = channel;
+				}
+
+				public String getChannel() {
+								return channel;
+				}
+
+				/**
+					* Registra um cache para receber as invalidações das outras instâncias.
+					*
+					* @param cache cache em dois níveis
+					*/
+				void register(TwoLevelCache cache) {
+								caches.put(cache.getName(), cache);
+				}
+
+				/**
+					* Notifica as outras instâncias que a chave mudou.
+					*
+					* @param cacheName nome do cache
+					* @param key chave alterada
+					*/
+				void publishEvict(String cacheName, Object key) {
+								publish(cacheName + "\nk:" + key);
+				}
+
+				/**
+					* Notifica as outras instâncias, em uma única mensagem, que várias chaves mudaram.
+					*
+					* @param cacheName nome do cache
+					* @param keys chaves alteradas
+					*/
+				void publishEvictAll(String cacheName, Collection<?> keys) {
+								if(keys.isEmpty()){
+												return;
+								}
+								StringBuilder payload = new StringBuilder(cacheName).append("\nm:");
+								for(Object key : keys){
+												payload.append(key).append('\n');
+								}
+								payload.setLength(payload.length() - 1);
+								publish(payload.toString());
+				}
+
+				/**
+					* Notifica as outras instâncias que o cache foi limpo.
+					*
+					* @param cacheName nome do cache
+					*/
+				void publishClear(String cacheName) {
+								publish(cacheName + "\n*");
+				}
+
+				private void publish(String payload) {
+								try {
+												redisTemplate.convertAndSend(channel, instanceId + "\n" + payload);
+								} catch (RuntimeException e) {
+												// o TTL do L1 limita a divergência caso a notificação se perca
+												log.warn("Falha ao publicar invalidacao de cache: {}", e.getMessage());
+								}
+				}
+
+				@Override
+				public void onMessage(Message message, byte[] pattern) {
+								String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 3);
+								if(parts.length < 3 || instanceId.equals(parts[0])){
+												return;
+								}
+								TwoLevelCache cache = caches.get(parts[1]);
+								if(cache == null){
+												return;
+								}
+								if("*".equals(parts[2])){
+												cache.clearLocal();
+								}else if(parts[2].startsWith("k:")){
+												cache.evictLocal(parts[2].substring(2));
+								}else if(parts[2].startsWith("m:")){
+												for(String key : parts[2].substring(2).split("\n")){
+																cache.evictLocal(key);
+												}
+								}
+				}
+}
@@ -0,0 +1,128 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Lock curto no Redis que coordena o carregamento de uma chave entre instâncias.
+	*
+	* <p>
+	* A instância que consegue o lock ({@code SET NX PX}) busca o valor na API externa; as demais
+	* consultam o cache periodicamente até o valor aparecer. O lock expira sozinho após {@code lockTtl},
+	* então uma instância que cair no meio do carregamento não bloqueia as outras por mais tempo que isso.
+	* Se o lock expirar sem que o valor apareça, quem estava esperando faz o carregamento por conta própria.
+	* </p>
+	*/
+public class CacheLoadLock {
+
+				private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+												"if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+												Long.class);
+
+				private final Logger log = LoggerFactory.getLogger(CacheLoadLock.class);
+
+				private final StringRedisTemplate redisTemplate;
+
+				private final Duration lockTtl;
+
+				private final long pollIntervalMillis;
+
+				/**
+					* Construtor do lock.
+					*
+					* @param redisTemplate template usado para os comandos do lock
+					* @param lockTtl tempo máximo de vida do lock
+					* @param pollIntervalMillis intervalo entre as consultas ao cache enquanto outra instância carrega
+					*/
+				public CacheLoadLock(StringRedisTemplate redisTemplate, Duration lockTtl, long pollIntervalMillis) {
+								this.redisTemplate = redisTemplate;
+								this.lockTtl = lockTtl;
+								this.pollIntervalMillis = pollIntervalMillis;
+				}
+
+				/**
+					* Tenta adquirir o lock de carregamento da chave.
+					*
+					* @param cacheName nome do cache
+					* @param key chave a ser carregada
+					* @return o lock adquirido, ou {@code null} se outra instância já está carregando a chave
+					*/
+				public Lease acquire(String cacheName, Object key) {
+								String lockKey = lockKey(cacheName, key);
+								String token = UUID.randomUUID().toString();
+								try {
+												Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtl);
+												return Boolean.FALSE.equals(acquired) ? null : new Lease(lockKey, token);
+								} catch (RuntimeException e) {
+												// sem Redis o lock não protege nada; segue apenas com a coordenação local
+												log.warn("Falha ao adquirir lock de carregamento {}: {}", lockKey, e.getMessage());
+												return new Lease(lockKey, null);
+								}
+				}
+
+				/**
+					* Aguarda outra instância terminar o carregamento da chave.
+					*
+					* @param cache cache onde o valor será publicado
+					* @param key chave sendo carregada
+					* @return o valor publicado, ou {@code null} se o lock expirou ou foi liberado sem valor
+					* @throws InterruptedException se a thread for interrompida durante a espera
+					*/
+				public Cache.ValueWrapper awaitValue(Cache cache, Object key) throws InterruptedException {
+								String lockKey = lockKey(cache.getName(), key);
+								long deadline = System.nanoTime() + lockTtl.toNanos();
+								while (System.nanoTime() < deadline) {
+												TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+												Cache.ValueWrapper cached = cache.get(key);
+												if(cached != null){
+																return cached;
+												}
+												if(!Boolean.TRUE.equals(redisTemplate.hasKey(lockKey))){
+																return cache.get(key);
+												}
+								}
+								return null;
+				}
+
+				private static String lockKey(String cacheName, Object key) {
+								return cacheName + "::lock::" + key;
+				}
+
+				/**
+					* Lock adquirido por esta instância.
+					*/
+				public class Lease {
+
+								private final String lockKey;
+
+								private final String token;
+
+								private Lease(String lockKey, String token) {
+												this.lockKey = lockKey;
+												this.token = token;
+								}
+
+								/**
+									* Libera o lock, desde que ele ainda pertença a esta instância.
+									*/
+								public void release() {
+												if(token == null){
+																return;
+												}
+												try {
+																redisTemplate.execute(RELEASE_SCRIPT, List.of(lockKey), token);
+												} catch (RuntimeException e) {
+																log.warn("Falha ao liberar lock de carregamento {}: {}", lockKey, e.getMessage());
+												}
+								}
+				}
+}
@@ -0,0 +1,247 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+	* Aquecimento do cache de pokémons na inicialização a partir da lista das chaves mais acessadas.
+	*
+	* <p>
+	* A cada {@code snapshotInterval}, as {@code topN} chaves mais acessadas segundo o {@link HotKeyTracker} são gravadas
+	* no Redis, com tempo de vida {@code snapshotTtl}, ou em um arquivo local, se {@code snapshotFile} for informado; o
+	* arquivo sobrevive também à perda do Redis. Enquanto esta instância ainda não viu chaves suficientes, a lista é
+	* completada com a lista lida na inicialização, para que uma instância recém-iniciada não a encolha.
+	* </p>
+	*
+	* <p>
+	* Logo depois que a aplicação fica pronta, a lista gravada é lida e as chaves são carregadas com
+	* {@link ServicoApi#getAll(java.util.Collection)} em lotes de {@code batchSize}, no máximo {@code keysPerSecond}
+	* chaves por segundo, em uma thread própria; a aplicação já atende requisições durante o aquecimento. Dentro de um
+	* lote as faltas são buscadas na API externa em paralelo, sob o {@link AdaptiveConcurrencyLimiter}. As chaves que
+	* ainda estão no Redis só são copiadas para o near-cache. As leituras do aquecimento não contam como acessos e não
+	* passam pela admissão por frequência (ver {@link AdmissionCache}).
+	* </p>
+	*/
+public class CacheWarmer implements ApplicationListener<ApplicationEvent>, AutoCloseable {
+
+				private static final ThreadLocal<Boolean> WARMING = new ThreadLocal<>();
+
+				private final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+				private final HotKeyTracker tracker;
+
+				private final ServicoApi servicoApi;
+
+				private final StringRedisTemplate redisTemplate;
+
+				private final String snapshotKey;
+
+				private final Path snapshotFile;
+
+				private final Duration snapshotTtl;
+
+				private final Duration snapshotInterval;
+
+				private final int topN;
+
+				private final boolean warmOnStartup;
+
+				private final double keysPerSecond;
+
+				private final int batchSize;
+
+				private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+								Thread thread = new Thread(runnable, "cache-warmer");
+								thread.setDaemon(true);
+								return thread;
+				});
+
+				/**
+					* Lista lida na inicialização; {@code null} até a leitura, para que a lista não seja regravada antes disso.
+					*/
+				private volatile List<String> previousSnapshot;
+
+				/**
+					* Construtor do aquecedor.
+					*
+					* @param tracker contagem dos acessos às chaves do cache de pokémons
+					* @param servicoApi serviço usado para carregar as chaves
+					* @param redisTemplate template usado para gravar a lista no Redis
+					* @param snapshotKey chave da lista no Redis
+					* @param snapshotFile arquivo da lista, ou {@code null} para gravá-la no Redis
+					* @param snapshotTtl tempo de vida da lista no Redis
+					* @param snapshotInterval intervalo entre as gravações da lista
+					* @param topN quantidade de chaves da lista
+					* @param warmOnStartup carrega as chaves da lista na inicialização
+					* @param keysPerSecond quantidade máxima de chaves carregadas por segundo no aquecimento; {@code 0} não limita
+					* @param batchSize quantidade de chaves carregadas em cada lote
+					*/
+				public CacheWarmer(HotKeyTracker tracker, ServicoApi servicoApi, StringRedisTemplate redisTemplate, String snapshotKey,
+																				Path snapshotFile, Duration snapshotTtl, Duration snapshotInterval, int topN, boolean warmOnStartup,
+																				double keysPerSecond, int batchSize) {
+								this.tracker = tracker;
+								this.servicoApi = servicoApi;
+								this.redisTemplate = redisTemplate;
+								this.snapshotKey = snapshotKey;
+								this.snapshotFile = snapshotFile;
+								this.snapshotTtl = snapshotTtl;
+								this.snapshotInterval = snapshotInterval;
+								this.topN = topN;
+								this.warmOnStartup = warmOnStartup;
+								this.keysPerSecond = keysPerSecond;
+								this.batchSize = Math.max(1, batchSize);
+				}
+
+				/**
+					* Indica se a thread atual está carregando chaves para o aquecimento.
+					*
+					* @return {@code true} durante as leituras do aquecimento
+					*/
+				public static boolean isWarming() {
+								return WARMING.get() != null;
+				}
+
+				/**
+					* Inicia o aquecimento e as gravações periódicas quando a aplicação fica pronta, e grava a lista uma última
+					* vez quando o contexto começa a ser fechado, antes que as conexões com o Redis sejam encerradas.
+					*
+					* @param event evento da aplicação
+					*/
+				@Override
+				public void onApplicationEvent(ApplicationEvent event) {
+								if(event instanceof ApplicationReadyEvent){
+												start();
+								}else if(event instanceof ContextClosedEvent){
+												close();
+								}
+				}
+
+				private void start() {
+								scheduler.execute(this::warm);
+								long intervalMillis = Math.max(1, snapshotInterval.toMillis());
+								scheduler.scheduleWithFixedDelay(this::saveSnapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+				}
+
+				private void warm() {
+								List<String> keys = readSnapshot();
+								previousSnapshot = keys;
+								if(!warmOnStartup || keys.isEmpty()){
+												return;
+								}
+								long start = System.nanoTime();
+								long batchIntervalNanos = keysPerSecond > 0 ? (long) (batchSize * 1_000_000_000L / keysPerSecond) : 0;
+								int overloaded = 0;
+								int failed = 0;
+								for(int from = 0; from < keys.size(); from += batchSize){
+												List<String> batch = keys.subList(from, Math.min(keys.size(), from + batchSize));
+												WARMING.set(Boolean.TRUE);
+												try {
+																servicoApi.getAll(batch);
+												} catch (UpstreamOverloadedException e) {
+																overloaded++;
+												} catch (RuntimeException e) {
+																failed++;
+																log.debug("Falha ao aquecer o cache com {} chaves: {}", batch.size(), e.toString());
+												} finally {
+																WARMING.remove();
+												}
+												long wait = start + (from / batchSize + 1) * batchIntervalNanos - System.nanoTime();
+												if(wait > 0){
+																LockSupport.parkNanos(wait);
+												}
+												if(Thread.currentThread().isInterrupted()){
+																return;
+												}
+								}
+								log.info("Cache aquecido com {} chaves em {} ms ({} lotes recusados pelo limite da API externa, {} com falha)",
+																								keys.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), overloaded, failed);
+				}
+
+				private List<String> readSnapshot() {
+								try {
+												String content;
+												if(snapshotFile != null){
+																content = Files.exists(snapshotFile) ? Files.readString(snapshotFile, StandardCharsets.UTF_8) : null;
+												}else{
+																content = redisTemplate.opsForValue().get(snapshotKey);
+												}
+												if(content == null){
+																return List.of();
+												}
+												return content.lines()
+																												.filter(key -> !key.isBlank())
+																												.limit(topN)
+																												.toList();
+								} catch (IOException | RuntimeException e) {
+												log.warn("Falha ao ler a lista de chaves mais acessadas; o cache não será aquecido: {}", e.toString());
+												return List.of();
+								}
+				}
+
+				private void saveSnapshot() {
+								List<String> previous = previousSnapshot;
+								if(previous == null){
+												return;
+								}
+								Set<String> keys = new LinkedHashSet<>();
+								for(Object key : tracker.top(topN).keySet()){
+												String name = key.toString();
+												if(name.indexOf('\n') < 0 && name.indexOf('\r') < 0){
+																keys.add(name);
+												}
+								}
+								for(String key : previous){
+												if(keys.size() >= topN){
+																break;
+												}
+												keys.add(key);
+								}
+								if(keys.isEmpty()){
+												return;
+								}
+								String content = String.join("\n", new ArrayList<>(keys));
+								try {
+												if(snapshotFile != null){
+																Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+																Files.writeString(temporary, content, StandardCharsets.UTF_8);
+																Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+												}else{
+																redisTemplate.opsForValue().set(snapshotKey, content, snapshotTtl);
+												}
+								} catch (IOException | RuntimeException e) {
+												log.warn("Falha ao gravar a lista de chaves mais acessadas: {}", e.toString());
+								}
+				}
+
+				/**
+					* Interrompe o aquecimento e grava a lista de chaves uma última vez; chamadas seguintes não fazem nada.
+					*/
+				@Override
+				public void close() {
+								if(scheduler.isShutdown()){
+												return;
+								}
+								scheduler.shutdownNow();
+								saveSnapshot();
+				}
+}
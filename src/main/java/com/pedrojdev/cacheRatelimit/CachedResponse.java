@@ -0,0 +1,90 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.http.HttpHeaders;
+
+import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+	* Resposta da API externa armazenada no cache como bytes opacos.
+	*
+	* <p>
+	* O corpo nunca é convertido em objetos: ele é lido da API externa como {@code byte[]}, gravado no Redis
+	* como está (ver {@link CompactValueRedisSerializer}) e escrito direto na resposta HTTP pelo {@link ApiController}.
+	* </p>
+	*
+	* <p>
+	* O ETag forte é calculado uma única vez, a partir do corpo, quando a resposta é criada, e é gravado junto com ela;
+	* as requisições com {@code If-None-Match} são respondidas com 304 sem tocar no corpo.
+	* </p>
+	*
+	* @param body corpo da resposta, exatamente como recebido da API externa
+	* @param contentType content-type informado pela API externa, ou {@code null}
+	* @param etag ETag forte do corpo, devolvido aos clientes
+	* @param upstreamEtag ETag informado pela API externa, usado para revalidar a entrada, ou {@code null}
+	*/
+public record CachedResponse(byte[] body, String contentType, String etag, String upstreamEtag) {
+
+				/**
+					* Marcador de pokémon inexistente na API externa (404), guardado no cache por pouco tempo para que nomes
+					* inválidos repetidos não cheguem à API. É comparado por identidade: o {@link CompactValueRedisSerializer}
+					* devolve sempre esta mesma instância.
+					*/
+				public static final CachedResponse NOT_FOUND = new CachedResponse(new byte[0], null, null, null);
+
+				/**
+					* Cria a resposta calculando o ETag forte do corpo.
+					*
+					* @param body corpo da resposta
+					* @param contentType content-type informado pela API externa, ou {@code null}
+					* @param upstreamEtag ETag informado pela API externa, ou {@code null}
+					* @return resposta a ser armazenada
+					*/
+				public static CachedResponse of(byte[] body, String contentType, String upstreamEtag) {
+								return new CachedResponse(body, contentType, strongEtag(body), upstreamEtag);
+				}
+
+				/**
+					* Cria a resposta em cache a partir da resposta da API externa.
+					*
+					* @param response resposta da API externa com o corpo em bytes
+					* @return resposta a ser armazenada
+					*/
+				public static CachedResponse from(HttpResponse<byte[]> response) {
+								byte[] body = response.body();
+								return of(body != null ? body : new byte[0],
+																								response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse(null),
+																								response.headers().firstValue(HttpHeaders.ETAG).orElse(null));
+				}
+
+				/**
+					* Indica se a resposta é o marcador {@link #NOT_FOUND}.
+					*
+					* <p>
+					* Fica fora do JSON do {@link org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer},
+					* que não conseguiria ler de volta uma propriedade que não é componente do record.
+					* </p>
+					*
+					* @return {@code true} se o pokémon não existe na API externa
+					*/
+				@JsonIgnore
+				public boolean isNotFound() {
+								return this == NOT_FOUND;
+				}
+
+				/**
+					* ETag forte do corpo: os primeiros 128 bits do SHA-256, em Base64 URL.
+					*/
+				private static String strongEtag(byte[] body) {
+								try {
+												byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+												return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+								} catch (NoSuchAlgorithmException e) {
+												throw new IllegalStateException("SHA-256 indisponível", e);
+								}
+				}
+}
@@ -0,0 +1,333 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+	* Decorator de {@link Cache} que coalesce os carregamentos concorrentes de uma mesma chave.
+	*
+	* <p>
+	* É usado pelo {@code @Cacheable(sync = true)}: quando várias requisições perdem o cache ao mesmo tempo,
+	* apenas uma executa o carregamento e as demais recebem o mesmo resultado, ou a mesma falha.
+	* A coordenação é feita por chave dentro da JVM com {@link SingleFlight} e, opcionalmente,
+	* entre instâncias com um {@link CacheLoadLock} no Redis.
+	* </p>
+	*
+	* <p>
+	* Com uma {@link RefreshAheadPolicy}, os valores são gravados em um {@link CacheEntry} com o instante de escrita.
+	* Leituras próximas do vencimento disparam a atualização em segundo plano e leituras de entradas vencidas,
+	* dentro do período de graça, servem o valor antigo se a atualização não terminar a tempo.
+	* </p>
+	*
+	* <p>
+	* As cargas em lote de {@link #loadAll(Collection, Function)} entram no mesmo {@link SingleFlight}: uma chave
+	* já em carregamento, por uma leitura ou por outro lote, não é buscada de novo.
+	* </p>
+	*
+	* <p>
+	* Valores nulos não são armazenados, mantendo o comportamento de {@code disableCachingNullValues()}.
+	* </p>
+	*/
+public class CoalescingCache implements Cache, BatchCache {
+
+				private static final ThreadLocal<Object> REFRESHING = new ThreadLocal<>();
+
+				private final Logger log = LoggerFactory.getLogger(CoalescingCache.class);
+
+				private final Cache delegate;
+
+				private final SingleFlight singleFlight;
+
+				private final CacheLoadLock loadLock;
+
+				private final RefreshAheadPolicy refreshPolicy;
+
+				/**
+					* Construtor do cache.
+					*
+					* @param delegate cache decorado
+					* @param singleFlight deduplicação local dos carregamentos
+					* @param loadLock lock distribuído dos carregamentos, ou {@code null} para coordenação apenas local
+					* @param refreshPolicy regras de refresh-ahead, ou {@code null} para vencimento rígido pelo TTL
+					*/
+				public CoalescingCache(Cache delegate, SingleFlight singleFlight, CacheLoadLock loadLock, RefreshAheadPolicy refreshPolicy) {
+								this.delegate = delegate;
+								this.singleFlight = singleFlight;
+								this.loadLock = loadLock;
+								this.refreshPolicy = refreshPolicy;
+				}
+
+				/**
+					* Valor atual da entrada que a thread corrente está atualizando em segundo plano.
+					*
+					* <p>
+					* Permite que o carregamento revalide o valor na API externa, por exemplo com {@code If-None-Match},
+					* em vez de baixá-lo de novo.
+					* </p>
+					*
+					* @return valor em atualização, ou {@code null} fora de uma atualização
+					*/
+				public static Object refreshingValue() {
+								return REFRESHING.get();
+				}
+
+				@Override
+				public String getName() {
+								return delegate.getName();
+				}
+
+				@Override
+				public Object getNativeCache() {
+								return delegate.getNativeCache();
+				}
+
+				/**
+					* Lê o valor da chave. Entradas vencidas pelo TTL lógico são tratadas como ausentes,
+					* já que aqui não há como atualizá-las.
+					*/
+				@Override
+				public ValueWrapper get(Object key) {
+								ValueWrapper cached = delegate.get(key);
+								if(cached == null || !(cached.get() instanceof CacheEntry entry)){
+												return cached;
+								}
+								if(refreshPolicy != null && refreshPolicy.isExpired(entry.ageMillis())){
+												return null;
+								}
+								return new SimpleValueWrapper(entry.value());
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public <T> T get(Object key, Class<T> type) {
+								ValueWrapper wrapper = get(key);
+								Object value = wrapper != null ? wrapper.get() : null;
+								if(value != null && type != null && !type.isInstance(value)){
+												throw new IllegalStateException("Valor em cache não é do tipo " + type.getName() + ": " + value);
+								}
+								return (T) value;
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public <T> T get(Object key, Callable<T> valueLoader) {
+								ValueWrapper cached = delegate.get(key);
+								if(cached != null){
+												if(!(cached.get() instanceof CacheEntry entry)){
+																return (T) cached.get();
+												}
+												if(refreshPolicy == null || refreshPolicy.isFresh(entry.ageMillis())){
+																return (T) entry.value();
+												}
+												return refreshAhead(key, entry, valueLoader);
+								}
+								try {
+												return singleFlight.execute(key, () -> load(key, valueLoader));
+								} catch (InterruptedException e) {
+												Thread.currentThread().interrupt();
+												throw new ValueRetrievalException(key, valueLoader, e);
+								} catch (Exception e) {
+												throw new ValueRetrievalException(key, valueLoader, e);
+								}
+				}
+
+				/**
+					* Dispara a atualização em segundo plano de uma entrada próxima do vencimento ou já vencida.
+					*
+					* <p>
+					* Dentro da janela de refresh o valor atual é devolvido imediatamente. Já vencida, a leitura espera a
+					* atualização por no máximo {@link RefreshAheadPolicy#staleWait()} e, se ela falhar ou demorar, serve o valor antigo.
+					* </p>
+					*/
+				@SuppressWarnings("unchecked")
+				private <T> T refreshAhead(Object key, CacheEntry entry, Callable<T> valueLoader) {
+								CompletableFuture<T> refresh = singleFlight.executeAsync(key, () -> refresh(key, entry, valueLoader),
+																refreshPolicy.executor());
+								if(!refreshPolicy.isExpired(entry.ageMillis())){
+												return (T) entry.value();
+								}
+								try {
+												return refresh.get(refreshPolicy.staleWait().toMillis(), TimeUnit.MILLISECONDS);
+								} catch (InterruptedException e) {
+												Thread.currentThread().interrupt();
+								} catch (ExecutionException | TimeoutException e) {
+												log.debug("Servindo valor vencido de {} para a chave {}: {}", getName(), key, e.toString());
+								}
+								return (T) entry.value();
+				}
+
+				/**
+					* Atualiza uma entrada existente. Se outra instância já estiver atualizando a mesma chave,
+					* mantém o valor atual em vez de chamar a API externa de novo. Durante o carregamento o valor atual
+					* fica disponível em {@link #refreshingValue()}.
+					*/
+				@SuppressWarnings("unchecked")
+				private <T> T refresh(Object key, CacheEntry entry, Callable<T> valueLoader) throws Exception {
+								CacheLoadLock.Lease lease = null;
+								if(loadLock != null){
+												lease = loadLock.acquire(getName(), key);
+												if(lease == null){
+																return (T) entry.value();
+												}
+								}
+								REFRESHING.set(entry.value());
+								try {
+												return loadAndPut(key, valueLoader);
+								} catch (UpstreamOverloadedException e) {
+												log.debug("Atualização da chave {} do cache {} adiada: {}", key, getName(), e.getMessage());
+												throw e;
+								} catch (Exception e) {
+												log.warn("Falha ao atualizar a chave {} do cache {}: {}", key, getName(), e.toString());
+												throw e;
+								} finally {
+												REFRESHING.remove();
+												if(lease != null){
+																lease.release();
+												}
+								}
+				}
+
+				/**
+					* Carrega o valor da chave. Executado por uma única thread por chave nesta instância.
+					*
+					* <p>
+					* Antes de carregar, o cache é consultado novamente: outra thread pode ter terminado o carregamento
+					* entre a primeira leitura e a entrada no {@link SingleFlight}.
+					* </p>
+					*/
+				@SuppressWarnings("unchecked")
+				private <T> T load(Object key, Callable<T> valueLoader) throws Exception {
+								ValueWrapper cached = get(key);
+								if(cached != null){
+												return (T) cached.get();
+								}
+								if(loadLock == null){
+												return loadAndPut(key, valueLoader);
+								}
+								CacheLoadLock.Lease lease = loadLock.acquire(getName(), key);
+								if(lease == null){
+												cached = loadLock.awaitValue(this, key);
+												if(cached != null){
+																return (T) cached.get();
+												}
+												return loadAndPut(key, valueLoader);
+								}
+								try {
+												return loadAndPut(key, valueLoader);
+								} finally {
+												lease.release();
+								}
+				}
+
+				private <T> T loadAndPut(Object key, Callable<T> valueLoader) throws Exception {
+								T value = valueLoader.call();
+								if(value != null){
+												put(key, value);
+								}
+								return value;
+				}
+
+				@Override
+				public void put(Object key, Object value) {
+								delegate.put(key, refreshPolicy != null ? CacheEntry.of(value) : value);
+				}
+
+				/**
+					* Lê várias chaves em lote. Como em {@link #get(Object)}, entradas vencidas pelo TTL lógico são tratadas
+					* como ausentes; entradas na janela de refresh são devolvidas sem disparar a atualização.
+					*/
+				@Override
+				public Map<Object, Object> getAll(Collection<?> keys) {
+								Map<Object, Object> values = new LinkedHashMap<>();
+								BatchCache.getAllFrom(delegate, keys).forEach((key, value) -> {
+												if(!(value instanceof CacheEntry entry)){
+																values.put(key, value);
+												}else if(refreshPolicy == null || !refreshPolicy.isExpired(entry.ageMillis())){
+																values.put(key, entry.value());
+												}
+								});
+								return values;
+				}
+
+				/**
+					* Carrega várias chaves em lote, coalescendo com os carregamentos já em andamento nesta instância.
+					*
+					* <p>
+					* Só as chaves sem carregamento em andamento chamam o {@code loader}; as demais aguardam o carregamento
+					* existente. Os valores carregados pelo lote são gravados juntos e só então as chaves são liberadas, para que
+					* uma leitura seguinte os encontre no cache. O {@link CacheLoadLock} não é usado nos lotes.
+					* </p>
+					*/
+				@Override
+				public Map<Object, Object> loadAll(Collection<?> keys, Function<Object, CompletableFuture<?>> loader) {
+								Map<Object, CompletableFuture<Object>> owned = new LinkedHashMap<>();
+								Map<Object, CompletableFuture<?>> loads = new LinkedHashMap<>();
+								for(Object key : keys){
+												CompletableFuture<Object> flight = new CompletableFuture<>();
+												CompletableFuture<Object> existing = singleFlight.claim(key, flight);
+												if(existing != null){
+																loads.put(key, existing.copy());
+																continue;
+												}
+												owned.put(key, flight);
+												CompletableFuture<?> load = BatchCache.startAll(List.of(key), loader).get(key);
+												load.whenComplete((value, error) -> {
+																if(error != null){
+																				flight.completeExceptionally(error);
+																}else{
+																				flight.complete(value);
+																}
+												});
+												loads.put(key, load);
+								}
+								Map<Object, Object> values = BatchCache.awaitAll(loads);
+								try {
+												Map<Object, Object> loaded = new LinkedHashMap<>();
+												owned.keySet().forEach(key -> {
+																if(values.containsKey(key)){
+																				loaded.put(key, values.get(key));
+																}
+												});
+												if(!loaded.isEmpty()){
+																putAll(loaded);
+												}
+								} finally {
+												owned.forEach(singleFlight::release);
+								}
+								return values;
+				}
+
+				@Override
+				public void putAll(Map<?, ?> values) {
+								if(refreshPolicy == null){
+												BatchCache.putAllInto(delegate, values);
+												return;
+								}
+								Map<Object, Object> entries = new LinkedHashMap<>();
+								values.forEach((key, value) -> entries.put(key, CacheEntry.of(value)));
+								BatchCache.putAllInto(delegate, entries);
+				}
+
+				@Override
+				public void evict(Object key) {
+								delegate.evict(key);
+				}
+
+				@Override
+				public void clear() {
+								delegate.clear();
+				}
+}
@@ -0,0 +1,57 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+	* {@link CacheManager} que envolve cada cache em um {@link CoalescingCache}.
+	*
+	* <p>
+	* Cada cache tem o seu próprio {@link SingleFlight}, então chaves iguais em caches diferentes não se bloqueiam.
+	* </p>
+	*/
+public class CoalescingCacheManager implements CacheManager {
+
+				private final CacheManager delegate;
+
+				private final CacheLoadLock loadLock;
+
+				private final RefreshAheadPolicy refreshPolicy;
+
+				private final Map<String, CoalescingCache> caches = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do gerenciador.
+					*
+					* @param delegate gerenciador dos caches decorados
+					* @param loadLock lock distribuído dos carregamentos, ou {@code null} para coordenação apenas local
+					* @param refreshPolicy regras de refresh-ahead, ou {@code null} para vencimento rígido pelo TTL
+					*/
+				public CoalescingCacheManager(CacheManager delegate, CacheLoadLock loadLock, RefreshAheadPolicy refreshPolicy) {
+								this.delegate = delegate;
+								this.loadLock = loadLock;
+								this.refreshPolicy = refreshPolicy;
+				}
+
+				@Override
+				public Cache getCache(String name) {
+								CoalescingCache cache = caches.get(name);
+								if(cache != null){
+												return cache;
+								}
+								Cache target = delegate.getCache(name);
+								if(target == null){
+												return null;
+								}
+								return caches.computeIfAbsent(name, cacheName -> new CoalescingCache(target, new SingleFlight(), loadLock, refreshPolicy));
+				}
+
+				@Override
+				public Collection<String> getCacheNames() {
+								return delegate.getCacheNames();
+				}
+}
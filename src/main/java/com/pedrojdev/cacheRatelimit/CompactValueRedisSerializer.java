@@ -0,0 +1,348 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+	* Serializador compacto e versionado dos valores do cache.
+	*
+	* <p>
+	* Todo valor gravado começa com um cabeçalho:
+	* <ul>
+	*     <li>byte de versão do formato ({@code 0x02})</li>
+	*     <li>byte de flags: envelope {@link CacheEntry}, {@link CachedResponse}, conteúdo comprimido, codificação Smile
+	*     e o marcador {@link CachedResponse#NOT_FOUND}, gravado sem conteúdo</li>
+	*     <li>com envelope, o instante de escrita em 8 bytes</li>
+	*     <li>comprimido, o tamanho original do conteúdo em 4 bytes</li>
+	*     <li>com {@link CachedResponse}, content-type, ETag da API externa e ETag forte do corpo, cada um com o tamanho
+	*     em 2 bytes ({@code -1} para ausente) e os bytes UTF-8; entradas gravadas sem o ETag forte o recalculam na leitura</li>
+	* </ul>
+	* Em seguida vem o conteúdo: o corpo do {@link CachedResponse}, como está, ou qualquer outro valor codificado
+	* em Smile (JSON binário, com as mesmas informações de tipo do {@link GenericJackson2JsonRedisSerializer}).
+	* </p>
+	*
+	* <p>
+	* Conteúdos a partir de {@code compressionThreshold} bytes são comprimidos com Deflate, opcionalmente com um
+	* dicionário pré-definido de trechos frequentes nos documentos da API externa; a versão comprimida só é usada
+	* se for menor. O stream Deflate carrega o Adler-32 do dicionário usado, então uma entrada comprimida com outro
+	* dicionário é detectada na leitura e tratada como ausente.
+	* </p>
+	*
+	* <p>
+	* A leitura também aceita os formatos anteriores: o quadro de {@link CachedResponse} sem compressão (versão
+	* {@code 0x00}) e o JSON do {@link GenericJackson2JsonRedisSerializer}, então entradas já gravadas continuam
+	* legíveis durante a troca de versão.
+	* </p>
+	*/
+public class CompactValueRedisSerializer implements RedisSerializer<Object> {
+
+				private static final byte VERSION_1 = 0x00;
+
+				private static final byte VERSION_2 = 0x02;
+
+				private static final byte FLAG_ENTRY = 0x01;
+
+				private static final byte FLAG_RESPONSE = 0x02;
+
+				private static final byte FLAG_DEFLATED = 0x04;
+
+				private static final byte FLAG_SMILE = 0x08;
+
+				private static final byte FLAG_ETAG = 0x10;
+
+				private static final byte FLAG_NOT_FOUND = 0x20;
+
+				private final Logger log = LoggerFactory.getLogger(CompactValueRedisSerializer.class);
+
+				private final RedisSerializer<Object> jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+				private final RedisSerializer<Object> smileSerializer = GenericJackson2JsonRedisSerializer.builder()
+																				.objectMapper(new ObjectMapper(new SmileFactory()))
+																				.defaultTyping(true)
+																				.build();
+
+				private final boolean smile;
+
+				private final int compressionThreshold;
+
+				private final int compressionLevel;
+
+				private final byte[] dictionary;
+
+				private final int dictionaryId;
+
+				private final LongAdder writes = new LongAdder();
+
+				private final LongAdder compressedWrites = new LongAdder();
+
+				private final LongAdder rawBytesWritten = new LongAdder();
+
+				private final LongAdder storedBytesWritten = new LongAdder();
+
+				private final LongAdder reads = new LongAdder();
+
+				private final LongAdder bytesRead = new LongAdder();
+
+				private final LongAdder legacyReads = new LongAdder();
+
+				private final LongAdder undecodableReads = new LongAdder();
+
+				/**
+					* Construtor do serializador.
+					*
+					* @param smile codifica os valores que não são {@link CachedResponse} em Smile; se {@code false}, em JSON
+					* @param compressionThreshold tamanho mínimo, em bytes, do conteúdo comprimido; {@code 0} desliga a compressão
+					* @param compressionLevel nível de compressão do Deflate, de 1 a 9
+					* @param dictionary dicionário pré-definido do Deflate, ou {@code null}
+					*/
+				public CompactValueRedisSerializer(boolean smile, int compressionThreshold, int compressionLevel, byte[] dictionary) {
+								this.smile = smile;
+								this.compressionThreshold = compressionThreshold;
+								this.compressionLevel = compressionLevel;
+								this.dictionary = dictionary;
+								this.dictionaryId = dictionary != null ? adler32(dictionary) : 0;
+				}
+
+				@Override
+				public byte[] serialize(Object value) throws SerializationException {
+								if(value == null){
+												return new byte[0];
+								}
+								CacheEntry entry = value instanceof CacheEntry cacheEntry ? cacheEntry : null;
+								Object content = entry != null ? entry.value() : value;
+
+								byte flags = entry != null ? FLAG_ENTRY : 0;
+								byte[] contentType = null;
+								byte[] upstreamEtag = null;
+								byte[] etag = null;
+								byte[] payload;
+								if(content instanceof CachedResponse response && response.isNotFound()){
+												flags |= FLAG_NOT_FOUND;
+												payload = new byte[0];
+								}else if(content instanceof CachedResponse response){
+												flags |= FLAG_RESPONSE | FLAG_ETAG;
+												contentType = utf8(response.contentType());
+												upstreamEtag = utf8(response.upstreamEtag());
+												etag = utf8(response.etag());
+												payload = response.body();
+								}else{
+												flags |= smile ? FLAG_SMILE : 0;
+												payload = (smile ? smileSerializer : jsonSerializer).serialize(content);
+								}
+
+								int rawLength = payload.length;
+								if(compressionThreshold > 0 && rawLength >= compressionThreshold){
+												byte[] deflated = deflate(payload);
+												if(deflated.length < rawLength){
+																payload = deflated;
+																flags |= FLAG_DEFLATED;
+												}
+								}
+
+								int headerSize = 2 + (entry != null ? 8 : 0) + ((flags & FLAG_DEFLATED) != 0 ? 4 : 0)
+																								+ ((flags & FLAG_RESPONSE) != 0 ? stringSize(contentType) + stringSize(upstreamEtag) + stringSize(etag) : 0);
+								ByteBuffer buffer = ByteBuffer.allocate(headerSize + payload.length)
+																								.put(VERSION_2)
+																								.put(flags);
+								if(entry != null){
+												buffer.putLong(entry.writtenAt());
+								}
+								if((flags & FLAG_DEFLATED) != 0){
+												buffer.putInt(rawLength);
+								}
+								if((flags & FLAG_RESPONSE) != 0){
+												writeString(buffer, contentType);
+												writeString(buffer, upstreamEtag);
+												writeString(buffer, etag);
+								}
+								byte[] bytes = buffer.put(payload).array();
+
+								writes.increment();
+								rawBytesWritten.add(headerSize + rawLength);
+								storedBytesWritten.add(bytes.length);
+								if((flags & FLAG_DEFLATED) != 0){
+												compressedWrites.increment();
+								}
+								return bytes;
+				}
+
+				@Override
+				public Object deserialize(byte[] bytes) throws SerializationException {
+								if(bytes == null || bytes.length == 0){
+												return null;
+								}
+								reads.increment();
+								bytesRead.add(bytes.length);
+								if(bytes[0] != VERSION_2 && bytes[0] != VERSION_1){
+												legacyReads.increment();
+												return jsonSerializer.deserialize(bytes);
+								}
+								try {
+												ByteBuffer buffer = ByteBuffer.wrap(bytes);
+												byte version = buffer.get();
+												byte flags = buffer.get();
+												if(version == VERSION_1){
+																// quadro sem compressão, sempre com CachedResponse
+																legacyReads.increment();
+																flags |= FLAG_RESPONSE;
+												}
+												Long writtenAt = (flags & FLAG_ENTRY) != 0 ? buffer.getLong() : null;
+												int rawLength = (flags & FLAG_DEFLATED) != 0 ? buffer.getInt() : -1;
+												String contentType = (flags & FLAG_RESPONSE) != 0 ? readString(buffer) : null;
+												String upstreamEtag = (flags & FLAG_RESPONSE) != 0 ? readString(buffer) : null;
+												String etag = (flags & FLAG_ETAG) != 0 ? readString(buffer) : null;
+												byte[] payload = Arrays.copyOfRange(bytes, buffer.position(), bytes.length);
+												if(rawLength >= 0){
+																payload = inflate(payload, rawLength);
+																if(payload == null){
+																				undecodableReads.increment();
+																				return null;
+																}
+												}
+
+												Object content;
+												if((flags & FLAG_NOT_FOUND) != 0){
+																content = CachedResponse.NOT_FOUND;
+												}else if((flags & FLAG_RESPONSE) != 0){
+																content = etag != null
+																								? new CachedResponse(payload, contentType, etag, upstreamEtag)
+																								: CachedResponse.of(payload, contentType, upstreamEtag);
+												}else{
+																content = ((flags & FLAG_SMILE) != 0 ? smileSerializer : jsonSerializer).deserialize(payload);
+												}
+												return writtenAt != null ? new CacheEntry(content, writtenAt) : content;
+								} catch (BufferUnderflowException e) {
+												throw new SerializationException("Valor de cache truncado", e);
+								}
+				}
+
+				/**
+					* Estatísticas do serializador desde a inicialização.
+					*
+					* <p>
+					* {@code rawBytesWritten} é o que seria gravado sem compressão; a diferença para {@code storedBytesWritten}
+					* é a memória economizada no Redis. {@code bytesPerRead} é a média de bytes transferidos por leitura.
+					* </p>
+					*
+					* @return contadores de escrita e leitura
+					*/
+				public Map<String, Object> stats() {
+								long rawBytes = rawBytesWritten.sum();
+								long storedBytes = storedBytesWritten.sum();
+								long readCount = reads.sum();
+								long readBytes = bytesRead.sum();
+								Map<String, Object> stats = new LinkedHashMap<>();
+								stats.put("format", smile ? "smile" : "json");
+								stats.put("compressionThreshold", compressionThreshold);
+								stats.put("dictionary", dictionary != null ? Integer.toHexString(dictionaryId) : null);
+								stats.put("writes", writes.sum());
+								stats.put("compressedWrites", compressedWrites.sum());
+								stats.put("rawBytesWritten", rawBytes);
+								stats.put("storedBytesWritten", storedBytes);
+								stats.put("bytesSaved", rawBytes - storedBytes);
+								stats.put("compressionRatio", storedBytes > 0 ? (double) rawBytes / storedBytes : 0.0);
+								stats.put("reads", readCount);
+								stats.put("bytesRead", readBytes);
+								stats.put("bytesPerRead", readCount > 0 ? readBytes / readCount : 0);
+								stats.put("legacyReads", legacyReads.sum());
+								stats.put("undecodableReads", undecodableReads.sum());
+								return stats;
+				}
+
+				private byte[] deflate(byte[] payload) {
+								Deflater deflater = new Deflater(compressionLevel);
+								try {
+												if(dictionary != null){
+																deflater.setDictionary(dictionary);
+												}
+												deflater.setInput(payload);
+												deflater.finish();
+												// só interessa se ficar menor que o original
+												byte[] output = new byte[payload.length];
+												int length = 0;
+												while (!deflater.finished() && length < output.length) {
+																length += deflater.deflate(output, length, output.length - length);
+												}
+												return deflater.finished() ? Arrays.copyOf(output, length) : payload;
+								} finally {
+												deflater.end();
+								}
+				}
+
+				private byte[] inflate(byte[] payload, int rawLength) {
+								Inflater inflater = new Inflater();
+								try {
+												inflater.setInput(payload);
+												byte[] output = new byte[rawLength];
+												int length = 0;
+												while (length < rawLength) {
+																int inflated = inflater.inflate(output, length, rawLength - length);
+																if(inflated == 0 && inflater.needsDictionary()){
+																				if(dictionary == null || inflater.getAdler() != dictionaryId){
+																								log.warn("Valor de cache comprimido com outro dicionário ({}); tratado como ausente",
+																																								Integer.toHexString(inflater.getAdler()));
+																								return null;
+																				}
+																				inflater.setDictionary(dictionary);
+																}else if(inflated == 0 && (inflater.finished() || inflater.needsInput())){
+																				throw new SerializationException("Valor de cache comprimido truncado");
+																}
+																length += inflated;
+												}
+												return output;
+								} catch (DataFormatException e) {
+												throw new SerializationException("Valor de cache comprimido inválido", e);
+								} finally {
+												inflater.end();
+								}
+				}
+
+				private static int adler32(byte[] bytes) {
+								Adler32 adler32 = new Adler32();
+								adler32.update(bytes);
+								return (int) adler32.getValue();
+				}
+
+				private static byte[] utf8(String value) {
+								return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+				}
+
+				private static int stringSize(byte[] value) {
+								return 2 + (value != null ? value.length : 0);
+				}
+
+				private static void writeString(ByteBuffer buffer, byte[] value) {
+								if(value == null){
+												buffer.putShort((short) -1);
+												return;
+								}
+								buffer.putShort((short) value.length).put(value);
+				}
+
+				private static String readString(ByteBuffer buffer) {
+								short length = buffer.getShort();
+								if(length < 0){
+												return null;
+								}
+								byte[] value = new byte[length];
+								buffer.get(value);
+								return new String(value, StandardCharsets.UTF_8);
+				}
+}
@@ -0,0 +1,145 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+	* Decorator de {@link RateLimiter} que memoriza rejeições até o próximo refil do bucket.
+	*
+	* <p>
+	* Quando o Redis rejeita um cliente, o {@link ConsumptionProbe} já informa quanto tempo falta para haver tokens.
+	* Até esse instante qualquer nova tentativa da mesma chave seria rejeitada de novo, então ela é respondida
+	* localmente, sem round trip. Assim os clientes abusivos, que são os que mais batem no limite,
+	* passam a gerar cerca de uma chamada ao Redis por intervalo de refil.
+	* </p>
+	*
+	* <p>
+	* Cada entrada expira exatamente no instante do refil, limitado a {@link #MAX_DENIAL}. A rejeição vale apenas
+	* para pedidos de pelo menos a mesma quantidade de tokens; pedidos menores seguem para o Redis. Rejeições sem
+	* refil possível (espera {@link Long#MAX_VALUE}, quando o pedido passa da capacidade do bucket) não são memorizadas.
+	* </p>
+	*/
+public class DenyCachingRateLimiter implements RateLimiter {
+
+				/**
+					* Maior tempo que uma rejeição fica memorizada; também evita o estouro de {@code System.nanoTime() + espera}.
+					*/
+				static final Duration MAX_DENIAL = Duration.ofHours(1);
+
+				private final RateLimiter delegate;
+
+				private final Cache<String, Denial> denials;
+
+				/**
+					* Construtor do rate limiter.
+					*
+					* @param delegate rate limiter consultado quando a chave não está negada
+					* @param maximumSize quantidade máxima de chaves negadas mantidas em memória
+					*/
+				public DenyCachingRateLimiter(RateLimiter delegate, long maximumSize) {
+								this.delegate = delegate;
+								this.denials = Caffeine.newBuilder()
+																.maximumSize(maximumSize)
+																.expireAfter(new Expiry<String, Denial>() {
+																				@Override
+																				public long expireAfterCreate(String key, Denial denial, long currentTime) {
+																								return denial.deniedUntilNanos() - currentTime;
+																				}
+
+																				@Override
+																				public long expireAfterUpdate(String key, Denial denial, long currentTime, long currentDuration) {
+																								return denial.deniedUntilNanos() - currentTime;
+																				}
+
+																				@Override
+																				public long expireAfterRead(String key, Denial denial, long currentTime, long currentDuration) {
+																								return currentDuration;
+																				}
+																})
+																.build();
+				}
+
+				@Override
+				public ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								ConsumptionProbe rejection = localRejection(key, tokens);
+								if(rejection != null){
+												return rejection;
+								}
+								ConsumptionProbe probe = delegate.tryConsume(key, configuration, tokens);
+								remember(key, tokens, probe);
+								return probe;
+				}
+
+				/**
+					* Se qualquer uma das chaves está negada localmente, responde sem consultar o {@code delegate};
+					* as demais verificações ficam sem resultado, como em uma rejeição no meio da avaliação.
+					*/
+				@Override
+				public List<ConsumptionProbe> tryConsumeAll(List<RateLimitCheck> checks) {
+								for(int i = 0; i < checks.size(); i++){
+												ConsumptionProbe rejection = localRejection(checks.get(i).key(), checks.get(i).tokens());
+												if(rejection != null){
+																List<ConsumptionProbe> probes = new ArrayList<>(Collections.nCopies(checks.size(), null));
+																probes.set(i, rejection);
+																return probes;
+												}
+								}
+								List<ConsumptionProbe> probes = delegate.tryConsumeAll(checks);
+								for(int i = 0; i < checks.size(); i++){
+												if(probes.get(i) != null){
+																remember(checks.get(i).key(), checks.get(i).tokens(), probes.get(i));
+												}
+								}
+								return probes;
+				}
+
+				@Override
+				public void charge(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								delegate.charge(key, configuration, tokens);
+				}
+
+				@Override
+				public void refund(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								delegate.refund(key, configuration, tokens);
+				}
+
+				private ConsumptionProbe localRejection(String key, long tokens) {
+								Denial denial = denials.getIfPresent(key);
+								if(denial != null && tokens >= denial.tokens()){
+												long nanosToWait = denial.deniedUntilNanos() - System.nanoTime();
+												if(nanosToWait > 0){
+																return ConsumptionProbe.rejected(denial.remainingTokens(), nanosToWait, nanosToWait);
+												}
+								}
+								return null;
+				}
+
+				private void remember(String key, long tokens, ConsumptionProbe probe) {
+								long nanosToWait = probe.getNanosToWaitForRefill();
+								if(!probe.isConsumed() && nanosToWait > 0 && nanosToWait != Long.MAX_VALUE){
+												long deniedForNanos = Math.min(nanosToWait, MAX_DENIAL.toNanos());
+												denials.put(key, new Denial(System.nanoTime() + deniedForNanos, tokens, probe.getRemainingTokens()));
+								}else if(probe.isConsumed()){
+												denials.invalidate(key);
+								}
+				}
+
+				/**
+					* Rejeição memorizada de uma chave.
+					*
+					* @param deniedUntilNanos instante ({@link System#nanoTime()}) a partir do qual o bucket terá tokens
+					* @param tokens quantidade de tokens do pedido rejeitado
+					* @param remainingTokens tokens restantes informados na rejeição
+					*/
+				private record Denial(long deniedUntilNanos, long tokens, long remainingTokens) {
+				}
+}
@@ -0,0 +1,121 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+	* Estimativa aproximada da frequência de chaves em um count-min sketch, no estilo do TinyLFU.
+	*
+	* <p>
+	* Cada chave é contada em quatro contadores de 4 bits, escolhidos por quatro funções de hash; a frequência estimada
+	* é o menor deles, então colisões só superestimam. Os contadores saturam em 15. A cada {@code 10 * largura}
+	* incrementos todos os contadores são divididos por dois, para que chaves que eram frequentes no passado percam peso.
+	* </p>
+	*
+	* <p>
+	* O sketch ocupa 8 bytes para cada 16 contadores, com a largura arredondada para uma potência de 2 a partir da
+	* quantidade esperada de chaves distintas.
+	* </p>
+	*
+	* <p>
+	* O sketch não usa lock: cada contador é atualizado com compare-and-set na sua palavra de 64 bits, então as leituras
+	* e incrementos de threads diferentes, inclusive virtuais, nunca se bloqueiam. A divisão periódica é feita pela thread
+	* que completa a amostra, palavra por palavra; incrementos concorrentes com ela podem ser divididos ou não, o que
+	* não altera a estimativa de forma relevante.
+	* </p>
+	*/
+public class FrequencySketch {
+
+				private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+				private static final long RESET_MASK = 0x7777777777777777L;
+
+				private final AtomicLongArray table;
+
+				private final int tableMask;
+
+				private final int sampleSize;
+
+				private final AtomicInteger size = new AtomicInteger();
+
+				/**
+					* Construtor do sketch.
+					*
+					* @param expectedKeys quantidade esperada de chaves distintas na janela de contagem
+					*/
+				public FrequencySketch(long expectedKeys) {
+								int length = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, expectedKeys) - 1)) << 1;
+								this.table = new AtomicLongArray(length);
+								this.tableMask = length - 1;
+								this.sampleSize = 10 * length;
+				}
+
+				/**
+					* Frequência estimada da chave desde a última divisão dos contadores.
+					*
+					* @param key chave
+					* @return frequência estimada, de 0 a 15
+					*/
+				public int frequency(Object key) {
+								int hash = spread(key.hashCode());
+								int start = (hash & 3) << 2;
+								int frequency = 15;
+								for(int i = 0; i < 4; i++){
+												long counter = (table.get(indexOf(hash, i)) >>> ((start + i) << 2)) & 0xfL;
+												frequency = Math.min(frequency, (int) counter);
+								}
+								return frequency;
+				}
+
+				/**
+					* Conta mais uma ocorrência da chave.
+					*
+					* @param key chave
+					*/
+				public void increment(Object key) {
+								int hash = spread(key.hashCode());
+								int start = (hash & 3) << 2;
+								boolean added = false;
+								for(int i = 0; i < 4; i++){
+												added |= incrementAt(indexOf(hash, i), (start + i) << 2);
+								}
+								if(added && size.incrementAndGet() == sampleSize){
+												reset();
+								}
+				}
+
+				private boolean incrementAt(int index, int offset) {
+								long mask = 0xfL << offset;
+								while(true){
+												long current = table.get(index);
+												if((current & mask) == mask){
+																return false;
+												}
+												if(table.compareAndSet(index, current, current + (1L << offset))){
+																return true;
+												}
+								}
+				}
+
+				private void reset() {
+								for(int i = 0; i < table.length(); i++){
+												table.getAndUpdate(i, value -> (value >>> 1) & RESET_MASK);
+								}
+								size.addAndGet(-(sampleSize / 2));
+				}
+
+				private int indexOf(int hash, int i) {
+								long value = (hash + SEEDS[i]) * SEEDS[i];
+								value += value >>> 32;
+								return (int) value & tableMask;
+				}
+
+				private static int spread(int hash) {
+								hash ^= hash >>> 17;
+								hash *= 0xed5ad4bb;
+								hash ^= hash >>> 11;
+								hash *= 0xac4c1b51;
+								hash ^= hash >>> 15;
+								return hash;
+				}
+}
@@ -0,0 +1,77 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+	* Regras das requisições de hedge do {@link UpstreamClient}.
+	*
+	* <p>
+	* Guarda a latência das últimas {@code windowSize} respostas da API externa e calcula o percentil {@code percentile}.
+	* Uma chamada que passar desse tempo sem resposta recebe uma segunda requisição igual, e vale a que responder primeiro.
+	* Com o percentil 0.95, no máximo cerca de 5% das chamadas geram uma requisição a mais, em troca de cortar a cauda
+	* de latência causada por uma conexão ou instância lenta da API.
+	* </p>
+	*
+	* <p>
+	* O atraso nunca é menor que {@code minDelay} e só há hedge depois de {@code windowSize / 4} amostras.
+	* </p>
+	*/
+public class HedgingPolicy {
+
+				private static final int RECOMPUTE_INTERVAL = 16;
+
+				private final double percentile;
+
+				private final long minDelayNanos;
+
+				private final long[] samples;
+
+				private int next;
+
+				private int count;
+
+				private int sinceRecompute;
+
+				private volatile long delayNanos = -1;
+
+				/**
+					* Construtor da política.
+					*
+					* @param percentile percentil da latência usado como atraso do hedge, de 0 a 1
+					* @param minDelay atraso mínimo do hedge
+					* @param windowSize quantidade de latências consideradas
+					*/
+				public HedgingPolicy(double percentile, Duration minDelay, int windowSize) {
+								this.percentile = Math.min(1.0, Math.max(0.0, percentile));
+								this.minDelayNanos = minDelay.toNanos();
+								this.samples = new long[Math.max(4, windowSize)];
+				}
+
+				/**
+					* Registra a latência de uma resposta da API externa.
+					*
+					* @param nanos latência em nanossegundos
+					*/
+				public synchronized void record(long nanos) {
+								samples[next] = nanos;
+								next = (next + 1) % samples.length;
+								count = Math.min(count + 1, samples.length);
+								if(++sinceRecompute >= RECOMPUTE_INTERVAL && count >= samples.length / 4){
+												sinceRecompute = 0;
+												long[] sorted = Arrays.copyOf(samples, count);
+												Arrays.sort(sorted);
+												int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+												delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+								}
+				}
+
+				/**
+					* Tempo de espera por uma resposta antes de enviar a requisição de hedge.
+					*
+					* @return atraso em nanossegundos, ou {@code -1} enquanto não há amostras suficientes
+					*/
+				public long delayNanos() {
+								return delayNanos;
+				}
+}
@@ -0,0 +1,100 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+	* Decorator de {@link Cache} que conta os acessos a cada chave em um {@link HotKeyTracker}.
+	*
+	* <p>
+	* Fica por fora dos demais decorators, então cada leitura feita pela aplicação conta uma única vez, seja ela um
+	* acerto, uma falta ou uma leitura em lote. As leituras feitas pelo {@link CacheWarmer} não são contadas.
+	* </p>
+	*/
+public class HotKeyCache implements Cache, BatchCache {
+
+				private final Cache delegate;
+
+				private final HotKeyTracker tracker;
+
+				/**
+					* Construtor do cache.
+					*
+					* @param delegate cache decorado
+					* @param tracker contagem dos acessos às chaves
+					*/
+				public HotKeyCache(Cache delegate, HotKeyTracker tracker) {
+								this.delegate = delegate;
+								this.tracker = tracker;
+				}
+
+				@Override
+				public String getName() {
+								return delegate.getName();
+				}
+
+				@Override
+				public Object getNativeCache() {
+								return delegate.getNativeCache();
+				}
+
+				@Override
+				public ValueWrapper get(Object key) {
+								record(key);
+								return delegate.get(key);
+				}
+
+				@Override
+				public <T> T get(Object key, Class<T> type) {
+								record(key);
+								return delegate.get(key, type);
+				}
+
+				@Override
+				public <T> T get(Object key, Callable<T> valueLoader) {
+								record(key);
+								return delegate.get(key, valueLoader);
+				}
+
+				@Override
+				public void put(Object key, Object value) {
+								delegate.put(key, value);
+				}
+
+				@Override
+				public Map<Object, Object> getAll(Collection<?> keys) {
+								keys.forEach(this::record);
+								return BatchCache.getAllFrom(delegate, keys);
+				}
+
+				@Override
+				public void putAll(Map<?, ?> values) {
+								BatchCache.putAllInto(delegate, values);
+				}
+
+				@Override
+				public Map<Object, Object> loadAll(Collection<?> keys, Function<Object, CompletableFuture<?>> loader) {
+								return BatchCache.loadAllFrom(delegate, keys, loader);
+				}
+
+				@Override
+				public void evict(Object key) {
+								delegate.evict(key);
+				}
+
+				@Override
+				public void clear() {
+								delegate.clear();
+				}
+
+				private void record(Object key) {
+								if(!CacheWarmer.isWarming()){
+												tracker.record(key);
+								}
+				}
+}
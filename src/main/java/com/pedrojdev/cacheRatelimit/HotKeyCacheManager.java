@@ -0,0 +1,54 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+	* {@link CacheManager} que envolve em um {@link HotKeyCache} os caches que têm um {@link HotKeyTracker}.
+	*
+	* <p>
+	* Os demais caches são devolvidos como estão.
+	* </p>
+	*/
+public class HotKeyCacheManager implements CacheManager {
+
+				private final CacheManager delegate;
+
+				private final Map<String, HotKeyTracker> trackers;
+
+				private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do gerenciador.
+					*
+					* @param delegate gerenciador dos caches decorados
+					* @param trackers rastreador de cada cache cujos acessos são contados, por nome
+					*/
+				public HotKeyCacheManager(CacheManager delegate, Map<String, HotKeyTracker> trackers) {
+								this.delegate = delegate;
+								this.trackers = trackers;
+				}
+
+				@Override
+				public Cache getCache(String name) {
+								Cache cache = caches.get(name);
+								if(cache != null){
+												return cache;
+								}
+								Cache target = delegate.getCache(name);
+								if(target == null){
+												return null;
+								}
+								HotKeyTracker tracker = trackers.get(name);
+								return caches.computeIfAbsent(name, cacheName -> tracker != null ? new HotKeyCache(target, tracker) : target);
+				}
+
+				@Override
+				public Collection<String> getCacheNames() {
+								return delegate.getCacheNames();
+				}
+}
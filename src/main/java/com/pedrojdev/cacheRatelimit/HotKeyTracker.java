@@ -0,0 +1,103 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+	* Frequência aproximada de acesso às chaves de um cache, para saber quais são as mais acessadas.
+	*
+	* <p>
+	* As chaves candidatas ficam em um mapa com um contador de acessos cada. Quando o mapa passa de {@code 2 * capacity}
+	* chaves, só as {@code capacity} mais acessadas continuam e os seus contadores são divididos por dois, para que
+	* chaves que deixaram de ser acessadas percam a posição. Uma chave fora do mapa entra com a frequência estimada
+	* por um {@link FrequencySketch}, que conta os acessos às chaves não rastreadas; assim uma chave quente descartada
+	* em uma poda volta com o seu histórico, e uma varredura de chaves únicas não desloca as candidatas.
+	* </p>
+	*/
+public class HotKeyTracker {
+
+				private final FrequencySketch sketch;
+
+				private final int capacity;
+
+				private final Map<Object, LongAdder> candidates = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do rastreador.
+					*
+					* @param capacity quantidade de chaves mais acessadas mantidas
+					* @param expectedKeys quantidade esperada de chaves distintas acessadas, usada no tamanho do sketch
+					*/
+				public HotKeyTracker(int capacity, long expectedKeys) {
+								this.capacity = capacity;
+								this.sketch = new FrequencySketch(expectedKeys);
+				}
+
+				/**
+					* Conta um acesso à chave.
+					*
+					* @param key chave acessada
+					*/
+				public void record(Object key) {
+								LongAdder count = candidates.get(key);
+								if(count != null){
+												count.increment();
+												return;
+								}
+								sketch.increment(key);
+								candidates.computeIfAbsent(key, candidate -> {
+												LongAdder initial = new LongAdder();
+												initial.add(sketch.frequency(candidate));
+												return initial;
+								});
+								if(candidates.size() > 2 * capacity){
+												prune();
+								}
+				}
+
+				/**
+					* Chaves mais acessadas, da mais acessada para a menos acessada.
+					*
+					* @param limit quantidade máxima de chaves
+					* @return contagem aproximada de acessos de cada chave, em ordem decrescente
+					*/
+				public Map<Object, Long> top(int limit) {
+								Map<Object, Long> top = new LinkedHashMap<>();
+								for(Map.Entry<Object, Long> candidate : ranked()){
+												if(top.size() >= limit){
+																break;
+												}
+												top.put(candidate.getKey(), candidate.getValue());
+								}
+								return top;
+				}
+
+				private synchronized void prune() {
+								if(candidates.size() <= 2 * capacity){
+												return;
+								}
+								List<Map.Entry<Object, Long>> ranked = ranked();
+								for(int i = 0; i < ranked.size(); i++){
+												Object key = ranked.get(i).getKey();
+												if(i >= capacity){
+																candidates.remove(key);
+																continue;
+												}
+												LongAdder count = candidates.get(key);
+												if(count != null){
+																count.add(-(count.sum() / 2));
+												}
+								}
+				}
+
+				private List<Map.Entry<Object, Long>> ranked() {
+								List<Map.Entry<Object, Long>> ranked = new ArrayList<>(candidates.size());
+								candidates.forEach((key, count) -> ranked.add(Map.entry(key, count.sum())));
+								ranked.sort(Map.Entry.<Object, Long>comparingByValue().reversed());
+								return ranked;
+				}
+}
@@ -0,0 +1,96 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Estimativa da quantidade de instâncias da aplicação, mantida por heartbeat no Redis.
+	*
+	* <p>
+	* Cada instância grava periodicamente o instante do seu último heartbeat em um sorted set e remove os membros que
+	* não renovaram o registro dentro de três intervalos; o próprio sorted set expira se nenhuma instância o renovar.
+	* A quantidade de membros é a estimativa de instâncias ativas, usada pelo {@link ResilientRateLimiter} para dividir
+	* a capacidade dos buckets locais quando o Redis cai.
+	* </p>
+	*
+	* <p>
+	* Se o Redis não responder, a última estimativa é mantida: é justamente nessa situação que ela é usada.
+	* </p>
+	*/
+public class InstanceHeartbeat implements AutoCloseable {
+
+				private final Logger log = LoggerFactory.getLogger(InstanceHeartbeat.class);
+
+				private final StringRedisTemplate redisTemplate;
+
+				private final String key;
+
+				private final String instanceId = UUID.randomUUID().toString();
+
+				private final long expiryMillis;
+
+				private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+								Thread thread = new Thread(runnable, "instance-heartbeat");
+								thread.setDaemon(true);
+								return thread;
+				});
+
+				private volatile int instances = 1;
+
+				/**
+					* Construtor do heartbeat.
+					*
+					* @param redisTemplate template usado para registrar a instância
+					* @param key chave do sorted set com as instâncias
+					* @param interval intervalo entre os heartbeats
+					*/
+				public InstanceHeartbeat(StringRedisTemplate redisTemplate, String key, Duration interval) {
+								this.redisTemplate = redisTemplate;
+								this.key = key;
+								long intervalMillis = Math.max(1, interval.toMillis());
+								this.expiryMillis = intervalMillis * 3;
+								scheduler.scheduleWithFixedDelay(this::beat, 0, intervalMillis, TimeUnit.MILLISECONDS);
+				}
+
+				/**
+					* Quantidade estimada de instâncias ativas, incluindo esta.
+					*
+					* @return quantidade de instâncias, no mínimo 1
+					*/
+				public int instances() {
+								return instances;
+				}
+
+				private void beat() {
+								try {
+												long now = System.currentTimeMillis();
+												redisTemplate.opsForZSet().add(key, instanceId, now);
+												redisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY, now - expiryMillis);
+												redisTemplate.expire(key, Duration.ofMillis(expiryMillis));
+												Long count = redisTemplate.opsForZSet().zCard(key);
+												instances = count != null ? (int) Math.max(1, count) : instances;
+								} catch (RuntimeException e) {
+												log.debug("Falha no heartbeat da instância, mantendo a estimativa de {} instâncias: {}", instances, e.toString());
+								}
+				}
+
+				/**
+					* Interrompe os heartbeats e remove o registro desta instância.
+					*/
+				@Override
+				public void close() {
+								scheduler.shutdownNow();
+								try {
+												redisTemplate.opsForZSet().remove(key, instanceId);
+								} catch (RuntimeException e) {
+												log.debug("Falha ao remover o registro da instância: {}", e.toString());
+								}
+				}
+}
@@ -0,0 +1,190 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+	* Circuit breaker que abre por erros ou por lentidão das chamadas.
+	*
+	* <p>
+	* As últimas {@code windowSize} chamadas ficam em uma janela circular. Uma chamada conta como falha se lançar
+	* uma exceção ou se demorar mais que {@code slowCallThreshold}. Com pelo menos {@code minimumCalls} chamadas na janela
+	* e a taxa de falhas acima de {@code failureRateThreshold}, o circuito abre por {@code openDuration}.
+	* </p>
+	*
+	* <p>
+	* Depois desse período o circuito fica meio aberto: apenas uma chamada de teste por vez é liberada.
+	* Se ela for bem-sucedida e rápida, o circuito fecha e a janela é zerada; senão, volta a abrir.
+	* </p>
+	*/
+public class LatencyCircuitBreaker {
+
+				/**
+					* Estado do circuito.
+					*/
+				public enum State { CLOSED, OPEN, HALF_OPEN }
+
+				/**
+					* Resposta de {@link #tryAcquire()}: se a chamada pode ser feita e se ela é a chamada de teste.
+					*/
+				public enum Permit { DENIED, CALL, TRIAL }
+
+				private final long slowCallThresholdNanos;
+
+				private final double failureRateThreshold;
+
+				private final int minimumCalls;
+
+				private final long openDurationNanos;
+
+				private final boolean[] window;
+
+				private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+				private volatile State state = State.CLOSED;
+
+				private volatile long openUntilNanos;
+
+				private int next;
+
+				private int calls;
+
+				private int failures;
+
+				/**
+					* Construtor do circuit breaker.
+					*
+					* @param slowCallThreshold duração a partir da qual uma chamada bem-sucedida conta como falha
+					* @param failureRateThreshold fração de falhas na janela que abre o circuito, de 0 a 1
+					* @param windowSize quantidade de chamadas consideradas
+					* @param minimumCalls quantidade mínima de chamadas na janela antes de avaliar a taxa de falhas
+					* @param openDuration tempo em que o circuito fica aberto antes da chamada de teste
+					*/
+				public LatencyCircuitBreaker(Duration slowCallThreshold, double failureRateThreshold, int windowSize, int minimumCalls,
+												Duration openDuration) {
+								this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+								this.failureRateThreshold = failureRateThreshold;
+								this.window = new boolean[Math.max(1, windowSize)];
+								this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+								this.openDurationNanos = openDuration.toNanos();
+				}
+
+				/**
+					* Indica se a chamada pode ir ao recurso protegido. Com o circuito meio aberto, apenas a primeira thread
+					* recebe {@link Permit#TRIAL}. O resultado de toda chamada permitida deve ser informado com
+					* {@link #onSuccess(Permit, long)} ou {@link #onFailure(Permit)}, inclusive quando a chamada termina com um
+					* {@link Error}; senão o circuito meio aberto não libera outra chamada de teste.
+					*
+					* @return permissão da chamada
+					*/
+				public Permit tryAcquire() {
+								State current = state;
+								if(current == State.CLOSED){
+												return Permit.CALL;
+								}
+								if(current == State.OPEN && System.nanoTime() - openUntilNanos < 0){
+												return Permit.DENIED;
+								}
+								if(trialInFlight.compareAndSet(false, true)){
+												state = State.HALF_OPEN;
+												return Permit.TRIAL;
+								}
+								return Permit.DENIED;
+				}
+
+				/**
+					* Registra uma chamada concluída sem erro.
+					*
+					* @param permit permissão recebida em {@link #tryAcquire()}
+					* @param elapsedNanos duração da chamada
+					* @return {@code true} se esta chamada fechou o circuito
+					*/
+				public boolean onSuccess(Permit permit, long elapsedNanos) {
+								boolean slow = elapsedNanos > slowCallThresholdNanos;
+								if(permit == Permit.TRIAL){
+												return finishTrial(!slow);
+								}
+								record(slow);
+								return false;
+				}
+
+				/**
+					* Registra uma chamada que falhou.
+					*
+					* @param permit permissão recebida em {@link #tryAcquire()}
+					*/
+				public void onFailure(Permit permit) {
+								if(permit == Permit.TRIAL){
+												finishTrial(false);
+												return;
+								}
+								record(true);
+				}
+
+				/**
+					* Estado atual do circuito.
+					*
+					* @return estado
+					*/
+				public State state() {
+								return state;
+				}
+
+				/**
+					* Tempo até a próxima chamada de teste, ou zero se o circuito estiver fechado ou já puder ser testado.
+					*
+					* @return nanossegundos até a próxima chamada de teste
+					*/
+				public long nanosUntilRetry() {
+								return state == State.CLOSED ? 0 : Math.max(0, openUntilNanos - System.nanoTime());
+				}
+
+				/**
+					* Registra o resultado na janela. Resultados de chamadas iniciadas antes da abertura do circuito são ignorados.
+					*/
+				private synchronized void record(boolean failure) {
+								if(state != State.CLOSED){
+												return;
+								}
+								if(calls == window.length){
+												if(window[next]){
+																failures--;
+												}
+								}else{
+												calls++;
+								}
+								window[next] = failure;
+								if(failure){
+												failures++;
+								}
+								next = (next + 1) % window.length;
+								if(calls >= minimumCalls && failures >= failureRateThreshold * calls){
+												open();
+								}
+				}
+
+				/**
+					* Encerra a chamada de teste. A vaga de teste só é liberada depois da mudança de estado, para que nenhuma
+					* outra thread receba {@link Permit#TRIAL} com o resultado desta ainda pendente.
+					*/
+				private synchronized boolean finishTrial(boolean success) {
+								try {
+												if(!success){
+																open();
+																return false;
+												}
+												calls = 0;
+												failures = 0;
+												next = 0;
+												state = State.CLOSED;
+												return true;
+								} finally {
+												trialInFlight.set(false);
+								}
+				}
+
+				private void open() {
+								openUntilNanos = System.nanoTime() + openDurationNanos;
+								state = State.OPEN;
+				}
+}
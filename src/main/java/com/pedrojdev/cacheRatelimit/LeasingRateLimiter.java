@@ -0,0 +1,331 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.VerboseResult;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+	* {@link RateLimiter} que reserva lotes de tokens do bucket no Redis e os consome localmente.
+	*
+	* <p>
+	* Cada instância retira do bucket distribuído um lote de tokens (o "lease") e atende as requisições
+	* seguintes decrementando um contador atômico, sem round trip ao Redis. Só quando o lote acaba, ou expira,
+	* um novo lote é reservado, com um único round trip mesmo quando a requisição é recusada. Tokens não usados de
+	* um lote expirado são devolvidos ao bucket pela limpeza periódica.
+	* </p>
+	*
+	* <p>
+	* O tamanho do lote é uma fração da capacidade do bucket, limitada por {@code maxBatch}: lotes maiores reduzem
+	* as chamadas ao Redis, mas permitem que uma instância segure tokens que outra poderia usar.
+	* Com lote 1 o comportamento é o mesmo do {@link Bucket4jRateLimiter}. O header de tokens restantes passa
+	* a refletir o que ainda está reservado nesta instância somado ao saldo do Redis no momento da reserva.
+	* </p>
+	*/
+public class LeasingRateLimiter implements RateLimiter, AutoCloseable {
+
+				private final Logger log = LoggerFactory.getLogger(LeasingRateLimiter.class);
+
+				private final ProxyManager<String> proxyManager;
+
+				private final double capacityFraction;
+
+				private final long maxBatch;
+
+				private final long leaseTtlNanos;
+
+				private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+				private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+								Thread thread = new Thread(runnable, "rate-limit-lease-sweeper");
+								thread.setDaemon(true);
+								return thread;
+				});
+
+				/**
+					* Construtor do rate limiter.
+					*
+					* @param proxyManager gerenciador de buckets
+					* @param capacityFraction fração da capacidade do bucket reservada por lote
+					* @param maxBatch tamanho máximo de um lote
+					* @param leaseTtl tempo de vida de um lote; após isso os tokens restantes são devolvidos
+					*/
+				public LeasingRateLimiter(ProxyManager<String> proxyManager, double capacityFraction, long maxBatch, Duration leaseTtl) {
+								this.proxyManager = proxyManager;
+								this.capacityFraction = capacityFraction;
+								this.maxBatch = maxBatch;
+								this.leaseTtlNanos = leaseTtl.toNanos();
+								long sweepMillis = Math.max(1, leaseTtl.toMillis());
+								sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+				}
+
+				/**
+					* Consome do lote local e, quando ele acaba, renova o lote com o lock dele. Um lote aposentado no meio do
+					* caminho leva a uma nova tentativa só depois de liberado o seu lock, para que a renovação do lote substituto
+					* não vá ao Redis segurando o lock do antigo.
+					*/
+				@Override
+				public ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								while(true){
+												Lease lease = leases.get(key);
+												if(lease == null){
+																lease = leases.computeIfAbsent(key, k -> new Lease(bucket(k, configuration), configuration));
+												}
+												if(lease.isOutdatedBy(configuration)){
+																retire(key, lease);
+																continue;
+												}
+												long now = System.nanoTime();
+												if(lease.tryConsumeLocal(tokens, now)){
+																return ConsumptionProbe.consumed(lease.estimatedRemaining(), 0);
+												}
+												lease.lock.lock();
+												try {
+																if(lease.retired){
+																				continue;
+																}
+																if(lease.tryConsumeLocal(tokens, now)){
+																				return ConsumptionProbe.consumed(lease.estimatedRemaining(), 0);
+																}
+																return lease.renew(tokens, now);
+												} finally {
+																lease.lock.unlock();
+												}
+								}
+				}
+
+				@Override
+				public void charge(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								bucket(key, configuration).consumeIgnoringRateLimits(tokens);
+				}
+
+				/**
+					* Devolve os tokens ao lote da chave, se ele ainda estiver valendo; senão, direto ao bucket no Redis.
+					*/
+				@Override
+				public void refund(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								Lease lease = leases.get(key);
+								if(lease != null){
+												lease.lock.lock();
+												try {
+																if(!lease.retired && !lease.isExpired(System.nanoTime())){
+																				lease.tokens.addAndGet(tokens);
+																				return;
+																}
+												} finally {
+																lease.lock.unlock();
+												}
+								}
+								bucket(key, configuration).addTokens(tokens);
+				}
+
+				/**
+					* Devolve ao Redis os tokens de lotes expirados e descarta os lotes sem uso.
+					*/
+				private void sweep() {
+								long now = System.nanoTime();
+								leases.forEach((key, lease) -> {
+												if(!lease.isExpired(now)){
+																return;
+												}
+												lease.lock.lock();
+												try {
+																if(lease.isExpired(now)){
+																				lease.giveBack();
+																				lease.retired = true;
+																				leases.remove(key, lease);
+																}
+												} finally {
+																lease.lock.unlock();
+												}
+								});
+				}
+
+				/**
+					* Devolve os tokens de um lote cuja regra foi recarregada, para que o próximo lote use a nova configuração.
+					*/
+				private void retire(String key, Lease lease) {
+								lease.lock.lock();
+								try {
+												if(!lease.retired){
+																lease.giveBack();
+																lease.retired = true;
+																leases.remove(key, lease);
+												}
+								} finally {
+												lease.lock.unlock();
+								}
+				}
+
+				/**
+					* Encerra a limpeza periódica e devolve ao Redis todos os tokens ainda reservados.
+					*
+					* <p>
+					* Uma limpeza em andamento termina antes, por até alguns segundos: interrompida, ela falharia em todas
+					* as devoluções seguintes ao Redis.
+					* </p>
+					*/
+				@Override
+				public void close() {
+								sweeper.shutdown();
+								try {
+												sweeper.awaitTermination(5, TimeUnit.SECONDS);
+								} catch (InterruptedException e) {
+												Thread.currentThread().interrupt();
+								}
+								leases.forEach((key, lease) -> {
+												lease.lock.lock();
+												try {
+																lease.giveBack();
+												} finally {
+																lease.lock.unlock();
+												}
+								});
+								leases.clear();
+				}
+
+				private Bucket bucket(String key, Supplier<BucketConfiguration> configuration) {
+								RemoteBucketBuilder<String> builder = proxyManager.builder();
+								if(configuration instanceof RateLimitRule rule){
+												builder = builder.withImplicitConfigurationReplacement(rule.version(), TokensInheritanceStrategy.PROPORTIONALLY);
+								}
+								return builder.build(Bucket4jRateLimiter.KEY_PREFIX + key, configuration);
+				}
+
+				private long batchSize(BucketConfiguration configuration, long tokens) {
+								long capacity = Long.MAX_VALUE;
+								for(Bandwidth bandwidth : configuration.getBandwidths()){
+												capacity = Math.min(capacity, bandwidth.getCapacity());
+								}
+								long batch = Math.min(maxBatch, (long) (capacity * capacityFraction));
+								return Math.max(tokens, batch);
+				}
+
+				/**
+					* Lote de tokens reservado para uma chave. O consumo local é lock-free; a renovação é feita
+					* com o lock do próprio lote, para que apenas uma thread por chave vá ao Redis.
+					* Um lote removido pela limpeza fica marcado como {@code retired} e não é mais renovado.
+					*
+					* <p>
+					* O lock é um {@link ReentrantLock} e não o monitor do objeto: a renovação espera o Redis, e uma
+					* virtual thread bloqueada dentro de {@code synchronized} prende a sua thread portadora no Java 21.
+					* </p>
+					*/
+				private final class Lease {
+
+								private final Bucket bucket;
+
+								private final Supplier<BucketConfiguration> configuration;
+
+								private final AtomicLong tokens = new AtomicLong();
+
+								private final ReentrantLock lock = new ReentrantLock();
+
+								private volatile long expiresAtNanos;
+
+								private volatile long remoteRemaining;
+
+								private boolean retired;
+
+								private Lease(Bucket bucket, Supplier<BucketConfiguration> configuration) {
+												this.bucket = bucket;
+												this.configuration = configuration;
+												this.expiresAtNanos = System.nanoTime();
+								}
+
+								boolean isExpired(long now) {
+												return now - expiresAtNanos >= 0;
+								}
+
+								boolean isOutdatedBy(Supplier<BucketConfiguration> current) {
+												return current != configuration
+																				&& current instanceof RateLimitRule rule
+																				&& configuration instanceof RateLimitRule leased
+																				&& rule.id().equals(leased.id())
+																				&& rule.version() > leased.version();
+								}
+
+								boolean tryConsumeLocal(long requested, long now) {
+												if(isExpired(now)){
+																return false;
+												}
+												long current;
+												do {
+																current = tokens.get();
+																if(current < requested){
+																				return false;
+																}
+												} while (!tokens.compareAndSet(current, current - requested));
+												return true;
+								}
+
+								long estimatedRemaining() {
+												return tokens.get() + remoteRemaining;
+								}
+
+								/**
+									* Reserva um novo lote no Redis com uma única chamada. Os tokens que ainda restam no lote contam para o novo,
+									* em vez de serem devolvidos antes.
+									*
+									* <p>
+									* Se o Redis não tiver tokens suficientes, o que foi reservado fica no lote, para as próximas requisições
+									* ou para a limpeza devolver ao vencer, e a recusa é montada com o estado do bucket que a própria reserva
+									* devolve: o tempo de espera é o necessário para repor os tokens que faltam.
+									* </p>
+									*/
+								ConsumptionProbe renew(long requested, long now) {
+												long held = tokens.getAndSet(0);
+												if(held >= requested){
+																tokens.set(held - requested);
+																expiresAtNanos = now + leaseTtlNanos;
+																return ConsumptionProbe.consumed(estimatedRemaining(), 0);
+												}
+												long batch = batchSize(configuration.get(), requested);
+												VerboseResult<Long> result = bucket.asVerbose().tryConsumeAsMuchAsPossible(batch - held);
+												long leased = held + result.getValue();
+												remoteRemaining = result.getDiagnostics().getAvailableTokens();
+												expiresAtNanos = now + leaseTtlNanos;
+												if(leased >= requested){
+																tokens.set(leased - requested);
+																return ConsumptionProbe.consumed(estimatedRemaining(), 0);
+												}
+												tokens.set(leased);
+												long nanosToWait = result.getState()
+																				.calculateDelayNanosAfterWillBePossibleToConsume(requested - leased, result.getOperationTimeNanos(), false);
+												long nanosToReset = result.getDiagnostics().calculateFullRefillingTime();
+												return ConsumptionProbe.rejected(estimatedRemaining(), nanosToWait, nanosToReset);
+								}
+
+								/**
+									* Devolve ao bucket os tokens ainda não consumidos deste lote.
+									*/
+								void giveBack() {
+												long unused = tokens.getAndSet(0);
+												expiresAtNanos = System.nanoTime();
+												if(unused <= 0){
+																return;
+												}
+												try {
+																bucket.addTokens(unused);
+												} catch (RuntimeException e) {
+																log.warn("Falha ao devolver {} tokens reservados ao Redis: {}", unused, e.getMessage());
+												}
+								}
+				}
+}
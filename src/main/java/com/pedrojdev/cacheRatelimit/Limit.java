@@ -0,0 +1,52 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+	* Uma banda de um limite {@link RateLimited}: capacidade do bucket e ritmo de reabastecimento.
+	*
+	* <p>
+	* Várias bandas podem ser combinadas no mesmo limite, por exemplo uma de rajada curta e outra de
+	* consumo sustentado. O consumo só é permitido quando todas as bandas têm tokens suficientes.
+	* </p>
+	*
+	* <p>
+	* Exemplo de uso:
+	* <pre>{@code
+	* @RateLimited(scope = "IP", limits = {
+	*         @Limit(capacity = 5, tokens = 5, period = 1),
+	*         @Limit(capacity = 100, tokens = 100, period = 3600)
+	* })
+	* }</pre>
+	* </p>
+	*/
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Limit {
+				/**
+					* Quantidade máxima de tokens da banda.
+					*/
+				long capacity();
+
+				/**
+					* Tokens adicionados a cada período.
+					*/
+				long tokens();
+
+				/**
+					* Duração do período de reabastecimento, em segundos.
+					*/
+				long period() default 1;
+
+				/**
+					* Tokens disponíveis na criação do bucket; negativo para começar cheio.
+					*/
+				long initialTokens() default -1;
+
+				/**
+					* Reabastece os tokens de forma contínua ao longo do período, em vez de todos de uma vez no fim dele.
+					*/
+				boolean greedy() default false;
+}
@@ -0,0 +1,57 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+	* Amostragem de logs de eventos frequentes: no máximo um registro por intervalo.
+	*
+	* <p>
+	* Cada evento é contado; o evento que pode ser registrado recebe a quantidade de eventos desde o último registro,
+	* para que o log informe o volume mesmo sem registrar cada ocorrência. Os demais eventos custam um incremento
+	* atômico e uma leitura do relógio.
+	* </p>
+	*
+	* <p>
+	* Exemplo de uso:
+	* <pre>{@code
+	* long events = sampler.sample();
+	* if(events > 0){
+	*     log.warn("Rate limit atingido ({} vezes no último minuto)", events);
+	* }
+	* }</pre>
+	* </p>
+	*/
+public class LogSampler {
+
+				private final long intervalNanos;
+
+				private final AtomicLong events = new AtomicLong();
+
+				private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+
+				/**
+					* Construtor do amostrador.
+					*
+					* @param interval intervalo mínimo entre dois registros
+					*/
+				public LogSampler(Duration interval) {
+								this.intervalNanos = interval.toNanos();
+				}
+
+				/**
+					* Conta um evento e indica se ele deve ser registrado.
+					*
+					* @return quantidade de eventos desde o último registro, incluindo este, se o evento deve ser registrado;
+					* {@code 0} caso contrário
+					*/
+				public long sample() {
+								events.incrementAndGet();
+								long now = System.nanoTime();
+								long next = nextLogAt.get();
+								if(now - next < 0 || !nextLogAt.compareAndSet(next, now + intervalNanos)){
+												return 0;
+								}
+								return events.getAndSet(0);
+				}
+}
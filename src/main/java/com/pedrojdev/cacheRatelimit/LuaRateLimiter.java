@@ -0,0 +1,178 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+	* {@link RateLimiter} que decide o consumo com um script Lua (GCRA) executado atomicamente no Redis.
+	*
+	* <p>
+	* Diferente do {@link io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager}, que lê o estado,
+	* calcula no cliente e grava com compare-and-swap (repetindo tudo quando há disputa pela mesma chave),
+	* aqui leitura, cálculo e escrita acontecem dentro de um único {@code EVALSHA}. Não há retentativas,
+	* então a decisão custa sempre um round trip, mesmo em chaves muito disputadas como {@code "GLOBAL"}.
+	* </p>
+	*
+	* <p>
+	* O estado de cada bucket é apenas o TAT (theoretical arrival time) de cada banda, em microssegundos,
+	* guardado como texto em uma chave com expiração automática. O relógio usado é o do Redis.
+	* O GCRA reabastece os tokens de forma contínua: uma banda configurada com {@code refillIntervally}
+	* recebe os tokens distribuídos ao longo do período, em vez de todos de uma vez no fim dele.
+	* </p>
+	*
+	* <p>
+	* {@link #tryConsumeAll(List)} passa todas as chaves para o mesmo script, que só grava os buckets se todos
+	* tiverem tokens suficientes. Em um Redis Cluster as chaves precisariam estar no mesmo slot.
+	* </p>
+	*
+	* <p>
+	* Os argumentos de cada configuração são convertidos uma única vez e reaproveitados enquanto a mesma
+	* {@link RateLimitRule} estiver em uso. Como o estado guarda apenas os TATs, uma regra recarregada vale a partir
+	* da chamada seguinte, sem migração.
+	* </p>
+	*/
+public class LuaRateLimiter implements RateLimiter {
+
+				static final String KEY_PREFIX = BucketKeys.NAMESPACE + "gcra:";
+
+				private final RedisCommands<String, String> commands;
+
+				private final String script;
+
+				private final String scriptSha;
+
+				/**
+					* Argumentos do script para o consumo de um token, por fornecedor de configuração.
+					*/
+				private final Cache<Supplier<BucketConfiguration>, String[]> arguments = Caffeine.newBuilder()
+												.weakKeys()
+												.build();
+
+				/**
+					* Construtor do rate limiter.
+					*
+					* @param connection conexão Lettuce com codec de strings
+					*/
+				public LuaRateLimiter(StatefulRedisConnection<String, String> connection) {
+								this.commands = connection.sync();
+								this.script = loadScript("scripts/rate-limit-gcra.lua");
+								this.scriptSha = commands.digest(script);
+				}
+
+				@Override
+				public ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								String[] keys = {KEY_PREFIX + key};
+								return probe(execute(keys, arguments(configuration, tokens)), 0);
+				}
+
+				/**
+					* Devolve os tokens executando o script com uma quantidade negativa, que recua o TAT de cada banda
+					* sem passar do instante atual, ou seja, sem passar da capacidade.
+					*/
+				@Override
+				public void refund(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								String[] keys = {KEY_PREFIX + key};
+								execute(keys, arguments(configuration, -tokens));
+				}
+
+				@Override
+				public List<ConsumptionProbe> tryConsumeAll(List<RateLimitCheck> checks) {
+								String[] keys = new String[checks.size()];
+								List<String> args = new ArrayList<>();
+								for(int i = 0; i < keys.length; i++){
+												RateLimitCheck check = checks.get(i);
+												keys[i] = KEY_PREFIX + check.key();
+												Collections.addAll(args, arguments(check.configuration(), check.tokens()));
+								}
+								List<Object> result = execute(keys, args.toArray(String[]::new));
+								List<ConsumptionProbe> probes = new ArrayList<>(keys.length);
+								for(int i = 0; i < keys.length; i++){
+												probes.add(probe(result, i * 4));
+								}
+								return probes;
+				}
+
+				private List<Object> execute(String[] keys, String[] args) {
+								try {
+												return commands.evalsha(scriptSha, ScriptOutputType.MULTI, keys, args);
+								} catch (RedisNoScriptException e) {
+												// script ainda não está no cache do Redis (reinício ou SCRIPT FLUSH); o EVAL também o registra
+												return commands.eval(script, ScriptOutputType.MULTI, keys, args);
+								}
+				}
+
+				private String[] arguments(Supplier<BucketConfiguration> configuration, long tokens) {
+								String[] args = arguments.getIfPresent(configuration);
+								if(args == null){
+												args = arguments.get(configuration, supplier -> scriptArguments(supplier.get(), 1));
+								}
+								if(tokens == 1){
+												return args;
+								}
+								args = args.clone();
+								args[0] = String.valueOf(tokens);
+								return args;
+				}
+
+				/**
+					* Converte as quatro posições do retorno do script a partir de {@code offset} em um {@link ConsumptionProbe}.
+					*/
+				private static ConsumptionProbe probe(List<Object> result, int offset) {
+								long remaining = Math.max(0, (Long) result.get(offset + 1));
+								long nanosToWait = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(asString(result.get(offset + 2))));
+								long nanosToReset = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(asString(result.get(offset + 3))));
+								if((Long) result.get(offset) == 1L){
+												return ConsumptionProbe.consumed(remaining, nanosToReset);
+								}
+								return ConsumptionProbe.rejected(remaining, nanosToWait, nanosToReset);
+				}
+
+				/**
+					* Converte a configuração do bucket nos argumentos do script: para cada banda, capacidade,
+					* intervalo de emissão de um token (em microssegundos) e tokens iniciais.
+					*/
+				static String[] scriptArguments(BucketConfiguration configuration, long tokens) {
+								Bandwidth[] bandwidths = configuration.getBandwidths();
+								String[] args = new String[2 + bandwidths.length * 3];
+								args[0] = String.valueOf(tokens);
+								args[1] = String.valueOf(bandwidths.length);
+								for(int i = 0; i < bandwidths.length; i++){
+												Bandwidth bandwidth = bandwidths[i];
+												double intervalMicros = bandwidth.getRefillPeriodNanos() / 1000.0 / bandwidth.getRefillTokens();
+												args[2 + i * 3] = String.valueOf(bandwidth.getCapacity());
+												args[3 + i * 3] = String.valueOf(intervalMicros);
+												args[4 + i * 3] = String.valueOf(bandwidth.getInitialTokens());
+								}
+								return args;
+				}
+
+				private static String asString(Object value) {
+								return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.US_ASCII) : String.valueOf(value);
+				}
+
+				private static String loadScript(String path) {
+								try {
+												return StreamUtils.copyToString(new ClassPathResource(path).getInputStream(), StandardCharsets.UTF_8);
+								} catch (IOException e) {
+												throw new UncheckedIOException("Não foi possível carregar o script " + path, e);
+								}
+				}
+}
@@ -0,0 +1,166 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+	* Decorator de {@link Cache} que publica métricas do cache no Micrometer.
+	*
+	* <p>
+	* Métricas, todas com a tag {@code cache}:
+	* <ul>
+	*     <li>{@code cache.gets} - chaves lidas, com {@code result} {@code hit} ou {@code miss}; nas leituras com loader,
+	*     {@code miss} é a leitura que chamou o loader</li>
+	*     <li>{@code cache.get} - tempo das leituras, com {@code operation} {@code single} ou {@code batch}, incluindo a carga
+	*     quando a leitura chama o loader</li>
+	*     <li>{@code cache.load} - tempo das cargas feitas pelo loader, com {@code result} {@code success} ou {@code failure}</li>
+	*     <li>{@code cache.puts} - chaves gravadas</li>
+	* </ul>
+	* Os medidores são criados uma única vez, então cada operação só incrementa contadores.
+	* </p>
+	*/
+public class MeteredCache implements Cache, BatchCache {
+
+				private final Cache delegate;
+
+				private final Counter hits;
+
+				private final Counter misses;
+
+				private final Counter puts;
+
+				private final Timer singleGets;
+
+				private final Timer batchGets;
+
+				private final Timer loads;
+
+				private final Timer failedLoads;
+
+				/**
+					* Construtor do cache.
+					*
+					* @param delegate cache decorado
+					* @param registry registro das métricas
+					*/
+				public MeteredCache(Cache delegate, MeterRegistry registry) {
+								this.delegate = delegate;
+								Tags tags = Tags.of("cache", delegate.getName());
+								this.hits = Counter.builder("cache.gets").tags(tags).tag("result", "hit").register(registry);
+								this.misses = Counter.builder("cache.gets").tags(tags).tag("result", "miss").register(registry);
+								this.puts = Counter.builder("cache.puts").tags(tags).register(registry);
+								this.singleGets = Timer.builder("cache.get").tags(tags).tag("operation", "single").register(registry);
+								this.batchGets = Timer.builder("cache.get").tags(tags).tag("operation", "batch").register(registry);
+								this.loads = Timer.builder("cache.load").tags(tags).tag("result", "success").register(registry);
+								this.failedLoads = Timer.builder("cache.load").tags(tags).tag("result", "failure").register(registry);
+				}
+
+				@Override
+				public String getName() {
+								return delegate.getName();
+				}
+
+				@Override
+				public Object getNativeCache() {
+								return delegate.getNativeCache();
+				}
+
+				@Override
+				public ValueWrapper get(Object key) {
+								long start = System.nanoTime();
+								ValueWrapper value = delegate.get(key);
+								singleGets.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+								(value != null ? hits : misses).increment();
+								return value;
+				}
+
+				@Override
+				public <T> T get(Object key, Class<T> type) {
+								long start = System.nanoTime();
+								T value = delegate.get(key, type);
+								singleGets.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+								(value != null ? hits : misses).increment();
+								return value;
+				}
+
+				@Override
+				public <T> T get(Object key, Callable<T> valueLoader) {
+								AtomicBoolean loaded = new AtomicBoolean();
+								long start = System.nanoTime();
+								try {
+												return delegate.get(key, () -> {
+																loaded.set(true);
+																return load(valueLoader);
+												});
+								} finally {
+												singleGets.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+												(loaded.get() ? misses : hits).increment();
+								}
+				}
+
+				@Override
+				public void put(Object key, Object value) {
+								delegate.put(key, value);
+								puts.increment();
+				}
+
+				@Override
+				public Map<Object, Object> getAll(Collection<?> keys) {
+								long start = System.nanoTime();
+								Map<Object, Object> values = BatchCache.getAllFrom(delegate, keys);
+								batchGets.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+								hits.increment(values.size());
+								misses.increment(keys.size() - values.size());
+								return values;
+				}
+
+				@Override
+				public void putAll(Map<?, ?> values) {
+								BatchCache.putAllInto(delegate, values);
+								puts.increment(values.size());
+				}
+
+				@Override
+				public Map<Object, Object> loadAll(Collection<?> keys, Function<Object, CompletableFuture<?>> loader) {
+								Map<Object, Object> values = BatchCache.loadAllFrom(delegate, keys, key -> {
+												long start = System.nanoTime();
+												return loader.apply(key).whenComplete((value, error) ->
+																				(error == null ? loads : failedLoads).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+								});
+								puts.increment(values.size());
+								return values;
+				}
+
+				@Override
+				public void evict(Object key) {
+								delegate.evict(key);
+				}
+
+				@Override
+				public void clear() {
+								delegate.clear();
+				}
+
+				private <T> T load(Callable<T> valueLoader) throws Exception {
+								long start = System.nanoTime();
+								try {
+												T value = valueLoader.call();
+												loads.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+												return value;
+								} catch (Exception e) {
+												failedLoads.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+												throw e;
+								}
+				}
+}
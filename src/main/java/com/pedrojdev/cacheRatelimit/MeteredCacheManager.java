@@ -0,0 +1,50 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+	* {@link CacheManager} que envolve cada cache em um {@link MeteredCache}.
+	*/
+public class MeteredCacheManager implements CacheManager {
+
+				private final CacheManager delegate;
+
+				private final MeterRegistry registry;
+
+				private final Map<String, MeteredCache> caches = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do gerenciador.
+					*
+					* @param delegate gerenciador dos caches decorados
+					* @param registry registro das métricas
+					*/
+				public MeteredCacheManager(CacheManager delegate, MeterRegistry registry) {
+								this.delegate = delegate;
+								this.registry = registry;
+				}
+
+				@Override
+				public Cache getCache(String name) {
+								MeteredCache cache = caches.get(name);
+								if(cache != null){
+												return cache;
+								}
+								Cache target = delegate.getCache(name);
+								if(target == null){
+												return null;
+								}
+								return caches.computeIfAbsent(name, cacheName -> new MeteredCache(target, registry));
+				}
+
+				@Override
+				public Collection<String> getCacheNames() {
+								return delegate.getCacheNames();
+				}
+}
@@ -1,20 +1,18 @@
 package com.pedrojdev.cacheRatelimit;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.ConsumptionProbe;
-import io.github.bucket4j.distributed.proxy.ProxyManager;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Duration;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
+import java.lang.reflect.Method;
+import java.util.List;
 
 
 /**
@@ -33,12 +31,19 @@ import java.util.function.Supplier;
 	*     <li>{@code X-Rate-Limit-Retry-After-Seconds} - tempo em segundos até o próximo token estar disponível</li>
 	* </ul>
 	* </p>
+	*
+	* <p>
+	* Normalmente o limite do método já foi avaliado pelo {@link RateLimiteFilter}, junto com o da API key e
+	* em um único round trip (ver {@link RateLimitPipeline}); nesse caso o aspecto apenas segue com a execução.
+	* Ele só consulta o bucket quando o filtro não pôde avaliar o limite, por exemplo quando o custo depende de
+	* um argumento que não vem dos parâmetros da requisição.
+	* </p>
 	*/
 @Aspect
 @Component
 public class RateLimitAspect {
 
-				private final ProxyManager<String> proxyManager;
+				private final RateLimitPipeline rateLimitPipeline;
 
 				private final HttpServletRequest servletHttpRequest;
 
@@ -47,12 +52,13 @@ public class RateLimitAspect {
 				/**
 					* Construtor do aspecto.
 					*
-					* @param proxyManager gerenciador de buckets
+					* @param rateLimitPipeline avaliação das verificações de rate limit
 					* @param servletHttpRequest requisição HTTP atual
 					* @param servletResponse resposta HTTP atual
 					*/
-				public RateLimitAspect(ProxyManager<String> proxyManager, HttpServletRequest servletHttpRequest, HttpServletResponse servletResponse) {
-								this.proxyManager = proxyManager;
+				public RateLimitAspect(RateLimitPipeline rateLimitPipeline, HttpServletRequest servletHttpRequest,
+												HttpServletResponse servletResponse) {
+								this.rateLimitPipeline = rateLimitPipeline;
 								this.servletHttpRequest = servletHttpRequest;
 								this.servletResponse = servletResponse;
 				}
@@ -63,7 +69,7 @@ public class RateLimitAspect {
 					* <p>
 					* Se houver tokens disponíveis:
 					* <ul>
-					*     <li>Decrementa um token do bucket</li>
+					*     <li>Decrementa um token do bucket, ou o custo indicado pelo parâmetro {@link RateLimitCost}</li>
 					*     <li>Adiciona o header {@code X-Rate-Limit-Remaining}</li>
 					*     <li>Permite a execução do método</li>
 					* </ul>
@@ -71,7 +77,7 @@ public class RateLimitAspect {
 					* <p>
 					* Se não houver tokens disponíveis:
 					* <ul>
-					*     <li>Calcula o tempo até o próximo token estar disponível</li>
+					*     <li>Calcula o tempo até o próximo token estar disponível, limitado a um dia</li>
 					*     <li>Adiciona o header {@code X-Rate-Limit-Retry-After-Seconds}</li>
 					*     <li>Lança {@link RateLimitExceededException}</li>
 					* </ul>
@@ -85,17 +91,21 @@ public class RateLimitAspect {
 
 				@Around("@annotation(rateLimited)")
 				public Object rateLimit(ProceedingJoinPoint joinPoint, RateLimited rateLimited) throws Throwable{
-								String bucketKey = generateBucketKey(joinPoint, rateLimited);
+								if(Boolean.TRUE.equals(servletHttpRequest.getAttribute(RateLimitPipeline.HANDLER_EVALUATED_ATTRIBUTE))){
+												return joinPoint.proceed();
+								}
 
-								Bucket bucket = proxyManager.builder().build(bucketKey,bucketConfigurationSupplier(rateLimited));
-
-								ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+								Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+								RateLimitCheck check = rateLimitPipeline.check(rateLimitPipeline.rule(method), servletHttpRequest,
+																rateLimitPipeline.cost(method, joinPoint.getArgs()));
+								if(rateLimitPipeline.exceedsCapacity(check)){
+												throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Custo da requisição maior que a capacidade do rate limit");
+								}
+								ConsumptionProbe probe = rateLimitPipeline.evaluate(List.of(check));
 
 
 				     if(!probe.isConsumed()){
-													long nanosToWait = probe.getNanosToWaitForRefill();
-													long seconds = TimeUnit.NANOSECONDS.toSeconds(nanosToWait);
-													servletResponse.setHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(seconds));
+													servletResponse.setHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(RateLimitPipeline.retryAfterSeconds(probe)));
 													throw new RateLimitExceededException("Rate limit exceeded");
 								 }
 
@@ -103,46 +113,4 @@ public class RateLimitAspect {
 									return joinPoint.proceed();
 
 				}
-
-				/**
-					* Cria a configuração do bucket baseada nos parâmetros da anotação {@link RateLimited}.
-					*
-					* @param rateLimited anotação aplicada ao método
-					* @return fornecedor de {@link BucketConfiguration} para o Bucket4j
-					*/
-				private Supplier<BucketConfiguration> bucketConfigurationSupplier(RateLimited rateLimited){
-								Bandwidth bandwidth  = Bandwidth.builder()
-																.capacity(rateLimited.maxCapacity())
-																.refillIntervally(rateLimited.tokensPerTimeWindow(), Duration.ofSeconds(rateLimited.timeWindow()))
-																.initialTokens(rateLimited.initialTokens())
-																.build();
-								return () -> BucketConfiguration.builder()
-																.addLimit(bandwidth)
-																.build();
-				}
-
-				/**
-					* Gera a chave do bucket usada para identificar o cliente.
-					* Pode variar dependendo do escopo definido na anotação:
-					* <ul>
-					*     <li>"IP" - chave baseada no endereço IP da requisição</li>
-					*     <li>"USER" - chave baseada no usuário autenticado (TODO: implementar)</li>
-					*     <li>default - chave global</li>
-					* </ul>
-					*
-					* @param joinPoint ponto de execução do método
-					* @param rateLimited anotação aplicada ao método
-					* @return chave do bucket
-					*/
-
-				private String generateBucketKey(ProceedingJoinPoint joinPoint, RateLimited rateLimited) {
-								return switch (rateLimited.scope()){
-												case  "IP" -> servletHttpRequest.getRemoteAddr();
-												//TODO: implementar spring security
-												case  "USER" -> "";
-												default -> "GLOBAL";
-								};
-				}
-
-
 }
@@ -0,0 +1,15 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+	* Uma verificação de rate limit: o bucket consultado e quantos tokens consumir dele.
+	*
+	* @param key chave do bucket
+	* @param configuration fornecedor da configuração do bucket, usado caso ele ainda não exista
+	* @param tokens quantidade de tokens a consumir
+	*/
+public record RateLimitCheck(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+}
@@ -0,0 +1,32 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+	* Marca o parâmetro que define quantos tokens uma chamada a um método {@link RateLimited} consome.
+	*
+	* <p>
+	* Para uma coleção ou array o custo é a quantidade de itens contados por {@link RateLimitPipeline#items(java.util.Collection)}:
+	* cada elemento é separado por vírgulas e os itens em branco não contam. O handler deve usar a mesma regra na lista
+	* que recebe. Para um número, o custo é o próprio valor.
+	* Sem a anotação, cada chamada consome um token. Os tokens são consumidos em uma única operação no bucket do método;
+	* o bucket da API key continua consumindo um token por requisição.
+	* A capacidade do bucket precisa cobrir o maior custo aceito pelo método: um custo acima dela é recusado com 400.
+	* </p>
+	*
+	* <p>
+	* Exemplo de uso:
+	* <pre>{@code
+	* @GetMapping("/pokemon/batch")
+	* @RateLimited(maxCapacity = 50, initialTokens = 50, tokensPerTimeWindow = 2, scope = "IP")
+	* public void getPokemonBatch(@RequestParam @RateLimitCost List<String> nomes, HttpServletResponse response) { ... }
+	* }</pre>
+	* </p>
+	*/
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface RateLimitCost {
+}
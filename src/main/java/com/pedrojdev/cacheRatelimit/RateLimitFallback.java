@@ -0,0 +1,26 @@
+package com.pedrojdev.cacheRatelimit;
+
+/**
+	* Comportamento de uma regra de rate limit enquanto o Redis está indisponível.
+	*
+	* <p>
+	* Usado pelo {@link ResilientRateLimiter} quando o circuit breaker está aberto ou uma chamada ao Redis falha.
+	* </p>
+	*/
+public enum RateLimitFallback {
+
+				/**
+					* Consome de um bucket em memória, com a capacidade dividida pela quantidade estimada de instâncias.
+					*/
+				LOCAL,
+
+				/**
+					* Permite todas as requisições (fail-open).
+					*/
+				ALLOW,
+
+				/**
+					* Rejeita todas as requisições até o Redis voltar (fail-closed).
+					*/
+				DENY
+}
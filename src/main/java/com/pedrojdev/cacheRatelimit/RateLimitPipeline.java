@@ -0,0 +1,363 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+	* Reúne e avalia todas as verificações de rate limit de uma requisição.
+	*
+	* <p>
+	* O {@link RateLimiteFilter} monta a verificação da API key e, a partir do handler resolvido pelo
+	* {@code HandlerMapping}, a do {@link RateLimited} do método. As duas são avaliadas juntas por
+	* {@link #evaluate(List)}, em um único round trip ao Redis, e o resultado combinado define os headers
+	* da resposta uma única vez. O {@link RateLimitAspect} usa a mesma classe apenas quando o filtro não
+	* conseguiu avaliar o limite do método.
+	* </p>
+	*
+	* <p>
+	* A configuração de cada limite vem do {@link RateLimitRuleRegistry}, já compilada; aqui só é escolhida a chave do bucket.
+	* </p>
+	*
+	* <p>
+	* As verificações do bucket {@code "GLOBAL"} vão para o {@code globalRateLimiter}, que pode dividir o
+	* bucket em stripes; quando ele é o mesmo rate limiter das demais, tudo segue na mesma chamada. Como as duas
+	* chamadas não são atômicas entre si, uma rejeição no bucket global devolve os tokens já consumidos nos demais.
+	* </p>
+	*
+	* <p>
+	* Cada chamada aos rate limiters é medida no timer {@code ratelimit.check}, com a tag {@code limiter}
+	* ({@code default} ou {@code global}), e cada verificação avaliada conta em {@code ratelimit.requests}, com as tags
+	* {@code rule}, {@code scope} e {@code result} ({@code allowed} ou {@code rejected}).
+	* </p>
+	*/
+@Component
+public class RateLimitPipeline {
+
+				/**
+					* Atributo da requisição que indica que o limite do {@link RateLimited} já foi avaliado pelo filtro.
+					*/
+				public static final String HANDLER_EVALUATED_ATTRIBUTE = RateLimitPipeline.class.getName() + ".HANDLER_EVALUATED";
+
+				/**
+					* Chave do bucket compartilhado por todas as requisições no escopo global.
+					*/
+				static final String GLOBAL_KEY = "global";
+
+				/**
+					* Maior espera informada no header {@code X-Rate-Limit-Retry-After-Seconds}.
+					*/
+				private static final long MAX_RETRY_AFTER_SECONDS = Duration.ofDays(1).toSeconds();
+
+				private final RateLimiter rateLimiter;
+
+				private final RateLimiter globalRateLimiter;
+
+				private final RateLimitRuleRegistry ruleRegistry;
+
+				private final MeterRegistry meterRegistry;
+
+				private final Timer checkTimer;
+
+				private final Timer globalCheckTimer;
+
+				/**
+					* Contadores de {@code ratelimit.requests} por regra e resultado, criados no primeiro uso.
+					*/
+				private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+
+				/**
+					* Posição do parâmetro {@link RateLimitCost} de cada método, ou {@code -1} se não houver.
+					*/
+				private final Map<Method, Integer> costParameters = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do pipeline.
+					*
+					* @param rateLimiter decisor de rate limit
+					* @param globalRateLimiter decisor de rate limit do escopo global
+					* @param ruleRegistry registro das regras de rate limit
+					* @param meterRegistry registro das métricas
+					*/
+				public RateLimitPipeline(RateLimiter rateLimiter, @Qualifier("globalRateLimiter") RateLimiter globalRateLimiter,
+												RateLimitRuleRegistry ruleRegistry, MeterRegistry meterRegistry) {
+								this.rateLimiter = rateLimiter;
+								this.globalRateLimiter = globalRateLimiter;
+								this.ruleRegistry = ruleRegistry;
+								this.meterRegistry = meterRegistry;
+								this.checkTimer = Timer.builder("ratelimit.check").tag("limiter", "default").register(meterRegistry);
+								this.globalCheckTimer = Timer.builder("ratelimit.check").tag("limiter", "global").register(meterRegistry);
+				}
+
+				/**
+					* Avalia as verificações e combina os resultados.
+					*
+					* @param checks verificações da requisição
+					* @return se todas consumiram, o resultado com menos tokens restantes; senão, a rejeição com a maior espera
+					*/
+				public ConsumptionProbe evaluate(List<RateLimitCheck> checks) {
+								List<RateLimitCheck> local = checks;
+								List<RateLimitCheck> global = List.of();
+								if(globalRateLimiter != rateLimiter){
+												local = new ArrayList<>(checks.size());
+												global = new ArrayList<>(1);
+												for(RateLimitCheck check : checks){
+																(GLOBAL_KEY.equals(check.key()) ? global : local).add(check);
+												}
+								}
+								ConsumptionProbe result = local.isEmpty() ? null : combine(null, tryConsumeAll(rateLimiter, checkTimer, local));
+								if(!global.isEmpty() && (result == null || result.isConsumed())){
+												result = combine(result, tryConsumeAll(globalRateLimiter, globalCheckTimer, global));
+												if(!result.isConsumed()){
+																for(RateLimitCheck check : local){
+																				rateLimiter.refund(check.key(), check.configuration(), check.tokens());
+																}
+												}
+								}
+								return result;
+				}
+
+				/**
+					* Verifica se o custo de uma verificação é maior que a capacidade de alguma banda do bucket.
+					*
+					* <p>
+					* Um pedido assim nunca seria atendido: o Bucket4j o rejeita com espera {@link Long#MAX_VALUE}. Ele deve
+					* ser recusado como requisição inválida antes de chegar ao rate limiter, e não como 429.
+					* </p>
+					*
+					* <p>
+					* Com o escopo global dividido em stripes, cada stripe tem só uma parte da capacidade; a comparação
+					* é feita com a menor delas.
+					* </p>
+					*
+					* @param check verificação a avaliar
+					* @return {@code true} se o custo nunca caberia no bucket
+					*/
+				public boolean exceedsCapacity(RateLimitCheck check) {
+								Supplier<BucketConfiguration> configuration = check.configuration();
+								if(GLOBAL_KEY.equals(check.key()) && globalRateLimiter instanceof StripedRateLimiter striped){
+												configuration = striped.smallestStripe(configuration);
+								}
+								for(Bandwidth bandwidth : configuration.get().getBandwidths()){
+												if(check.tokens() > bandwidth.getCapacity()){
+																return true;
+												}
+								}
+								return false;
+				}
+
+				/**
+					* Espera, em segundos, informada no header {@code X-Rate-Limit-Retry-After-Seconds} de uma rejeição.
+					*
+					* @param probe resultado rejeitado
+					* @return tempo até haver tokens, limitado a um dia
+					*/
+				public static long retryAfterSeconds(ConsumptionProbe probe) {
+								return Math.min(TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()), MAX_RETRY_AFTER_SECONDS);
+				}
+
+				private List<ConsumptionProbe> tryConsumeAll(RateLimiter limiter, Timer timer, List<RateLimitCheck> checks) {
+								long start = System.nanoTime();
+								List<ConsumptionProbe> probes = limiter.tryConsumeAll(checks);
+								timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+								for(int i = 0; i < probes.size(); i++){
+												ConsumptionProbe probe = probes.get(i);
+												if(probe != null){
+																outcome(checks.get(i), probe.isConsumed()).increment();
+												}
+								}
+								return probes;
+				}
+
+				private Counter outcome(RateLimitCheck check, boolean allowed) {
+								String rule = check.configuration() instanceof RateLimitRule compiled ? compiled.id() : "unknown";
+								String scope = check.configuration() instanceof RateLimitRule compiled ? compiled.scope() : "unknown";
+								String result = allowed ? "allowed" : "rejected";
+								return outcomes.computeIfAbsent(rule + '|' + result, name -> Counter.builder("ratelimit.requests")
+																.tag("rule", rule)
+																.tag("scope", scope)
+																.tag("result", result)
+																.register(meterRegistry));
+				}
+
+				private static ConsumptionProbe combine(ConsumptionProbe result, List<ConsumptionProbe> probes) {
+								for(ConsumptionProbe probe : probes){
+												if(probe == null){
+																continue;
+												}
+												if(result == null || result.isConsumed() && !probe.isConsumed()){
+																result = probe;
+												}else if(probe.isConsumed() == result.isConsumed()){
+																boolean moreRestrictive = probe.isConsumed()
+																																? probe.getRemainingTokens() < result.getRemainingTokens()
+																																: probe.getNanosToWaitForRefill() > result.getNanosToWaitForRefill();
+																if(moreRestrictive){
+																				result = probe;
+																}
+												}
+								}
+								return result;
+				}
+
+				/**
+					* Regra compilada do método anotado com {@link RateLimited}.
+					*
+					* @param method método da requisição
+					* @return regra do método, ou {@code null} se ele não for anotado
+					*/
+				public RateLimitRule rule(Method method) {
+								return ruleRegistry.rule(method);
+				}
+
+				/**
+					* Cria a verificação do limite definido por uma regra {@link RateLimited}.
+					*
+					* @param rule regra do método
+					* @param request requisição HTTP, usada para identificar o cliente
+					* @param tokens quantidade de tokens a consumir
+					* @return verificação do limite do método
+					*/
+				public RateLimitCheck check(RateLimitRule rule, HttpServletRequest request, long tokens) {
+								return new RateLimitCheck(bucketKey(rule, request), rule, tokens);
+				}
+
+				/**
+					* Calcula o custo de uma chamada a partir dos argumentos já resolvidos do método.
+					*
+					* @param method método anotado com {@link RateLimited}
+					* @param args argumentos da chamada
+					* @return quantidade de tokens, no mínimo 1
+					*/
+				public long cost(Method method, Object[] args) {
+								int index = costParameterIndex(method);
+								if(index < 0){
+												return 1;
+								}
+								Object argument = args[index];
+								long cost = 1;
+								if(argument instanceof Collection<?> collection){
+												cost = items(collection).size();
+								}else if(argument instanceof Object[] array){
+												cost = items(Arrays.asList(array)).size();
+								}else if(argument instanceof Number number){
+												cost = number.longValue();
+								}
+								return Math.max(1, cost);
+				}
+
+				/**
+					* Calcula o custo de uma chamada antes da execução do handler, a partir dos parâmetros da requisição.
+					*
+					* <p>
+					* Só é possível quando o parâmetro {@link RateLimitCost} vem de um {@link RequestParam}: o custo é a
+					* quantidade de itens, contados por {@link #items(Collection)}.
+					* </p>
+					*
+					* @param handler handler da requisição
+					* @param request requisição HTTP
+					* @return quantidade de tokens, no mínimo 1, ou {@code -1} se o custo só puder ser calculado na chamada do método
+					*/
+				public long cost(HandlerMethod handler, HttpServletRequest request) {
+								int index = costParameterIndex(handler.getMethod());
+								if(index < 0){
+												return 1;
+								}
+								MethodParameter parameter = handler.getMethodParameters()[index];
+								RequestParam requestParam = parameter.getParameterAnnotation(RequestParam.class);
+								if(requestParam == null){
+												return -1;
+								}
+								String name = !requestParam.name().isEmpty() ? requestParam.name() : requestParam.value();
+								if(name.isEmpty()){
+												return -1;
+								}
+								String[] values = request.getParameterValues(name);
+								long cost = values != null ? items(Arrays.asList(values)).size() : 0;
+								return Math.max(1, cost);
+				}
+
+				/**
+					* Itens de um parâmetro de lista, com a mesma regra no custo cobrado e no handler.
+					*
+					* <p>
+					* Cada valor é separado por vírgulas, inclusive quando o parâmetro se repete, e os itens são aparados;
+					* os itens em branco são descartados. A conversão do Spring para {@code List<String>} faz diferente: mantém
+					* os itens vazios e só separa um valor único. Por isso o handler passa a lista recebida por aqui antes de usá-la,
+					* e o custo cobrado antes dele corresponde aos itens que ele de fato processa.
+					* </p>
+					*
+					* @param values valores do parâmetro, na forma recebida
+					* @return itens não vazios, na ordem recebida
+					*/
+				public static List<String> items(Collection<?> values) {
+								List<String> items = new ArrayList<>(values.size());
+								for(Object value : values){
+												if(value == null){
+																continue;
+												}
+												for(String item : value.toString().split(",")){
+																if(!item.isBlank()){
+																				items.add(item.trim());
+																}
+												}
+								}
+								return items;
+				}
+
+				private int costParameterIndex(Method method) {
+								return costParameters.computeIfAbsent(method, candidate -> {
+												Annotation[][] annotations = candidate.getParameterAnnotations();
+												for(int i = 0; i < annotations.length; i++){
+																for(Annotation annotation : annotations[i]){
+																				if(annotation instanceof RateLimitCost){
+																								return i;
+																				}
+																}
+												}
+												return -1;
+								});
+				}
+
+				/**
+					* Gera a chave do bucket usada para identificar o cliente.
+					* Pode variar dependendo do escopo definido na anotação:
+					* <ul>
+					*     <li>"IP" - chave baseada no hash do endereço IP da requisição (ver {@link BucketKeys})</li>
+					*     <li>"USER" - chave baseada no usuário autenticado (TODO: implementar)</li>
+					*     <li>default - chave global, atendida pelo {@code globalRateLimiter} (que pode dividir o bucket em stripes)</li>
+					* </ul>
+					*
+					* @param rule regra do método
+					* @param request requisição HTTP
+					* @return chave do bucket
+					*/
+				private String bucketKey(RateLimitRule rule, HttpServletRequest request) {
+								return switch (rule.scope()){
+												case  "IP" -> BucketKeys.of("ip", request.getRemoteAddr());
+												//TODO: implementar spring security
+												case  "USER" -> "";
+												default -> GLOBAL_KEY;
+								};
+				}
+}
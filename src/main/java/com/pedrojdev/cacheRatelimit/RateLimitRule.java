@@ -0,0 +1,31 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+	* Regra de rate limit já compilada: configuração imutável do bucket e escopo da chave.
+	*
+	* <p>
+	* As regras são criadas pelo {@link RateLimitRuleRegistry} na inicialização e a cada recarga das sobrescritas,
+	* e são passadas aos {@link RateLimiter} como o próprio fornecedor da configuração. Como a instância só muda
+	* quando a configuração muda, os rate limiters podem guardar por regra o que custaria montar a cada chamada,
+	* como proxies do Bucket4j ou os argumentos do script Lua.
+	* </p>
+	*
+	* @param id identificador da regra
+	* @param scope escopo da chave do bucket ({@code IP}, {@code USER} ou {@code GLOBAL})
+	* @param configuration configuração do bucket
+	* @param version versão da configuração; aumenta quando uma sobrescrita muda a regra, para que os buckets
+	* já existentes adotem a nova configuração
+	* @param fallback comportamento enquanto o Redis está indisponível
+	*/
+public record RateLimitRule(String id, String scope, BucketConfiguration configuration, long version, RateLimitFallback fallback)
+								implements Supplier<BucketConfiguration> {
+
+				@Override
+				public BucketConfiguration get() {
+								return configuration;
+				}
+}
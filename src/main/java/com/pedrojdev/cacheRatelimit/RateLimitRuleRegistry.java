@@ -0,0 +1,398 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BandwidthBuilder;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+	* Registro das regras de rate limit, compiladas uma única vez a partir das anotações {@link RateLimited}.
+	*
+	* <p>
+	* Na inicialização, os métodos anotados de todos os beans são convertidos em {@link RateLimitRule} imutáveis.
+	* No caminho de cada requisição resta apenas uma consulta a um mapa imutável por {@link Method}, sem montar
+	* {@link Bandwidth} nem {@link BucketConfiguration}. Um método anotado que não tenha sido encontrado na
+	* inicialização é compilado na primeira chamada.
+	* </p>
+	*
+	* <p>
+	* Além dos métodos, o registro guarda a regra {@value #API_KEY_RULE}, usada pelo {@link RateLimiteFilter}
+	* para o bucket da API key.
+	* </p>
+	*
+	* <p>
+	* As regras podem ser sobrescritas sem reinício por um arquivo de propriedades verificado periodicamente.
+	* Cada linha associa o identificador da regra ({@link RateLimited#name()}, ou {@code Classe.metodo}) às suas bandas,
+	* separadas por vírgula, no formato {@code capacidade:tokens/período[:iniciais][ greedy]}:
+	* <pre>{@code
+	* ApiController.getPokemon = 5:2/60s, 100:100/1h
+	* api-key = 10:10/2m
+	* }</pre>
+	* Uma regra alterada recebe uma nova versão e os buckets já existentes no Bucket4j passam a usar a nova
+	* configuração, mantendo proporcionalmente os tokens disponíveis. Se o arquivo tiver erros, as regras atuais são mantidas.
+	* </p>
+	*
+	* <p>
+	* As alterações das regras são serializadas por um {@link ReentrantLock} e não pelo monitor do objeto: a recarga lê
+	* o arquivo, e pode ser pedida pelo {@link AdminController} em uma virtual thread, que ficaria presa à sua thread
+	* portadora dentro de {@code synchronized} no Java 21.
+	* </p>
+	*/
+public class RateLimitRuleRegistry implements SmartInitializingSingleton, BeanFactoryAware, AutoCloseable {
+
+				/**
+					* Identificador da regra do bucket da API key.
+					*/
+				public static final String API_KEY_RULE = "api-key";
+
+				private static final Pattern BAND = Pattern.compile("(\\d+):(\\d+)/([^:\\s]+)(?::(\\d+))?(\\s+greedy)?");
+
+				private final Logger log = LoggerFactory.getLogger(RateLimitRuleRegistry.class);
+
+				private final Path overridesFile;
+
+				private final Duration reloadInterval;
+
+				private volatile ScheduledExecutorService reloader;
+
+				/**
+					* Configuração e escopo definidos no código, antes das sobrescritas.
+					*/
+				private final Map<String, Definition> definitions = new ConcurrentHashMap<>();
+
+				private final Map<Method, String> methodIds = new ConcurrentHashMap<>();
+
+				private final Set<Method> unannotated = ConcurrentHashMap.newKeySet();
+
+				private final ReentrantLock lock = new ReentrantLock();
+
+				private volatile Map<String, RateLimitRule> rules = Map.of();
+
+				private volatile Map<Method, RateLimitRule> methodRules = Map.of();
+
+				private volatile RateLimitRule apiKeyRule;
+
+				private Map<String, BucketConfiguration> overrides = Map.of();
+
+				private long overridesModified;
+
+				private long overridesVersion = 1;
+
+				private ListableBeanFactory beanFactory;
+
+				/**
+					* Construtor do registro. O arquivo de sobrescritas só é lido, e a verificação periódica só começa,
+					* em {@link #afterSingletonsInstantiated()}, com as regras dos métodos já definidas.
+					*
+					* @param apiKeyConfiguration configuração padrão do bucket da API key
+					* @param apiKeyFallback comportamento do bucket da API key enquanto o Redis está indisponível
+					* @param overridesFile arquivo de sobrescritas, ou {@code null} para desligar as sobrescritas
+					* @param reloadInterval intervalo entre as verificações do arquivo de sobrescritas
+					*/
+				public RateLimitRuleRegistry(BucketConfiguration apiKeyConfiguration, RateLimitFallback apiKeyFallback, Path overridesFile,
+												Duration reloadInterval) {
+								this.overridesFile = overridesFile;
+								this.reloadInterval = reloadInterval;
+								definitions.put(API_KEY_RULE, new Definition(API_KEY_RULE, apiKeyConfiguration, apiKeyFallback));
+								rebuild();
+				}
+
+				@Override
+				public void setBeanFactory(BeanFactory beanFactory) {
+								this.beanFactory = (ListableBeanFactory) beanFactory;
+				}
+
+				/**
+					* Compila as regras de todos os métodos anotados com {@link RateLimited} dos beans da aplicação, aplica as
+					* sobrescritas e inicia a verificação periódica do arquivo.
+					*/
+				@Override
+				public void afterSingletonsInstantiated() {
+								for(String name : beanFactory.getBeanDefinitionNames()){
+												Class<?> type = beanFactory.getType(name, false);
+												if(type == null){
+																continue;
+												}
+												Class<?> userClass = ClassUtils.getUserClass(type);
+												if(!AnnotationUtils.isCandidateClass(userClass, RateLimited.class)){
+																continue;
+												}
+												try {
+																MethodIntrospector.selectMethods(userClass, (MethodIntrospector.MetadataLookup<RateLimited>) method ->
+																																AnnotatedElementUtils.findMergedAnnotation(method, RateLimited.class))
+																								.forEach(this::define);
+												} catch (RuntimeException | LinkageError e) {
+																log.debug("Ignorando o bean {} na busca por @RateLimited: {}", name, e.toString());
+												}
+								}
+								rebuild();
+								log.info("{} regras de rate limit compiladas", rules.size());
+								if(overridesFile != null && reloader == null){
+												reload();
+												ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+																Thread thread = new Thread(runnable, "rate-limit-rules-reload");
+																thread.setDaemon(true);
+																return thread;
+												});
+												long intervalMillis = Math.max(1, reloadInterval.toMillis());
+												executor.scheduleWithFixedDelay(this::reload, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+												reloader = executor;
+								}
+				}
+
+				/**
+					* Regra do método anotado com {@link RateLimited}.
+					*
+					* @param method método da requisição
+					* @return regra do método, ou {@code null} se ele não for anotado
+					*/
+				public RateLimitRule rule(Method method) {
+								RateLimitRule rule = methodRules.get(method);
+								if(rule != null || unannotated.contains(method)){
+												return rule;
+								}
+								return register(method);
+				}
+
+				/**
+					* Regra do bucket da API key.
+					*
+					* @return regra {@value #API_KEY_RULE}
+					*/
+				public RateLimitRule apiKeyRule() {
+								return apiKeyRule;
+				}
+
+				/**
+					* Regras atuais, já com as sobrescritas aplicadas.
+					*
+					* @return regras por identificador
+					*/
+				public Collection<RateLimitRule> rules() {
+								return rules.values();
+				}
+
+				/**
+					* Relê o arquivo de sobrescritas se ele mudou desde a última leitura e recompila as regras afetadas.
+					*/
+				public void reload() {
+								if(overridesFile == null){
+												return;
+								}
+								lock.lock();
+								try {
+												reloadIfModified();
+								} finally {
+												lock.unlock();
+								}
+				}
+
+				private void reloadIfModified() {
+								long modified;
+								try {
+												modified = Files.exists(overridesFile) ? Files.getLastModifiedTime(overridesFile).toMillis() : 0;
+								} catch (IOException e) {
+												log.warn("Falha ao verificar o arquivo de sobrescritas de rate limit {}: {}", overridesFile, e.toString());
+												return;
+								}
+								if(modified == overridesModified){
+												return;
+								}
+								// a versão com erro também é marcada como lida, para não repetir o aviso até a próxima alteração
+								overridesModified = modified;
+								try {
+												Map<String, BucketConfiguration> loaded = modified == 0 ? Map.of() : readOverrides(overridesFile);
+												for(String id : loaded.keySet()){
+																if(!definitions.containsKey(id)){
+																				log.warn("Sobrescrita de rate limit para a regra desconhecida {}", id);
+																}
+												}
+												overrides = loaded;
+												overridesVersion = Math.max(overridesVersion + 1, modified != 0 ? modified : System.currentTimeMillis());
+												rebuild();
+												log.info("{} sobrescritas de rate limit carregadas de {}", loaded.size(), overridesFile);
+								} catch (IOException | RuntimeException e) {
+												log.warn("Falha ao carregar as sobrescritas de rate limit de {}, mantendo as regras atuais: {}", overridesFile, e.toString());
+								}
+				}
+
+				private RateLimitRule register(Method method) {
+								lock.lock();
+								try {
+												RateLimitRule rule = methodRules.get(method);
+												if(rule != null){
+																return rule;
+												}
+												RateLimited rateLimited = AnnotatedElementUtils.findMergedAnnotation(method, RateLimited.class);
+												if(rateLimited == null){
+																unannotated.add(method);
+																return null;
+												}
+												define(method, rateLimited);
+												rebuild();
+												return methodRules.get(method);
+								} finally {
+												lock.unlock();
+								}
+				}
+
+				private void define(Method method, RateLimited rateLimited) {
+								String id = !rateLimited.name().isEmpty()
+																? rateLimited.name()
+																: ClassUtils.getUserClass(method.getDeclaringClass()).getSimpleName() + "." + method.getName();
+								Definition definition = new Definition(rateLimited.scope(), configuration(rateLimited), rateLimited.fallback());
+								Definition existing = definitions.put(id, definition);
+								if(existing != null && !existing.equals(definition) && !methodIds.containsKey(method)){
+												log.warn("Regra de rate limit {} definida com configurações diferentes; usando a de {}", id, method);
+								}
+								methodIds.put(method, id);
+				}
+
+				/**
+					* Recompila as regras. Regras com a mesma configuração mantêm a mesma instância, para que o que os
+					* rate limiters guardam por regra continue válido.
+					*/
+				private void rebuild() {
+								lock.lock();
+								try {
+												rebuildRules();
+								} finally {
+												lock.unlock();
+								}
+				}
+
+				private void rebuildRules() {
+								Map<String, RateLimitRule> previous = rules;
+								Map<String, RateLimitRule> compiled = new HashMap<>();
+								definitions.forEach((id, definition) -> {
+												BucketConfiguration override = overrides.get(id);
+												BucketConfiguration configuration = override != null ? override : definition.configuration();
+												RateLimitRule current = previous.get(id);
+												if(current != null && current.configuration().equals(configuration) && current.scope().equals(definition.scope())
+																&& current.fallback() == definition.fallback()){
+																compiled.put(id, current);
+												}else{
+																long version = override != null || current != null ? overridesVersion : 1;
+																compiled.put(id, new RateLimitRule(id, definition.scope(), configuration, version, definition.fallback()));
+												}
+								});
+								Map<Method, RateLimitRule> byMethod = new HashMap<>();
+								methodIds.forEach((method, id) -> byMethod.put(method, compiled.get(id)));
+								rules = Map.copyOf(compiled);
+								methodRules = Map.copyOf(byMethod);
+								apiKeyRule = compiled.get(API_KEY_RULE);
+				}
+
+				/**
+					* Interrompe a verificação periódica do arquivo de sobrescritas.
+					*/
+				@Override
+				public void close() {
+								ScheduledExecutorService executor = reloader;
+								if(executor != null){
+												executor.shutdownNow();
+								}
+				}
+
+				/**
+					* Cria a configuração do bucket definida por uma anotação {@link RateLimited}.
+					*
+					* @param rateLimited anotação do método
+					* @return configuração com uma banda por {@link Limit}, ou uma única banda a partir dos demais atributos
+					*/
+				static BucketConfiguration configuration(RateLimited rateLimited) {
+								ConfigurationBuilder builder = BucketConfiguration.builder();
+								if(rateLimited.limits().length == 0){
+												builder.addLimit(bandwidth(rateLimited.maxCapacity(), rateLimited.tokensPerTimeWindow(),
+																				Duration.ofSeconds(rateLimited.timeWindow()), rateLimited.initialTokens(), false));
+								}
+								for(Limit limit : rateLimited.limits()){
+												long initialTokens = limit.initialTokens() < 0 ? limit.capacity() : limit.initialTokens();
+												builder.addLimit(bandwidth(limit.capacity(), limit.tokens(), Duration.ofSeconds(limit.period()), initialTokens, limit.greedy()));
+								}
+								return builder.build();
+				}
+
+				/**
+					* Converte as bandas de uma sobrescrita, no formato {@code capacidade:tokens/período[:iniciais][ greedy]},
+					* em uma configuração de bucket. Períodos sem unidade são lidos em segundos.
+					*
+					* @param value bandas separadas por vírgula
+					* @return configuração do bucket
+					* @throws IllegalArgumentException se alguma banda estiver fora do formato
+					*/
+				static BucketConfiguration parse(String value) {
+								ConfigurationBuilder builder = BucketConfiguration.builder();
+								for(String band : value.split(",")){
+												Matcher matcher = BAND.matcher(band.strip());
+												if(!matcher.matches()){
+																throw new IllegalArgumentException("Banda de rate limit inválida: '" + band.strip() + "'");
+												}
+												long capacity = Long.parseLong(matcher.group(1));
+												long tokens = Long.parseLong(matcher.group(2));
+												Duration period = DurationStyle.detectAndParse(matcher.group(3), ChronoUnit.SECONDS);
+												long initialTokens = matcher.group(4) != null ? Long.parseLong(matcher.group(4)) : capacity;
+												builder.addLimit(bandwidth(capacity, tokens, period, initialTokens, matcher.group(5) != null));
+								}
+								return builder.build();
+				}
+
+				private static Map<String, BucketConfiguration> readOverrides(Path file) throws IOException {
+								Properties properties = new Properties();
+								try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+												properties.load(reader);
+								}
+								Map<String, BucketConfiguration> loaded = new HashMap<>();
+								for(String id : properties.stringPropertyNames()){
+												try {
+																loaded.put(id, parse(properties.getProperty(id)));
+												} catch (IllegalArgumentException e) {
+																throw new IllegalArgumentException("Regra " + id + ": " + e.getMessage(), e);
+												}
+								}
+								return Map.copyOf(loaded);
+				}
+
+				private static Bandwidth bandwidth(long capacity, long tokens, Duration period, long initialTokens, boolean greedy) {
+								BandwidthBuilder.BandwidthBuilderRefillStage refillStage = Bandwidth.builder().capacity(capacity);
+								BandwidthBuilder.BandwidthBuilderBuildStage buildStage = greedy
+																? refillStage.refillGreedy(tokens, period)
+																: refillStage.refillIntervally(tokens, period);
+								return buildStage.initialTokens(initialTokens).build();
+				}
+
+				private record Definition(String scope, BucketConfiguration configuration, RateLimitFallback fallback) {
+				}
+}
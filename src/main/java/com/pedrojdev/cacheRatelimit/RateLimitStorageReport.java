@@ -0,0 +1,120 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+	* Relatório do espaço ocupado no Redis pelo estado de rate limit.
+	*
+	* <p>
+	* Percorre com {@code SCAN}, sem bloquear o Redis, só os prefixos de estado de bucket ({@code rl:b4j:} e
+	* {@code rl:gcra:}) e conta as chaves por formato. Outras chaves do namespace {@link BucketKeys#NAMESPACE}, como o
+	* registro de instâncias do {@link InstanceHeartbeat}, ficam fora do relatório. O consumo de memória é medido com
+	* {@code MEMORY USAGE} em uma amostra das chaves, em lotes executados por script, e extrapolado para o total. Chaves
+	* sem expiração na amostra indicam estado que nunca é liberado.
+	* </p>
+	*/
+public class RateLimitStorageReport {
+
+				/**
+					* Mede um lote de chaves em uma única chamada: para cada chave, {@code MEMORY USAGE} e {@code PTTL}.
+					* Chaves que expiraram depois do {@code SCAN} voltam com uso {@code false}.
+					*/
+				private static final byte[] MEASURE_SCRIPT = ("""
+												local reply = {}
+												for i = 1, #KEYS do
+																reply[#reply + 1] = redis.call('MEMORY', 'USAGE', KEYS[i]) or false
+																reply[#reply + 1] = redis.call('PTTL', KEYS[i])
+												end
+												return reply
+												""").getBytes(StandardCharsets.UTF_8);
+
+				private static final int MEASURE_BATCH = 100;
+
+				private static final List<String> BUCKET_PREFIXES = List.of(Bucket4jRateLimiter.KEY_PREFIX, LuaRateLimiter.KEY_PREFIX);
+
+				private final StringRedisTemplate redisTemplate;
+
+				/**
+					* Construtor do relatório.
+					*
+					* @param redisTemplate template usado para consultar o Redis
+					*/
+				public RateLimitStorageReport(StringRedisTemplate redisTemplate) {
+								this.redisTemplate = redisTemplate;
+				}
+
+				/**
+					* Conta as chaves de rate limit e estima a memória ocupada por elas.
+					*
+					* @param sampleSize quantidade máxima de chaves medidas com {@code MEMORY USAGE}
+					* @return quantidade de chaves por formato, total de chaves e estimativa de bytes
+					*/
+				public Map<String, Object> report(int sampleSize) {
+								return redisTemplate.execute((RedisCallback<Map<String, Object>>) connection -> report(connection, sampleSize));
+				}
+
+				private Map<String, Object> report(RedisConnection connection, int sampleSize) {
+								Map<String, Long> keys = new TreeMap<>();
+								List<byte[]> sample = new ArrayList<>();
+								long total = 0;
+								for(String prefix : BUCKET_PREFIXES){
+												ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(1000).build();
+												try(Cursor<byte[]> cursor = connection.keyCommands().scan(options)){
+																while(cursor.hasNext()){
+																				byte[] key = cursor.next();
+																				keys.merge(format(key), 1L, Long::sum);
+																				total++;
+																				if(sample.size() < sampleSize){
+																								sample.add(key);
+																				}
+																}
+												}
+								}
+								long sampled = 0;
+								long sampledBytes = 0;
+								long withoutExpiry = 0;
+								for(int start = 0; start < sample.size(); start += MEASURE_BATCH){
+												List<byte[]> batch = sample.subList(start, Math.min(sample.size(), start + MEASURE_BATCH));
+												List<Object> measures = connection.scriptingCommands().eval(MEASURE_SCRIPT, ReturnType.MULTI, batch.size(),
+																												batch.toArray(new byte[0][]));
+												for(int i = 0; measures != null && i + 1 < measures.size(); i += 2){
+																if(measures.get(i) instanceof Number bytes){
+																				sampled++;
+																				sampledBytes += bytes.longValue();
+																				if(measures.get(i + 1) instanceof Number ttl && ttl.longValue() == -1){
+																								withoutExpiry++;
+																				}
+																}
+												}
+								}
+								Map<String, Object> report = new LinkedHashMap<>();
+								report.put("keys", keys);
+								report.put("total", total);
+								report.put("sampled", sampled);
+								report.put("sampledBytes", sampledBytes);
+								report.put("sampledWithoutExpiry", withoutExpiry);
+								report.put("estimatedBytes", sampled > 0 ? sampledBytes * total / sampled : 0);
+								return report;
+				}
+
+				/**
+					* Formato do estado da chave: o segmento logo após o namespace, como {@code b4j} em {@code rl:b4j:ip:...}.
+					*/
+				private static String format(byte[] key) {
+								String name = new String(key, StandardCharsets.UTF_8).substring(BucketKeys.NAMESPACE.length());
+								int separator = name.indexOf(':');
+								return separator > 0 ? name.substring(0, separator) : name;
+				}
+}
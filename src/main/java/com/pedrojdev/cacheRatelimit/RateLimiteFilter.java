@@ -1,25 +1,30 @@
 package com.pedrojdev.cacheRatelimit;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.ConsumptionProbe;
-import io.github.bucket4j.distributed.proxy.ProxyManager;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
 
 /**
 	* Filtro de rate limiting que utiliza o Bucket4j para controlar a quantidade de requisições
@@ -28,7 +33,7 @@ import java.util.function.Supplier;
 	* <p>
 	* Este filtro é registrado como um bean Spring (@Component) e pode ser associado
 	* a URLs específicas usando um {@link FilterRegistration}.
-	* Ele funciona utilizando um {@link ProxyManager} para armazenar o estado do bucket
+	* Ele funciona utilizando um {@link RateLimiter} para consultar o estado do bucket
 	* (tokens disponíveis) em Redis ou outra implementação de armazenamento suportada pelo Bucket4j.
 	* </p>
 	*
@@ -39,26 +44,55 @@ import java.util.function.Supplier;
 	*     <li>{@code X-Rate-Limit-Retry-After-Seconds} - tempo em segundos até o próximo token estar disponível</li>
 	* </ul>
 	* </p>
+	*
+	* <p>
+	* Quando o handler da requisição é anotado com {@link RateLimited}, o limite do método é avaliado aqui,
+	* junto com o da API key, em uma única chamada ao {@link RateLimitPipeline}. Os headers refletem o limite
+	* mais restritivo e o {@link RateLimitAspect} deixa de consultar o bucket para essa requisição. O bucket da API key
+	* conta requisições: ele consome sempre um token, mesmo quando o custo do método é maior.
+	* Uma requisição cujo custo ({@link RateLimitCost}) passa da capacidade do bucket nunca seria atendida
+	* e é respondida com 400, sem consultar o rate limiter.
+	* </p>
 	*/
 
 @Component
 public class RateLimiteFilter implements Filter {
 
+				private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+												.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
+
+				private static final String TIMESTAMP_PLACEHOLDER = "__timestamp__";
+
+				/**
+					* Corpo da resposta 429 pré-serializado: parte anterior e posterior ao timestamp.
+					*/
+				private static final byte[][] REJECTION_BODY = rejectionBodyTemplate();
+
 				private final Logger log = LoggerFactory.getLogger(RateLimiteFilter.class);
 
-				private final ProxyManager<String> proxyManager;
+				/**
+					* Limita o log das rejeições a um registro a cada 10 segundos; o total fica na métrica {@code ratelimit.requests}.
+					*/
+				private final LogSampler rejectionLog = new LogSampler(Duration.ofSeconds(10));
+
+				private final RateLimitPipeline rateLimitPipeline;
 
-				private final Supplier<BucketConfiguration> bucketConfigurationSupplier;
+				private final RateLimitRuleRegistry ruleRegistry;
+
+				private final HandlerMapping handlerMapping;
 
 				/**
 					* Construtor do filtro.
 					*
-					* @param proxyManager gerenciador de buckets
-					* @param bucketConfigurationSupplier fornecedor da configuração do bucket
+					* @param rateLimitPipeline avaliação das verificações de rate limit
+					* @param ruleRegistry registro das regras de rate limit, com a regra do bucket da API key
+					* @param handlerMapping mapeamento dos controllers, usado para encontrar o {@link RateLimited} do handler
 					*/
-				public RateLimiteFilter(ProxyManager<String> proxyManager, Supplier<BucketConfiguration> bucketConfigurationSupplier){
-								this.proxyManager = proxyManager;
-								this.bucketConfigurationSupplier = bucketConfigurationSupplier;
+				public RateLimiteFilter(RateLimitPipeline rateLimitPipeline, RateLimitRuleRegistry ruleRegistry,
+												@Qualifier("requestMappingHandlerMapping") HandlerMapping handlerMapping){
+								this.rateLimitPipeline = rateLimitPipeline;
+								this.ruleRegistry = ruleRegistry;
+								this.handlerMapping = handlerMapping;
 				}
 
 
@@ -80,25 +114,83 @@ public class RateLimiteFilter implements Filter {
 								HttpServletRequest request  = (HttpServletRequest) servletRequest;
 								HttpServletResponse response = (HttpServletResponse) servletResponse;
 
-								String clientKey = getClientKey(request);
+								String clientKey = BucketKeys.of("key", getClientKey(request));
 
-								Bucket bucket = proxyManager.builder().build(clientKey, bucketConfigurationSupplier);
+								List<RateLimitCheck> checks = new ArrayList<>(2);
+								RateLimitCheck handlerCheck = handlerCheck(request);
+								if(handlerCheck != null && rateLimitPipeline.exceedsCapacity(handlerCheck)){
+												response.sendError(HttpStatus.BAD_REQUEST.value(), "Custo da requisição maior que a capacidade do rate limit");
+												return;
+								}
+								checks.add(new RateLimitCheck(clientKey, ruleRegistry.apiKeyRule(), 1));
+								if(handlerCheck != null){
+												checks.add(handlerCheck);
+								}
 
-								ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+								ConsumptionProbe probe = rateLimitPipeline.evaluate(checks);
 
 
 								if(probe.isConsumed()){
 												response.setHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
+												if(handlerCheck != null){
+																request.setAttribute(RateLimitPipeline.HANDLER_EVALUATED_ATTRIBUTE, Boolean.TRUE);
+												}
 												filterChain.doFilter(servletRequest,servletResponse);
 								}else{
-												long nanosToWait = probe.getNanosToWaitForRefill();
-												long secondsToWait = TimeUnit.NANOSECONDS.toSeconds(nanosToWait);
-												response.setHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(secondsToWait));
+												response.setHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(RateLimitPipeline.retryAfterSeconds(probe)));
 												handlerRateLimitExceeded(response);
 								}
 
 				}
 
+				/**
+					* Monta a verificação do {@link RateLimited} do handler que vai atender a requisição.
+					*
+					* <p>
+					* O handler é resolvido pelo mesmo {@link HandlerMapping} do {@code DispatcherServlet}. Se não houver
+					* anotação, ou se o custo só puder ser calculado com os argumentos do método, a verificação fica
+					* para o {@link RateLimitAspect}.
+					* </p>
+					*
+					* @param request requisição HTTP
+					* @return verificação do limite do método, ou {@code null} se o filtro não puder avaliá-lo
+					*/
+				private RateLimitCheck handlerCheck(HttpServletRequest request){
+								HandlerMethod handler = resolveHandler(request);
+								if(handler == null){
+												return null;
+								}
+								RateLimitRule rule = rateLimitPipeline.rule(handler.getMethod());
+								if(rule == null){
+												return null;
+								}
+								long cost = rateLimitPipeline.cost(handler, request);
+								if(cost < 0){
+												return null;
+								}
+								return rateLimitPipeline.check(rule, request, cost);
+				}
+
+				private HandlerMethod resolveHandler(HttpServletRequest request){
+								boolean parsed = ServletRequestPathUtils.hasParsedRequestPath(request);
+								if(!parsed){
+												ServletRequestPathUtils.parseAndCache(request);
+								}
+								try {
+												HandlerExecutionChain chain = handlerMapping.getHandler(request);
+												if(chain != null && chain.getHandler() instanceof HandlerMethod handler){
+																return handler;
+												}
+								} catch (Exception e) {
+												log.debug("Não foi possível resolver o handler de {}: {}", request.getRequestURI(), e.toString());
+								} finally {
+												if(!parsed){
+																ServletRequestPathUtils.clearParsedRequestPath(request);
+												}
+								}
+								return null;
+				}
+
 				/**
 					* Define a chave do cliente utilizada pelo Bucket4j para identificar o bucket.
 					* Pode usar IP, API Key, user logado ou combinação destes.
@@ -115,7 +207,7 @@ public class RateLimiteFilter implements Filter {
 
 								String authHeader = request.getHeader("Authorization");
 
-								log.info("Requicao vinda do ip: {} ", apiKey);
+								log.debug("Requicao vinda do ip: {} ", apiKey);
 								return apiKey; // ou combinar varios identificadores
 
 				}
@@ -124,6 +216,11 @@ public class RateLimiteFilter implements Filter {
 					* Retorna resposta HTTP 429 (Too Many Requests) com corpo JSON informando
 					* o erro e timestamp.
 					*
+					* <p>
+					* O corpo é pré-serializado uma única vez ({@link #REJECTION_BODY}); a cada rejeição
+					* apenas o timestamp é serializado e inserido entre as duas partes fixas.
+					* </p>
+					*
 					* @param response resposta HTTP
 					* @throws IOException se houver erro ao escrever no corpo da resposta
 					*/
@@ -131,16 +228,42 @@ public class RateLimiteFilter implements Filter {
 								response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
 								response.setContentType(MediaType.APPLICATION_JSON_VALUE);
 
-								ObjectMapper objectMapper = new ObjectMapper();
-								objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
-								log.warn("Rate limit atingido");
+								long rejections = rejectionLog.sample();
+								if(rejections > 0){
+												log.warn("Rate limit atingido ({} rejeições desde o último registro)", rejections);
+								}
+								byte[] timestamp = OBJECT_MAPPER.writeValueAsBytes(LocalDateTime.now());
+								response.setContentLength(REJECTION_BODY[0].length + timestamp.length + REJECTION_BODY[1].length);
+
+								ServletOutputStream outputStream = response.getOutputStream();
+								outputStream.write(REJECTION_BODY[0]);
+								outputStream.write(timestamp);
+								outputStream.write(REJECTION_BODY[1]);
+
+				}
+
+				/**
+					* Serializa o corpo da resposta 429 com um marcador no lugar do timestamp e o divide em duas partes:
+					* o que vem antes e o que vem depois do valor do timestamp.
+					*
+					* @return as partes fixas do corpo, antes e depois do timestamp
+					*/
+				private static byte[][] rejectionBodyTemplate(){
 								Map<String,Object> erroDetails = new HashMap<>();
-								erroDetails.put("timestamp", LocalDateTime.now());
+								erroDetails.put("timestamp", TIMESTAMP_PLACEHOLDER);
 								erroDetails.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
 								erroDetails.put("error","Too many Requests");
 								erroDetails.put("message", "Rate limit exceeded. Please try again later");
-
-								response.getWriter().write(objectMapper.writeValueAsString(erroDetails));
-
+								try {
+												String json = OBJECT_MAPPER.writeValueAsString(erroDetails);
+												String placeholder = "\"" + TIMESTAMP_PLACEHOLDER + "\"";
+												int index = json.indexOf(placeholder);
+												return new byte[][]{
+																				json.substring(0, index).getBytes(StandardCharsets.UTF_8),
+																				json.substring(index + placeholder.length()).getBytes(StandardCharsets.UTF_8)
+												};
+								} catch (JsonProcessingException e) {
+												throw new IllegalStateException("Falha ao pré-serializar a resposta de rate limit", e);
+								}
 				}
 }
@@ -22,6 +22,13 @@ import java.lang.annotation.Target;
 	* public ResponseEntity<?> getPokemon(@RequestParam String nome) { ... }
 	* }</pre>
 	* </p>
+	*
+	* <p>
+	* Com {@link #limits()} o limite é formado por várias bandas {@link Limit} e os atributos
+	* {@code maxCapacity}, {@code initialTokens}, {@code tokensPerTimeWindow} e {@code timeWindow} são ignorados.
+	* As anotações são compiladas em regras uma única vez, na inicialização, pelo {@link RateLimitRuleRegistry},
+	* que também aplica as sobrescritas externas identificadas por {@link #name()}.
+	* </p>
 	*/
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
@@ -31,4 +38,19 @@ public @interface RateLimited {
 				int maxCapacity() default 10;
 				int initialTokens() default 10;
 				String scope() default "GLOBAL";
+
+				/**
+					* Identificador da regra usado nas sobrescritas externas; vazio para {@code Classe.metodo}.
+					*/
+				String name() default "";
+
+				/**
+					* Bandas do limite; quando vazio, uma única banda é criada a partir dos demais atributos.
+					*/
+				Limit[] limits() default {};
+
+				/**
+					* Comportamento do limite enquanto o Redis está indisponível: bucket local, permitir ou rejeitar.
+					*/
+				RateLimitFallback fallback() default RateLimitFallback.LOCAL;
 }
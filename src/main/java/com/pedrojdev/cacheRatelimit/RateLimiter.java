@@ -0,0 +1,90 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+	* Ponto único de decisão de rate limit usado por {@link RateLimiteFilter} e {@link RateLimitAspect}.
+	*
+	* <p>
+	* As implementações decidem como o estado do bucket é consultado: direto no Redis a cada chamada
+	* ({@link Bucket4jRateLimiter}) ou com tokens reservados localmente ({@link LeasingRateLimiter}).
+	* O resultado é sempre um {@link ConsumptionProbe}, para que os headers de rate limit continuem iguais.
+	* </p>
+	*/
+public interface RateLimiter {
+
+				/**
+					* Tenta consumir tokens do bucket identificado pela chave.
+					*
+					* @param key chave do bucket
+					* @param configuration fornecedor da configuração do bucket, usado caso ele ainda não exista
+					* @param tokens quantidade de tokens a consumir
+					* @return resultado do consumo, com tokens restantes ou tempo de espera
+					*/
+				ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens);
+
+				/**
+					* Avalia várias verificações de uma vez, para que todos os limites de uma requisição sejam decididos juntos.
+					*
+					* <p>
+					* O consumo é tudo ou nada. A implementação padrão consulta os buckets em sequência, para na primeira rejeição
+					* e devolve com {@link #refund} os tokens já consumidos das verificações anteriores.
+					* Implementações com acesso direto ao Redis avaliam tudo em um único round trip.
+					* </p>
+					*
+					* @param checks verificações a avaliar
+					* @return um resultado por verificação, na mesma ordem; após uma rejeição as verificações
+					* seguintes podem não ter sido avaliadas e ficam {@code null}
+					*/
+				default List<ConsumptionProbe> tryConsumeAll(List<RateLimitCheck> checks) {
+								List<ConsumptionProbe> probes = new ArrayList<>(checks.size());
+								boolean rejected = false;
+								for(RateLimitCheck check : checks){
+												if(rejected){
+																probes.add(null);
+																continue;
+												}
+												ConsumptionProbe probe = tryConsume(check.key(), check.configuration(), check.tokens());
+												rejected = !probe.isConsumed();
+												probes.add(probe);
+								}
+								if(rejected){
+												for(int i = 0; i < probes.size() && probes.get(i).isConsumed(); i++){
+																RateLimitCheck check = checks.get(i);
+																refund(check.key(), check.configuration(), check.tokens());
+												}
+								}
+								return probes;
+				}
+
+				/**
+					* Devolve tokens consumidos por uma verificação que acabou não valendo, porque outra verificação
+					* da mesma requisição foi rejeitada. O bucket nunca passa da sua capacidade.
+					*
+					* @param key chave do bucket
+					* @param configuration fornecedor da configuração do bucket
+					* @param tokens quantidade de tokens a devolver
+					*/
+				void refund(String key, Supplier<BucketConfiguration> configuration, long tokens);
+
+				/**
+					* Consome tokens sem verificar o limite, deixando o bucket em débito se preciso.
+					*
+					* <p>
+					* Usado para lançar no Redis o que foi consumido localmente enquanto ele esteve indisponível.
+					* A implementação padrão só consome se houver tokens suficientes.
+					* </p>
+					*
+					* @param key chave do bucket
+					* @param configuration fornecedor da configuração do bucket, usado caso ele ainda não exista
+					* @param tokens quantidade de tokens a consumir
+					*/
+				default void charge(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								tryConsume(key, configuration, tokens);
+				}
+}
@@ -0,0 +1,45 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+	* Regras do modo refresh-ahead / stale-while-revalidate do {@link CoalescingCache}.
+	*
+	* <p>
+	* Considerando a idade de uma entrada:
+	* <ul>
+	*     <li>até {@code ttl - refreshWindow}: fresca, servida direto do cache</li>
+	*     <li>até {@code ttl}: servida do cache e atualizada em segundo plano</li>
+	*     <li>até {@code ttl + staleGrace}: vencida; dispara a atualização e espera no máximo {@code staleWait},
+	*     servindo o valor vencido se a API externa estiver lenta ou fora do ar</li>
+	*     <li>depois disso: a entrada já expirou no Redis e é tratada como falta de cache</li>
+	* </ul>
+	* </p>
+	*
+	* @param ttl tempo de vida lógico das entradas
+	* @param refreshWindow janela antes do vencimento em que uma leitura dispara a atualização
+	* @param staleGrace tempo após o vencimento em que a entrada ainda pode ser servida
+	* @param staleWait espera máxima pela atualização antes de servir um valor vencido
+	* @param executor executor das atualizações em segundo plano
+	*/
+public record RefreshAheadPolicy(Duration ttl, Duration refreshWindow, Duration staleGrace, Duration staleWait,
+								Executor executor) {
+
+				/**
+					* Tempo que a entrada precisa ficar armazenada no Redis: o TTL lógico mais o período de graça.
+					*
+					* @return TTL físico das entradas
+					*/
+				public Duration storageTtl() {
+								return ttl.plus(staleGrace);
+				}
+
+				boolean isFresh(long ageMillis) {
+								return ageMillis < ttl.toMillis() - refreshWindow.toMillis();
+				}
+
+				boolean isExpired(long ageMillis) {
+								return ageMillis >= ttl.toMillis();
+				}
+}
@@ -0,0 +1,298 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+	* {@link RateLimiter} que protege as requisições de um Redis lento ou fora do ar.
+	*
+	* <p>
+	* Cada chamada ao rate limiter decorado passa por um {@link LatencyCircuitBreaker}. O tempo de cada chamada é
+	* limitado pelo timeout de comando do cliente Lettuce; chamadas que falham ou que passam do limite de lentidão
+	* abrem o circuito. Com o circuito aberto, ou quando uma chamada falha, a decisão é tomada localmente conforme
+	* o {@link RateLimitFallback} da regra:
+	* <ul>
+	*     <li>{@code LOCAL} - bucket em memória com a capacidade e o refil divididos pela quantidade de instâncias
+	*     estimada pelo {@link InstanceHeartbeat}, para que a soma das instâncias fique próxima do limite original</li>
+	*     <li>{@code ALLOW} - a requisição é permitida</li>
+	*     <li>{@code DENY} - a requisição é rejeitada até a próxima tentativa do circuito</li>
+	* </ul>
+	* Um {@link Error} na chamada conta como falha no circuito e é propagado.
+	* </p>
+	*
+	* <p>
+	* Quando o circuito volta a fechar, os tokens consumidos nos buckets locais são lançados nos buckets do Redis
+	* em segundo plano, com {@link RateLimiter#charge}, e os buckets locais são descartados. Assim o que foi permitido
+	* durante a falha continua contando para o limite.
+	* </p>
+	*/
+public class ResilientRateLimiter implements RateLimiter, AutoCloseable {
+
+				private final Logger log = LoggerFactory.getLogger(ResilientRateLimiter.class);
+
+				private final RateLimiter delegate;
+
+				private final LatencyCircuitBreaker circuitBreaker;
+
+				private final InstanceHeartbeat heartbeat;
+
+				private final long maximumBuckets;
+
+				/**
+					* Buckets locais por fornecedor de configuração, criados apenas durante as falhas do Redis.
+					*/
+				private final Cache<Supplier<BucketConfiguration>, LocalBuckets> localBuckets = Caffeine.newBuilder()
+												.weakKeys()
+												.build();
+
+				private final ExecutorService reconciler = Executors.newSingleThreadExecutor(runnable -> {
+								Thread thread = new Thread(runnable, "rate-limit-reconcile");
+								thread.setDaemon(true);
+								return thread;
+				});
+
+				/**
+					* Construtor do rate limiter.
+					*
+					* @param delegate rate limiter que consulta o Redis
+					* @param circuitBreaker circuit breaker das chamadas ao Redis
+					* @param heartbeat estimativa da quantidade de instâncias
+					* @param maximumBuckets quantidade máxima de buckets locais por regra
+					*/
+				public ResilientRateLimiter(RateLimiter delegate, LatencyCircuitBreaker circuitBreaker, InstanceHeartbeat heartbeat,
+												long maximumBuckets) {
+								this.delegate = delegate;
+								this.circuitBreaker = circuitBreaker;
+								this.heartbeat = heartbeat;
+								this.maximumBuckets = maximumBuckets;
+				}
+
+				@Override
+				public ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								LatencyCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+								if(permit == LatencyCircuitBreaker.Permit.DENIED){
+												return fallback(key, configuration, tokens);
+								}
+								long start = System.nanoTime();
+								ConsumptionProbe probe = null;
+								try {
+												probe = delegate.tryConsume(key, configuration, tokens);
+								} catch (RuntimeException e) {
+												log.debug("Falha ao consultar o bucket {} no Redis, decidindo localmente: {}", key, e.toString());
+								} finally {
+												if(probe == null){
+																circuitBreaker.onFailure(permit);
+												}
+								}
+								if(probe == null){
+												return fallback(key, configuration, tokens);
+								}
+								if(circuitBreaker.onSuccess(permit, System.nanoTime() - start)){
+												reconcile();
+								}
+								return probe;
+				}
+
+				@Override
+				public List<ConsumptionProbe> tryConsumeAll(List<RateLimitCheck> checks) {
+								LatencyCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+								if(permit == LatencyCircuitBreaker.Permit.DENIED){
+												return fallbackAll(checks);
+								}
+								long start = System.nanoTime();
+								List<ConsumptionProbe> probes = null;
+								try {
+												probes = delegate.tryConsumeAll(checks);
+								} catch (RuntimeException e) {
+												log.debug("Falha ao consultar os buckets no Redis, decidindo localmente: {}", e.toString());
+								} finally {
+												if(probes == null){
+																circuitBreaker.onFailure(permit);
+												}
+								}
+								if(probes == null){
+												return fallbackAll(checks);
+								}
+								if(circuitBreaker.onSuccess(permit, System.nanoTime() - start)){
+												reconcile();
+								}
+								return probes;
+				}
+
+				@Override
+				public void charge(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								delegate.charge(key, configuration, tokens);
+				}
+
+				/**
+					* Devolve os tokens ao Redis com o circuito fechado; aberto, ou se o Redis falhar, ao bucket local da chave,
+					* se houver um.
+					*/
+				@Override
+				public void refund(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								if(circuitBreaker.state() == LatencyCircuitBreaker.State.CLOSED){
+												try {
+																delegate.refund(key, configuration, tokens);
+																return;
+												} catch (RuntimeException e) {
+																log.debug("Falha ao devolver tokens ao bucket {} no Redis: {}", key, e.toString());
+												}
+								}
+								refundLocal(key, configuration, tokens);
+				}
+
+				private ConsumptionProbe fallback(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								RateLimitFallback fallback = fallbackOf(configuration);
+								if(fallback == RateLimitFallback.ALLOW){
+												return ConsumptionProbe.consumed(capacity(configuration.get()), 0);
+								}
+								if(fallback == RateLimitFallback.DENY){
+												long nanosToWait = Math.max(circuitBreaker.nanosUntilRetry(), TimeUnit.SECONDS.toNanos(1));
+												return ConsumptionProbe.rejected(0, nanosToWait, nanosToWait);
+								}
+								LocalBucket bucket = localBucket(key, configuration);
+								ConsumptionProbe probe = bucket.bucket().tryConsumeAndReturnRemaining(tokens);
+								if(probe.isConsumed()){
+												bucket.consumed().addAndGet(tokens);
+								}
+								return probe;
+				}
+
+				/**
+					* Decide as verificações localmente. Como no Redis, o consumo é tudo ou nada: se alguma for rejeitada,
+					* os tokens consumidos das demais são devolvidos aos buckets locais.
+					*/
+				private List<ConsumptionProbe> fallbackAll(List<RateLimitCheck> checks) {
+								List<ConsumptionProbe> probes = new ArrayList<>(checks.size());
+								boolean rejected = false;
+								for(RateLimitCheck check : checks){
+												ConsumptionProbe probe = fallback(check.key(), check.configuration(), check.tokens());
+												rejected |= !probe.isConsumed();
+												probes.add(probe);
+								}
+								if(rejected){
+												for(int i = 0; i < checks.size(); i++){
+																RateLimitCheck check = checks.get(i);
+																if(probes.get(i).isConsumed()){
+																				refundLocal(check.key(), check.configuration(), check.tokens());
+																}
+												}
+								}
+								return probes;
+				}
+
+				/**
+					* Devolve tokens ao bucket local da chave, se a regra usa o fallback {@code LOCAL} e o bucket existir.
+					*/
+				private void refundLocal(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								if(fallbackOf(configuration) != RateLimitFallback.LOCAL){
+												return;
+								}
+								LocalBuckets local = localBuckets.getIfPresent(configuration);
+								LocalBucket bucket = local != null ? local.buckets().getIfPresent(key) : null;
+								if(bucket != null){
+												bucket.bucket().addTokens(tokens);
+												bucket.consumed().addAndGet(-tokens);
+								}
+				}
+
+				private LocalBucket localBucket(String key, Supplier<BucketConfiguration> configuration) {
+								LocalBuckets local = localBuckets.get(configuration, supplier -> new LocalBuckets(
+																scale(supplier.get(), heartbeat.instances()),
+																Caffeine.newBuilder().maximumSize(maximumBuckets).build()));
+								return local.buckets().get(key, ignored -> {
+												LocalBucketBuilder builder = Bucket.builder();
+												for(Bandwidth bandwidth : local.configuration().getBandwidths()){
+																builder.addLimit(bandwidth);
+												}
+												return new LocalBucket(builder.build(), new AtomicLong());
+								});
+				}
+
+				/**
+					* Lança no Redis, em segundo plano, os tokens consumidos localmente e descarta os buckets locais.
+					*/
+				private void reconcile() {
+								Map<Supplier<BucketConfiguration>, LocalBuckets> snapshot = Map.copyOf(localBuckets.asMap());
+								localBuckets.invalidateAll();
+								if(snapshot.isEmpty()){
+												return;
+								}
+								reconciler.execute(() -> {
+												long charged = 0;
+												try {
+																for(Map.Entry<Supplier<BucketConfiguration>, LocalBuckets> entry : snapshot.entrySet()){
+																				for(Map.Entry<String, LocalBucket> bucket : entry.getValue().buckets().asMap().entrySet()){
+																								long consumed = bucket.getValue().consumed().get();
+																								if(consumed > 0){
+																												delegate.charge(bucket.getKey(), entry.getKey(), consumed);
+																												charged += consumed;
+																								}
+																				}
+																}
+																log.info("Redis de rate limit disponível novamente; {} tokens consumidos localmente foram lançados", charged);
+												} catch (RuntimeException e) {
+																log.warn("Falha ao lançar no Redis os tokens consumidos localmente, {} lançados: {}", charged, e.toString());
+												}
+								});
+				}
+
+				/**
+					* Divide capacidade, refil e tokens iniciais de cada banda pela quantidade de instâncias, arredondando para cima.
+					*/
+				private static BucketConfiguration scale(BucketConfiguration configuration, int instances) {
+								if(instances <= 1){
+												return configuration;
+								}
+								List<Bandwidth> bandwidths = new ArrayList<>();
+								for(Bandwidth bandwidth : configuration.getBandwidths()){
+												bandwidths.add(StripedRateLimiter.share(bandwidth, 0, instances));
+								}
+								return new BucketConfiguration(bandwidths);
+				}
+
+				private static long capacity(BucketConfiguration configuration) {
+								long capacity = Long.MAX_VALUE;
+								for(Bandwidth bandwidth : configuration.getBandwidths()){
+												capacity = Math.min(capacity, bandwidth.getCapacity());
+								}
+								return capacity;
+				}
+
+				private static RateLimitFallback fallbackOf(Supplier<BucketConfiguration> configuration) {
+								return configuration instanceof RateLimitRule rule ? rule.fallback() : RateLimitFallback.LOCAL;
+				}
+
+				@Override
+				public void close() {
+								reconciler.shutdownNow();
+				}
+
+				/**
+					* Buckets locais de uma regra, com a configuração já dividida pela quantidade de instâncias.
+					*/
+				private record LocalBuckets(BucketConfiguration configuration, Cache<String, LocalBucket> buckets) {
+				}
+
+				/**
+					* Bucket local e quantos tokens foram consumidos dele, para lançar no Redis na recuperação.
+					*/
+				private record LocalBucket(Bucket bucket, AtomicLong consumed) {
+				}
+}
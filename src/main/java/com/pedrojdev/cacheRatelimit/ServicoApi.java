@@ -1,42 +1,200 @@
 package com.pedrojdev.cacheRatelimit;
 
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
 	* Serviço responsável por consumir a API externa.
 	*
 	* <p>
-	* Este serviço utiliza {@link RestTemplate} para realizar chamadas HTTP GET
+	* Este serviço utiliza o {@link UpstreamClient} para realizar chamadas HTTP GET
 	* e {@link Cacheable} do Spring para armazenar respostas em cache, evitando
 	* chamadas repetidas para o mesmo recurso.
 	* </p>
 	*
 	* <p>
-	* A URL base da API externa é configurada via property {@code api-url} no arquivo
-	* {@code application.properties} ou {@code application.yml}.
+	* O cache usa {@code sync = true}: quando várias requisições perdem o cache para o mesmo nome ao mesmo tempo,
+	* apenas uma chama a API externa e as demais recebem o mesmo resultado (ver {@link CoalescingCache}).
+	* Respostas nulas não são armazenadas.
+	* </p>
+	*
+	* <p>
+	* O corpo da API externa é lido como {@code byte[]} e armazenado como {@link CachedResponse}, sem ser
+	* convertido em objetos; assim nem a leitura da API, nem o Redis, nem a resposta HTTP precisam
+	* decodificar e recodificar o JSON.
+	* </p>
+	*
+	* <p>
+	* Nas atualizações em segundo plano do refresh-ahead, a requisição leva o ETag da API externa em
+	* {@code If-None-Match}; se a API responder 304, a entrada atual é regravada sem baixar o corpo de novo.
+	* </p>
+	*
+	* <p>
+	* {@link #getAll(Collection)} atende vários nomes de uma vez: lê todas as chaves do cache em lote
+	* (ver {@link BatchCache}), busca apenas as faltas na API externa em paralelo, sem ocupar uma thread por busca,
+	* e grava os valores carregados de volta em um único lote. As faltas passam pelo {@link CoalescingCache}, então um nome
+	* que já está sendo carregado por outra requisição não é buscado de novo.
+	* </p>
+	*
+	* <p>
+	* As chaves do cache são o nome normalizado (ver {@link #normalize(String)}). Os pokémons inexistentes
+	* (404 da API externa) são guardados como {@link CachedResponse#NOT_FOUND}, com um tempo de vida curto, para que
+	* nomes inválidos repetidos não cheguem à API.
+	* </p>
+	*
+	* <p>
+	* Todas as chamadas à API externa passam por um {@link AdaptiveConcurrencyLimiter}, que acompanha a capacidade
+	* real da API pela latência. Quando ela satura, as chamadas excedentes são recusadas com
+	* {@link UpstreamOverloadedException} em vez de prender threads do Tomcat; entradas em refresh-ahead continuam
+	* servindo o valor antigo.
 	* </p>
 	*
 	* <p>
 	* Exemplo de uso:
 	* <pre>{@code
-	* ServicoApi servicoApi = new ServicoApi();
-	* Object resultado = servicoApi.get("pikachu");
+	* ServicoApi servicoApi = new ServicoApi(cacheManager, upstreamClient);
+	* CachedResponse resultado = servicoApi.get("pikachu");
 	* }</pre>
 	* </p>
 	*/
 
 @Service
 public class ServicoApi {
-    @Value("${api-url}")
-				private String url;
+				/**
+					* Nome do cache de pokémons.
+					*/
+				public static final String CACHE_NAME = "pokemonCache";
+
+				private final Logger log = LoggerFactory.getLogger(ServicoApi.class);
+
+				private final CacheManager cacheManager;
+
+				private final UpstreamClient upstreamClient;
+
+				/**
+					* Construtor do serviço.
+					*
+					* @param cacheManager gerenciador do cache, usado nas leituras em lote
+					* @param upstreamClient cliente da API externa
+					*/
+				public ServicoApi(CacheManager cacheManager, UpstreamClient upstreamClient) {
+								this.cacheManager = cacheManager;
+								this.upstreamClient = upstreamClient;
+				}
 
-				private final RestTemplate rest = new RestTemplate();
+				/**
+					* Normaliza o nome do pokémon usado como chave do cache e na API externa: sem espaços nas pontas e em minúsculas.
+					*
+					* @param nome nome recebido na requisição
+					* @return nome normalizado
+					*/
+				public static String normalize(String nome){
+								return nome.trim().toLowerCase(Locale.ROOT);
+				}
+
+				/**
+					* Busca o pokémon, consultando o cache antes da API externa.
+					*
+					* @param nome nome do pokémon
+					* @return resposta da API externa, ou {@link CachedResponse#NOT_FOUND} se o pokémon não existe
+					*/
+				@Cacheable(value = CACHE_NAME, keyGenerator = "pokemonKeyGenerator", sync = true)
+				public CachedResponse get(String nome){
+								CachedResponse current = CoalescingCache.refreshingValue() instanceof CachedResponse refreshing ? refreshing : null;
+								try {
+												return upstreamClient.fetch(normalize(nome), current);
+								} catch (HttpClientErrorException.NotFound e) {
+												return CachedResponse.NOT_FOUND;
+								}
+				}
+
+				/**
+					* Busca vários pokémons, consultando o cache em lote e a API externa apenas para as faltas.
+					*
+					* <p>
+					* Uma busca recusada pelo limite de chamadas à API externa descarta só o nome dela, que volta {@code null};
+					* os demais nomes são respondidos normalmente. Nomes em branco são ignorados.
+					* </p>
+					*
+					* @param nomes nomes dos pokémons
+					* @return resposta de cada nome normalizado, na ordem recebida e sem repetições; {@code null} para os nomes
+					* não encontrados ou cuja busca falhou ou foi recusada
+					* @throws UpstreamOverloadedException se nenhum nome estava em cache e todas as buscas foram recusadas pelo limite
+					* de chamadas à API externa
+					*/
+				public Map<String, CachedResponse> getAll(Collection<String> nomes){
+								Cache cache = cacheManager.getCache(CACHE_NAME);
+								Set<String> distinct = new LinkedHashSet<>();
+								for(String nome : nomes){
+												if(nome != null && !nome.isBlank()){
+																distinct.add(normalize(nome));
+												}
+								}
+								Map<Object, Object> cached = BatchCache.getAllFrom(cache, distinct);
+
+								List<String> misses = new ArrayList<>();
+								for(String nome : distinct){
+												if(!cached.containsKey(nome)){
+																misses.add(nome);
+												}
+								}
+								AtomicReference<UpstreamOverloadedException> overloaded = new AtomicReference<>();
+								AtomicInteger shed = new AtomicInteger();
+								Map<Object, Object> loaded = misses.isEmpty() ? Map.of()
+																: BatchCache.loadAllFrom(cache, misses, nome -> fetchMiss((String) nome, overloaded, shed));
+								if(cached.isEmpty() && !misses.isEmpty() && shed.get() == misses.size()){
+												throw overloaded.get();
+								}
+
+								Map<String, CachedResponse> results = new LinkedHashMap<>();
+								for(String nome : distinct){
+												Object value = cached.containsKey(nome) ? cached.get(nome) : loaded.get(nome);
+												CachedResponse response = value instanceof CachedResponse found ? found : null;
+												results.put(nome, response != null && !response.isNotFound() ? response : null);
+								}
+								return results;
+				}
 
-				@Cacheable(value = "pokemonCache", key = "#nome", unless = "#result == null")
-				public Object get(String nome){
-								return rest.getForObject(url + nome.toLowerCase(), Object.class);
+				/**
+					* Busca uma falta do lote na API externa. A carga nunca falha: um 404 vira {@link CachedResponse#NOT_FOUND}
+					* e as demais falhas viram {@code null}, que não é gravado no cache. As buscas recusadas pelo limite são contadas
+					* em {@code shed}.
+					*/
+				private CompletableFuture<CachedResponse> fetchMiss(String nome, AtomicReference<UpstreamOverloadedException> overloaded,
+																AtomicInteger shed){
+								return upstreamClient.fetchAsync(nome, null).handle((response, error) -> {
+												if(error == null){
+																return response;
+												}
+												Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+												if(cause instanceof HttpClientErrorException.NotFound){
+																return CachedResponse.NOT_FOUND;
+												}
+												if(cause instanceof UpstreamOverloadedException exception){
+																overloaded.set(exception);
+																shed.incrementAndGet();
+												}else{
+																log.warn("Falha ao buscar {} na API externa: {}", nome, cause.toString());
+												}
+												return null;
+								});
 				}
 }
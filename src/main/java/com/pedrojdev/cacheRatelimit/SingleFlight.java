@@ -0,0 +1,120 @@
+package com.pedrojdev.cacheRatelimit;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+	* Deduplicação de chamadas concorrentes por chave dentro da JVM.
+	*
+	* <p>
+	* A primeira thread que chama {@link #execute(Object, Callable)} para uma chave executa o carregamento;
+	* as demais threads que chegam enquanto ele está em andamento esperam e recebem o mesmo resultado,
+	* ou a mesma exceção. Assim que o carregamento termina a chave é liberada, então chamadas posteriores
+	* executam um novo carregamento.
+	* </p>
+	*/
+public class SingleFlight {
+
+				private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+				/**
+					* Executa o carregamento da chave, ou aguarda o carregamento que já está em andamento.
+					*
+					* @param key chave a ser carregada
+					* @param loader carregamento executado apenas pela primeira thread
+					* @return valor carregado
+					* @throws Exception exceção lançada pelo carregamento, repassada a todas as threads que aguardavam
+					*/
+				@SuppressWarnings("unchecked")
+				public <T> T execute(Object key, Callable<T> loader) throws Exception {
+								CompletableFuture<Object> flight = new CompletableFuture<>();
+								CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+								if(existing != null){
+												return (T) await(existing);
+								}
+								run(key, flight, loader);
+								return (T) await(flight);
+				}
+
+				/**
+					* Dispara o carregamento da chave em outra thread, ou devolve o carregamento que já está em andamento.
+					*
+					* <p>
+					* O carregamento assíncrono ocupa a mesma vaga da chave que {@link #execute(Object, Callable)},
+					* então uma chamada síncrona que chegue durante uma atualização em segundo plano aguarda o mesmo resultado.
+					* </p>
+					*
+					* @param key chave a ser carregada
+					* @param loader carregamento executado apenas se não houver outro em andamento
+					* @param executor executor do carregamento
+					* @return future com o resultado do carregamento
+					*/
+				@SuppressWarnings("unchecked")
+				public <T> CompletableFuture<T> executeAsync(Object key, Callable<T> loader, Executor executor) {
+								CompletableFuture<Object> flight = new CompletableFuture<>();
+								CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+								if(existing != null){
+												return (CompletableFuture<T>) existing.copy();
+								}
+								try {
+												executor.execute(() -> run(key, flight, loader));
+								} catch (RejectedExecutionException e) {
+												flight.completeExceptionally(e);
+												inFlight.remove(key, flight);
+								}
+								return (CompletableFuture<T>) flight.copy();
+				}
+
+				/**
+					* Reserva a vaga da chave para um carregamento conduzido por quem chama, como os carregamentos em lote.
+					*
+					* <p>
+					* Quem reserva a vaga deve concluir {@code flight} com o resultado e liberá-la com
+					* {@link #release(Object, CompletableFuture)}; até lá as chamadas para a mesma chave aguardam {@code flight}.
+					* </p>
+					*
+					* @param key chave a ser carregada
+					* @param flight resultado do carregamento
+					* @return o carregamento já em andamento para a chave, ou {@code null} se a vaga foi reservada para {@code flight}
+					*/
+				public CompletableFuture<Object> claim(Object key, CompletableFuture<Object> flight) {
+								return inFlight.putIfAbsent(key, flight);
+				}
+
+				/**
+					* Libera a vaga reservada com {@link #claim(Object, CompletableFuture)}.
+					*
+					* @param key chave carregada
+					* @param flight resultado do carregamento que ocupava a vaga
+					*/
+				public void release(Object key, CompletableFuture<Object> flight) {
+								inFlight.remove(key, flight);
+				}
+
+				private void run(Object key, CompletableFuture<Object> flight, Callable<?> loader) {
+								try {
+												flight.complete(loader.call());
+								} catch (Exception | Error e) {
+												flight.completeExceptionally(e);
+								} finally {
+												inFlight.remove(key, flight);
+								}
+				}
+
+				private static Object await(CompletableFuture<Object> flight) throws Exception {
+								try {
+												return flight.get();
+								} catch (ExecutionException e) {
+												Throwable cause = e.getCause();
+												if(cause instanceof Exception exception){
+																throw exception;
+												}
+												throw (Error) cause;
+								}
+				}
+}
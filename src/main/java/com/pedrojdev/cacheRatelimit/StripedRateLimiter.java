@@ -0,0 +1,214 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BandwidthBuilder;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+	* {@link RateLimiter} que divide um bucket em vários sub-buckets (stripes) para eliminar a chave quente única.
+	*
+	* <p>
+	* A capacidade e o refil de cada banda são repartidos entre as stripes, que ficam em chaves
+	* {@code <chave>:<stripe>} distintas e, portanto, em shards e loops de compare-and-swap distintos.
+	* Cada chamada começa por uma stripe sorteada; se ela estiver vazia, tenta pegar emprestado das stripes seguintes,
+	* até {@code borrowAttempts} vezes, antes de rejeitar. O sorteio não depende da thread: com uma virtual thread por
+	* requisição não há afinidade entre thread e stripe a aproveitar, e um identificador sempre novo não espalharia
+	* melhor a carga que um número aleatório.
+	* </p>
+	*
+	* <p>
+	* A soma das stripes é igual ao limite original. Como o empréstimo é limitado, uma requisição pode ser
+	* rejeitada enquanto alguma stripe distante ainda tem tokens; aumentar {@code borrowAttempts} reduz esse efeito
+	* ao custo de mais chamadas nos momentos de saturação.
+	* </p>
+	*
+	* <p>
+	* Em {@link #tryConsumeAll}, os tokens de uma verificação desfeita voltam para a stripe de onde saíram. Um
+	* {@link #refund} avulso não sabe de qual stripe eles saíram e os devolve a uma stripe sorteada; se ela estiver
+	* cheia, o que passar da capacidade dela se perde.
+	* </p>
+	*
+	* <p>
+	* As configurações das stripes são calculadas uma vez por regra e repassadas como {@link RateLimitRule}
+	* com a mesma versão da regra original.
+	* </p>
+	*/
+public class StripedRateLimiter implements RateLimiter {
+
+				private final RateLimiter delegate;
+
+				private final int stripes;
+
+				private final int borrowAttempts;
+
+				private final Cache<Supplier<BucketConfiguration>, List<RateLimitRule>> stripeRules = Caffeine.newBuilder()
+												.weakKeys()
+												.build();
+
+				/**
+					* Construtor do rate limiter.
+					*
+					* @param delegate rate limiter de cada stripe
+					* @param stripes quantidade de stripes
+					* @param borrowAttempts quantidade de stripes vizinhas consultadas quando a stripe escolhida está vazia
+					*/
+				public StripedRateLimiter(RateLimiter delegate, int stripes, int borrowAttempts) {
+								this.delegate = delegate;
+								this.stripes = stripes;
+								this.borrowAttempts = borrowAttempts;
+				}
+
+				@Override
+				public ConsumptionProbe tryConsume(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								return tryConsumeStripe(key, rules(configuration), tokens).probe();
+				}
+
+				/**
+					* Avalia as verificações como a implementação padrão, mas guarda a stripe usada por cada uma para que,
+					* após uma rejeição, os tokens já consumidos voltem para a mesma stripe.
+					*/
+				@Override
+				public List<ConsumptionProbe> tryConsumeAll(List<RateLimitCheck> checks) {
+								List<ConsumptionProbe> probes = new ArrayList<>(checks.size());
+								List<StripeProbe> consumed = new ArrayList<>(checks.size());
+								boolean rejected = false;
+								for(RateLimitCheck check : checks){
+												if(rejected){
+																probes.add(null);
+																continue;
+												}
+												StripeProbe result = tryConsumeStripe(check.key(), rules(check.configuration()), check.tokens());
+												rejected = !result.probe().isConsumed();
+												if(!rejected){
+																consumed.add(result);
+												}
+												probes.add(result.probe());
+								}
+								if(rejected){
+												for(int i = 0; i < consumed.size(); i++){
+																RateLimitCheck check = checks.get(i);
+																List<RateLimitRule> rules = rules(check.configuration());
+																int stripe = consumed.get(i).stripe();
+																delegate.refund(check.key() + ":" + stripe, rules.get(stripe), check.tokens());
+												}
+								}
+								return probes;
+				}
+
+				/**
+					* Consome de uma stripe sorteada ou, se ela estiver vazia, das seguintes.
+					*
+					* @return resultado do consumo e a stripe que o atendeu; numa rejeição, a stripe com a menor espera
+					*/
+				private StripeProbe tryConsumeStripe(String key, List<RateLimitRule> rules, long tokens) {
+								int count = rules.size();
+								int first = ThreadLocalRandom.current().nextInt(count);
+								StripeProbe best = null;
+								for(int attempt = 0; attempt <= Math.min(borrowAttempts, count - 1); attempt++){
+												int stripe = (first + attempt) % count;
+												ConsumptionProbe probe = delegate.tryConsume(key + ":" + stripe, rules.get(stripe), tokens);
+												if(probe.isConsumed()){
+																return new StripeProbe(stripe, probe);
+												}
+												if(best == null || probe.getNanosToWaitForRefill() < best.probe().getNanosToWaitForRefill()){
+																best = new StripeProbe(stripe, probe);
+												}
+								}
+								return best;
+				}
+
+				@Override
+				public void refund(String key, Supplier<BucketConfiguration> configuration, long tokens) {
+								List<RateLimitRule> rules = rules(configuration);
+								int stripe = ThreadLocalRandom.current().nextInt(rules.size());
+								delegate.refund(key + ":" + stripe, rules.get(stripe), tokens);
+				}
+
+				/**
+					* Configuração da menor stripe da regra, a que recebe a menor parcela de cada banda.
+					*
+					* <p>
+					* Um custo só cabe com certeza no bucket dividido se couber nessa stripe; é contra ela que
+					* {@link RateLimitPipeline#exceedsCapacity} compara as verificações do escopo global.
+					* </p>
+					*
+					* @param configuration configuração original, não dividida
+					* @return configuração da menor stripe
+					*/
+				public Supplier<BucketConfiguration> smallestStripe(Supplier<BucketConfiguration> configuration) {
+								List<RateLimitRule> rules = rules(configuration);
+								return rules.get(rules.size() - 1);
+				}
+
+				private List<RateLimitRule> rules(Supplier<BucketConfiguration> configuration) {
+								List<RateLimitRule> rules = stripeRules.getIfPresent(configuration);
+								if(rules == null){
+												rules = stripeRules.get(configuration, this::split);
+								}
+								return rules;
+				}
+
+				/**
+					* Reparte cada banda entre as stripes. A quantidade efetiva de stripes nunca passa da menor capacidade
+					* ou do menor refil entre as bandas, para que nenhuma stripe fique sem tokens.
+					*/
+				private List<RateLimitRule> split(Supplier<BucketConfiguration> supplier) {
+								BucketConfiguration configuration = supplier.get();
+								RateLimitRule rule = supplier instanceof RateLimitRule original
+																? original
+																: new RateLimitRule(RateLimitPipeline.GLOBAL_KEY, RateLimitPipeline.GLOBAL_KEY, configuration, 1, RateLimitFallback.LOCAL);
+								long count = stripes;
+								for(Bandwidth bandwidth : configuration.getBandwidths()){
+												count = Math.min(count, Math.min(bandwidth.getCapacity(), bandwidth.getRefillTokens()));
+								}
+								List<RateLimitRule> rules = new ArrayList<>();
+								for(int stripe = 0; stripe < Math.max(1, count); stripe++){
+												ConfigurationBuilder builder = BucketConfiguration.builder();
+												for(Bandwidth bandwidth : configuration.getBandwidths()){
+																builder.addLimit(share(bandwidth, stripe, (int) Math.max(1, count)));
+												}
+												rules.add(new RateLimitRule(rule.id() + ":" + stripe, rule.scope(), builder.build(), rule.version(), rule.fallback()));
+								}
+								return List.copyOf(rules);
+				}
+
+				/**
+					* Parte de uma banda que cabe à stripe {@code stripe} de {@code count}.
+					*/
+				static Bandwidth share(Bandwidth bandwidth, int stripe, int count) {
+								long refillTokens = portion(bandwidth.getRefillTokens(), stripe, count);
+								Duration period = Duration.ofNanos(bandwidth.getRefillPeriodNanos());
+								BandwidthBuilder.BandwidthBuilderRefillStage refillStage = Bandwidth.builder()
+																.capacity(portion(bandwidth.getCapacity(), stripe, count));
+								BandwidthBuilder.BandwidthBuilderBuildStage buildStage = bandwidth.isRefillIntervally()
+																? refillStage.refillIntervally(refillTokens, period)
+																: refillStage.refillGreedy(refillTokens, period);
+								return buildStage.initialTokens(portion(bandwidth.getInitialTokens(), stripe, count)).build();
+				}
+
+				/**
+					* Parcela da stripe em uma divisão inteira: o resto é distribuído, um a um, entre as primeiras stripes.
+					*/
+				private static long portion(long total, int stripe, int count) {
+								return total / count + (stripe < total % count ? 1 : 0);
+				}
+
+				/**
+					* Resultado do consumo em uma stripe.
+					*
+					* @param stripe índice da stripe
+					* @param probe resultado do consumo
+					*/
+				private record StripeProbe(int stripe, ConsumptionProbe probe) {
+				}
+}
@@ -0,0 +1,258 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+	* Cache em dois níveis: um near-cache em memória (L1, Caffeine) na frente do cache Redis (L2).
+	*
+	* <p>
+	* Leituras consultam primeiro o L1, evitando o round trip de rede e a desserialização JSON do Redis.
+	* Em caso de falta no L1, o valor é buscado no L2 e promovido para o L1.
+	* Escritas e remoções vão sempre para os dois níveis e são propagadas para as outras instâncias
+	* via {@link CacheInvalidationBus}, para que réplicas não sirvam dados divergentes.
+	* </p>
+	*
+	* <p>
+	* A semântica do {@code @Cacheable} é a do L2: o L1 nunca guarda uma entrada por mais tempo que o Redis. Valores
+	* gravados por esta instância usam no L1 o mesmo TTL gravado no Redis; valores promovidos do L2 usam o tempo de vida
+	* restante da chave no Redis, lido no mesmo round trip quando o L2 é um {@link BatchRedisCache}.
+	* </p>
+	*/
+public class TwoLevelCache implements Cache, BatchCache {
+
+				private final String name;
+
+				private final com.github.benmanes.caffeine.cache.Cache<Object, Object> nearCache;
+
+				private final Cache redisCache;
+
+				private final CacheInvalidationBus invalidationBus;
+
+				/**
+					* Construtor do cache em dois níveis.
+					*
+					* @param name nome do cache
+					* @param nearCache cache local (L1)
+					* @param redisCache cache Redis (L2)
+					* @param invalidationBus barramento de invalidação entre instâncias
+					*/
+				public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> nearCache,
+												Cache redisCache, CacheInvalidationBus invalidationBus) {
+								this.name = name;
+								this.nearCache = nearCache;
+								this.redisCache = redisCache;
+								this.invalidationBus = invalidationBus;
+				}
+
+				@Override
+				public String getName() {
+								return name;
+				}
+
+				@Override
+				public Object getNativeCache() {
+								return redisCache.getNativeCache();
+				}
+
+				@Override
+				public ValueWrapper get(Object key) {
+								Object local = nearCache.getIfPresent(key);
+								if(local != null){
+												return new SimpleValueWrapper(local);
+								}
+								Object remote = fetchRemote(List.of(key)).get(key);
+								return remote != null ? new SimpleValueWrapper(remote) : null;
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public <T> T get(Object key, Class<T> type) {
+								ValueWrapper wrapper = get(key);
+								Object value = wrapper != null ? wrapper.get() : null;
+								if(value != null && type != null && !type.isInstance(value)){
+												throw new IllegalStateException("Valor em cache não é do tipo " + type.getName() + ": " + value);
+								}
+								return (T) value;
+				}
+
+				/**
+					* Lê a chave nos dois níveis e, se ela não existir, carrega e grava o valor como em {@link #put(Object, Object)},
+					* notificando as outras instâncias.
+					*/
+				@Override
+				@SuppressWarnings("unchecked")
+				public <T> T get(Object key, Callable<T> valueLoader) {
+								ValueWrapper cached = get(key);
+								if(cached != null){
+												return (T) cached.get();
+								}
+								T value;
+								try {
+												value = valueLoader.call();
+								} catch (Exception e) {
+												throw new ValueRetrievalException(key, valueLoader, e);
+								}
+								if(value != null){
+												put(key, value);
+								}
+								return value;
+				}
+
+				@Override
+				public void put(Object key, Object value) {
+								redisCache.put(key, value);
+								if(value != null){
+												nearCache.put(key, value);
+								}
+								invalidationBus.publishEvict(name, key);
+				}
+
+				/**
+					* Lê as chaves do L1 e busca apenas as que faltam no L2, em lote, promovendo-as para o L1.
+					*/
+				@Override
+				public Map<Object, Object> getAll(Collection<?> keys) {
+								Map<Object, Object> values = new LinkedHashMap<>();
+								List<Object> misses = new ArrayList<>();
+								for(Object key : keys){
+												Object local = nearCache.getIfPresent(key);
+												if(local != null){
+																values.put(key, local);
+												}else{
+																misses.add(key);
+												}
+								}
+								if(!misses.isEmpty()){
+												values.putAll(fetchRemote(misses));
+								}
+								return values;
+				}
+
+				/**
+					* Busca as chaves no L2 e as promove para o L1, cada uma pelo tempo de vida restante no Redis.
+					*/
+				private Map<Object, Object> fetchRemote(Collection<?> keys) {
+								if(!(redisCache instanceof BatchRedisCache batchCache)){
+												Map<Object, Object> remote = BatchCache.getAllFrom(redisCache, keys);
+												nearCache.putAll(remote);
+												return remote;
+								}
+								Map<Object, Object> values = new LinkedHashMap<>();
+								batchCache.getAllWithTtl(keys).forEach((key, remote) -> {
+												values.put(key, remote.value());
+												promote(key, remote.value(), remote.ttl());
+								});
+								return values;
+				}
+
+				private void promote(Object key, Object value, Duration ttl) {
+								if(ttl == null){
+												nearCache.put(key, value);
+								}else if(ttl.isPositive()){
+												nearCache.policy().expireVariably().ifPresentOrElse(
+																				expiration -> expiration.put(key, value, ttl),
+																				() -> nearCache.put(key, value));
+								}
+				}
+
+				@Override
+				public void putAll(Map<?, ?> values) {
+								BatchCache.putAllInto(redisCache, values);
+								values.forEach((key, value) -> {
+												if(value != null){
+																nearCache.put(key, value);
+												}
+								});
+								invalidationBus.publishEvictAll(name, values.keySet());
+				}
+
+				@Override
+				public void evict(Object key) {
+								redisCache.evict(key);
+								nearCache.invalidate(key);
+								invalidationBus.publishEvict(name, key);
+				}
+
+				@Override
+				public void clear() {
+								redisCache.clear();
+								nearCache.invalidateAll();
+								invalidationBus.publishClear(name);
+				}
+
+				/**
+					* Remove a entrada apenas do near-cache local, sem tocar no Redis.
+					* Usado quando outra instância notifica uma alteração.
+					*
+					* @param key chave a ser removida
+					*/
+				void evictLocal(Object key) {
+								nearCache.invalidate(key);
+				}
+
+				/**
+					* Limpa apenas o near-cache local, sem tocar no Redis.
+					*/
+				void clearLocal() {
+								nearCache.invalidateAll();
+				}
+
+				/**
+					* Estima o peso (em bytes aproximados) de um valor em cache para a eviction por peso do L1.
+					*
+					* <p>
+					* Os valores da API externa são grafos de {@link Map}, {@link Collection}, strings e números,
+					* eventualmente dentro de um {@link CacheEntry}, então a estimativa percorre a estrutura sem serializar nada.
+					* </p>
+					*
+					* @param value valor em cache
+					* @return peso estimado, no mínimo 1
+					*/
+				static int estimateWeight(Object value) {
+								long weight = weigh(value);
+								return (int) Math.max(1, Math.min(Integer.MAX_VALUE, weight));
+				}
+
+				private static long weigh(Object value) {
+								if(value == null){
+												return 4;
+								}
+								if(value instanceof CacheEntry entry){
+												return 24 + weigh(entry.value());
+								}
+								if(value instanceof CachedResponse response){
+												return 48L + response.body().length + weigh(response.contentType()) + weigh(response.etag())
+																+ weigh(response.upstreamEtag());
+								}
+								if(value instanceof CharSequence text){
+												return 40L + 2L * text.length();
+								}
+								if(value instanceof byte[] bytes){
+												return 16L + bytes.length;
+								}
+								if(value instanceof Map<?, ?> map){
+												long weight = 48;
+												for(Map.Entry<?, ?> entry : map.entrySet()){
+																weight += 32 + weigh(entry.getKey()) + weigh(entry.getValue());
+												}
+												return weight;
+								}
+								if(value instanceof Collection<?> collection){
+												long weight = 40;
+												for(Object element : collection){
+																weight += 8 + weigh(element);
+												}
+												return weight;
+								}
+								return 16;
+				}
+}
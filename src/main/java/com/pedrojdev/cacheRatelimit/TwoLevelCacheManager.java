@@ -0,0 +1,65 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+	* {@link CacheManager} que envolve os caches do Redis com um near-cache em memória.
+	*
+	* <p>
+	* Cada cache devolvido pelo gerenciador Redis é embrulhado em um {@link TwoLevelCache},
+	* com um L1 Caffeine próprio criado pelo {@code nearCacheBuilder}.
+	* </p>
+	*/
+public class TwoLevelCacheManager implements CacheManager {
+
+				private final CacheManager redisCacheManager;
+
+				private final Supplier<Caffeine<Object, Object>> nearCacheBuilder;
+
+				private final CacheInvalidationBus invalidationBus;
+
+				private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do gerenciador.
+					*
+					* @param redisCacheManager gerenciador dos caches Redis (L2)
+					* @param nearCacheBuilder fornecedor do builder Caffeine usado para cada L1
+					* @param invalidationBus barramento de invalidação entre instâncias
+					*/
+				public TwoLevelCacheManager(CacheManager redisCacheManager, Supplier<Caffeine<Object, Object>> nearCacheBuilder,
+												CacheInvalidationBus invalidationBus) {
+								this.redisCacheManager = redisCacheManager;
+								this.nearCacheBuilder = nearCacheBuilder;
+								this.invalidationBus = invalidationBus;
+				}
+
+				@Override
+				public Cache getCache(String name) {
+								TwoLevelCache cache = caches.get(name);
+								if(cache != null){
+												return cache;
+								}
+								Cache redisCache = redisCacheManager.getCache(name);
+								if(redisCache == null){
+												return null;
+								}
+								return caches.computeIfAbsent(name, cacheName -> {
+												TwoLevelCache created = new TwoLevelCache(cacheName, nearCacheBuilder.get().build(), redisCache, invalidationBus);
+												invalidationBus.register(created);
+												return created;
+								});
+				}
+
+				@Override
+				public Collection<String> getCacheNames() {
+								return redisCacheManager.getCacheNames();
+				}
+}
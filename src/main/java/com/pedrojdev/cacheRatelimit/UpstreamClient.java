@@ -0,0 +1,293 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+	* Cliente da API externa sobre o {@link HttpClient} do JDK.
+	*
+	* <p>
+	* O {@link HttpClient} mantém as conexões abertas entre as chamadas (keep-alive), negocia HTTP/2 quando a API
+	* oferece e não prende uma thread por chamada em andamento: {@link #fetchAsync(String, CachedResponse)} devolve um
+	* {@link CompletableFuture}. Cada requisição tem o timeout {@code requestTimeout}; o timeout de conexão é configurado
+	* no próprio {@link HttpClient}.
+	* </p>
+	*
+	* <p>
+	* Toda requisição passa pelo {@link AdaptiveConcurrencyLimiter}. Os erros seguem os do {@code RestTemplate}:
+	* 4xx vira {@link HttpClientErrorException}, 5xx vira {@link HttpServerErrorException} e falhas de conexão ou timeout
+	* viram {@link ResourceAccessException}.
+	* </p>
+	*
+	* <p>
+	* Com uma {@link HedgingPolicy}, uma chamada sem resposta depois do atraso da política recebe uma segunda requisição,
+	* se houver vaga livre no limitador, e vale a primeira resposta; a outra requisição é cancelada.
+	* </p>
+	*
+	* <p>
+	* Cada requisição enviada é medida no timer {@code upstream.requests}, com as tags {@code outcome} (a classe do status,
+	* como {@code 2xx}, ou {@code error} e {@code cancelled}) e {@code hedge}. As chamadas recusadas pelo limitador
+	* contam em {@code upstream.rejected} e o limite atual é publicado em {@code upstream.concurrency.limit}.
+	* </p>
+	*/
+public class UpstreamClient {
+
+				private final HttpClient httpClient;
+
+				private final String baseUrl;
+
+				private final Duration requestTimeout;
+
+				private final AdaptiveConcurrencyLimiter limiter;
+
+				private final HedgingPolicy hedgingPolicy;
+
+				private final MeterRegistry meterRegistry;
+
+				private final Counter rejected;
+
+				/**
+					* Timers de {@code upstream.requests} por resultado, criados no primeiro uso.
+					*/
+				private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
+
+				/**
+					* Construtor do cliente.
+					*
+					* @param httpClient cliente HTTP, com as conexões compartilhadas entre as chamadas
+					* @param baseUrl URL base da API externa, à qual o nome do pokémon é acrescentado
+					* @param requestTimeout tempo máximo de cada requisição, da conexão ao fim da resposta
+					* @param limiter limite de chamadas simultâneas à API externa
+					* @param hedgingPolicy regras das requisições de hedge, ou {@code null} para desligar o hedge
+					* @param meterRegistry registro das métricas
+					*/
+				public UpstreamClient(HttpClient httpClient, String baseUrl, Duration requestTimeout, AdaptiveConcurrencyLimiter limiter,
+																				HedgingPolicy hedgingPolicy, MeterRegistry meterRegistry) {
+								this.httpClient = httpClient;
+								this.baseUrl = baseUrl;
+								this.requestTimeout = requestTimeout;
+								this.limiter = limiter;
+								this.hedgingPolicy = hedgingPolicy;
+								this.meterRegistry = meterRegistry;
+								this.rejected = Counter.builder("upstream.rejected").register(meterRegistry);
+								Gauge.builder("upstream.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit).register(meterRegistry);
+				}
+
+				/**
+					* Busca o pokémon na API externa e espera a resposta.
+					*
+					* @param nome nome do pokémon, já normalizado
+					* @param current valor atual, revalidado com {@code If-None-Match}, ou {@code null}
+					* @return resposta da API externa, ou {@code current} se a API responder 304
+					* @throws UpstreamOverloadedException se a chamada foi recusada pelo limite de chamadas simultâneas
+					*/
+				public CachedResponse fetch(String nome, CachedResponse current) {
+								try {
+												return fetchAsync(nome, current).join();
+								} catch (CompletionException e) {
+												if(e.getCause() instanceof RuntimeException cause){
+																throw cause;
+												}
+												throw e;
+								}
+				}
+
+				/**
+					* Busca o pokémon na API externa sem bloquear a thread.
+					*
+					* <p>
+					* Nem a requisição nem a espera por uma vaga no {@link AdaptiveConcurrencyLimiter} prendem a thread que chama:
+					* a vaga é reservada com {@link AdaptiveConcurrencyLimiter#acquireAsync()} e a requisição sai quando ela for concedida.
+					* </p>
+					*
+					* @param nome nome do pokémon
+					* @param current valor atual, revalidado com {@code If-None-Match}, ou {@code null}
+					* @return future com a resposta da API externa, ou com {@code current} se a API responder 304; falha com
+					* {@link UpstreamOverloadedException} se a chamada foi recusada pelo limite
+					*/
+				public CompletableFuture<CachedResponse> fetchAsync(String nome, CachedResponse current) {
+								HttpRequest request = request(nome, current);
+								return limiter.acquireAsync().thenCompose(acquired -> {
+												if(!acquired){
+																rejected.increment();
+																return CompletableFuture.failedFuture(new UpstreamOverloadedException("API externa no limite de chamadas simultâneas"));
+												}
+												CompletableFuture<HttpResponse<byte[]>> primary = send(request, false);
+												long hedgeDelay = hedgingPolicy != null ? hedgingPolicy.delayNanos() : -1;
+												CompletableFuture<HttpResponse<byte[]>> exchange = hedgeDelay >= 0 ? hedge(request, primary, hedgeDelay) : primary;
+												return exchange.handle((response, error) -> {
+																if(error != null){
+																				throw translate(error);
+																}
+																return toCachedResponse(response, current);
+												});
+								});
+				}
+
+				private HttpRequest request(String nome, CachedResponse current) {
+								URI uri = URI.create(baseUrl + UriUtils.encodePathSegment(nome, StandardCharsets.UTF_8));
+								HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+																								.timeout(requestTimeout)
+																								.GET();
+								if(current != null && current.upstreamEtag() != null){
+												builder.header(HttpHeaders.IF_NONE_MATCH, current.upstreamEtag());
+								}
+								return builder.build();
+				}
+
+				/**
+					* Envia uma requisição com a vaga do limitador já reservada e devolve a vaga quando ela termina:
+					* respostas abaixo de 500 ajustam o limite pela latência, erros 5xx e falhas de conexão o reduzem
+					* e requisições canceladas não o alteram.
+					*/
+				private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, boolean hedge) {
+								long start = System.nanoTime();
+								CompletableFuture<HttpResponse<byte[]>> exchange;
+								try {
+												exchange = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+								} catch (RuntimeException e) {
+												limiter.onDropped();
+												throw e;
+								}
+								exchange.whenComplete((response, error) -> {
+												long elapsed = System.nanoTime() - start;
+												String outcome;
+												if(error == null && response.statusCode() < 500){
+																limiter.onSuccess(elapsed);
+																if(hedgingPolicy != null){
+																				hedgingPolicy.record(elapsed);
+																}
+																outcome = response.statusCode() / 100 + "xx";
+												}else if(exchange.isCancelled() || unwrap(error) instanceof CancellationException){
+																limiter.onIgnore();
+																outcome = "cancelled";
+												}else{
+																limiter.onDropped();
+																outcome = error == null ? response.statusCode() / 100 + "xx" : "error";
+												}
+												requestTimer(outcome, hedge).record(elapsed, TimeUnit.NANOSECONDS);
+								});
+								return exchange;
+				}
+
+				private Timer requestTimer(String outcome, boolean hedge) {
+								return requestTimers.computeIfAbsent(outcome + '|' + hedge, name -> Timer.builder("upstream.requests")
+																.tag("outcome", outcome)
+																.tag("hedge", String.valueOf(hedge))
+																.register(meterRegistry));
+				}
+
+				/**
+					* Agenda a requisição de hedge para depois de {@code delayNanos} e devolve a primeira resposta entre as duas.
+					* Uma resposta 5xx ou uma falha de uma delas só encerra a chamada se a outra não estiver mais em andamento.
+					*/
+				private CompletableFuture<HttpResponse<byte[]>> hedge(HttpRequest request, CompletableFuture<HttpResponse<byte[]>> primary,
+																				long delayNanos) {
+								HedgedExchange hedged = new HedgedExchange();
+								hedged.add(primary);
+								CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+												if(!hedged.result.isDone() && limiter.tryAcquireNow()){
+																hedged.add(send(request, true));
+												}
+								});
+								return hedged.result;
+				}
+
+				private static CachedResponse toCachedResponse(HttpResponse<byte[]> response, CachedResponse current) {
+								int status = response.statusCode();
+								if(status == HttpStatus.NOT_MODIFIED.value() && current != null){
+												return current;
+								}
+								if(status < 400){
+												return CachedResponse.from(response);
+								}
+								HttpHeaders headers = new HttpHeaders();
+								response.headers().map().forEach(headers::addAll);
+								if(status < 500){
+												throw HttpClientErrorException.create(HttpStatusCode.valueOf(status), "", headers, response.body(), StandardCharsets.UTF_8);
+								}
+								throw HttpServerErrorException.create(HttpStatusCode.valueOf(status), "", headers, response.body(), StandardCharsets.UTF_8);
+				}
+
+				/**
+					* Requisições de uma mesma chamada com hedge. A chamada termina com a primeira resposta abaixo de 500, ou com o
+					* último resultado se todas falharem; as requisições que ainda estiverem em andamento são canceladas.
+					*/
+				private static final class HedgedExchange {
+
+								private final CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+
+								private final List<CompletableFuture<HttpResponse<byte[]>>> exchanges = new ArrayList<>();
+
+								private int pending;
+
+								private synchronized void add(CompletableFuture<HttpResponse<byte[]>> exchange) {
+												exchanges.add(exchange);
+												pending++;
+												exchange.whenComplete((response, error) -> complete(response, error));
+								}
+
+								private void complete(HttpResponse<byte[]> response, Throwable error) {
+												synchronized (this) {
+																pending--;
+																boolean answered = error == null && response.statusCode() < 500;
+																if(!answered && pending > 0){
+																				return;
+																}
+												}
+												boolean completed = error == null ? result.complete(response) : result.completeExceptionally(error);
+												if(completed){
+																cancelPending();
+												}
+								}
+
+								private synchronized void cancelPending() {
+												for(CompletableFuture<HttpResponse<byte[]>> exchange : exchanges){
+																exchange.cancel(true);
+												}
+								}
+				}
+
+				/**
+					* Converte a falha de uma requisição na exceção equivalente do {@code RestTemplate}.
+					*/
+				private static RuntimeException translate(Throwable error) {
+								Throwable cause = unwrap(error);
+								if(cause instanceof IOException io){
+												return new ResourceAccessException("Falha de I/O na chamada à API externa: " + io, io);
+								}
+								if(cause instanceof RuntimeException runtime){
+												return runtime;
+								}
+								return new CompletionException(cause);
+				}
+
+				private static Throwable unwrap(Throwable error) {
+								return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+				}
+}
@@ -0,0 +1,28 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+	* Exceção lançada quando uma chamada à API externa é recusada pelo {@link AdaptiveConcurrencyLimiter}.
+	*
+	* <p>
+	* Indica que a API externa já está no limite de chamadas simultâneas que consegue atender. O Spring MVC
+	* responde {@link HttpStatus#SERVICE_UNAVAILABLE (503)}. Nas atualizações do refresh-ahead, a falha faz o
+	* {@link CoalescingCache} servir o valor antigo.
+	* </p>
+	*/
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpstreamOverloadedException extends RuntimeException {
+
+				private static final long serialVersionUID = 1L;
+
+				/**
+					* Construtor da exceção.
+					*
+					* @param message mensagem detalhando o motivo da exceção
+					*/
+				public UpstreamOverloadedException(String message){
+								super(message);
+				}
+}
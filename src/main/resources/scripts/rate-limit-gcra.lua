@@ -0,0 +1,130 @@
+-- Rate limit GCRA (generic cell rate algorithm) em uma única chamada, para um ou mais buckets.
+--
+-- KEYS[1..n]  chaves dos buckets
+-- ARGV        para cada chave, em sequência:
+--               tokens a consumir; uma quantidade negativa devolve tokens, sem passar da capacidade
+--               quantidade de bandas (k)
+--               para cada banda: capacidade, intervalo de emissão em microssegundos, tokens iniciais
+--
+-- Estado: uma string com o TAT (theoretical arrival time, em microssegundos) de cada banda,
+-- separados por vírgula. A chave expira quando todas as bandas voltariam a estar cheias.
+--
+-- O consumo é tudo ou nada: os buckets só são gravados se todos tiverem tokens suficientes.
+--
+-- Retorno: para cada chave, {consumido (1/0), tokens restantes, microssegundos de espera, microssegundos até encher}.
+-- Quando outro bucket rejeita, uma chave que teria tokens volta com consumido 0 e espera 0.
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+-- estado já calculado neste script, para chaves repetidas
+local pending = {}
+
+local function load_tats(key)
+    if pending[key] then
+        return pending[key]
+    end
+    local tats = {}
+    local stored = redis.call('GET', key)
+    if stored then
+        for value in string.gmatch(stored, '[^,]+') do
+            tats[#tats + 1] = tonumber(value)
+        end
+    end
+    return tats
+end
+
+local all_consumed = 1
+local results = {}
+local writes = {}
+local arg = 1
+
+for k = 1, #KEYS do
+    local requested = tonumber(ARGV[arg])
+    local bands = tonumber(ARGV[arg + 1])
+    local tats = load_tats(KEYS[k])
+
+    local consumed = 1
+    local remaining = -1
+    local wait = 0
+    local reset_before = 0
+    local reset_after = 0
+    local updated = {}
+
+    for i = 1, bands do
+        local base = arg + 1 + (i - 1) * 3
+        local capacity = tonumber(ARGV[base + 1])
+        local interval = tonumber(ARGV[base + 2])
+        local initial = tonumber(ARGV[base + 3])
+        local burst = capacity * interval
+
+        local tat = tats[i]
+        if tat == nil then
+            tat = now + (capacity - initial) * interval
+        end
+        if tat < now then
+            tat = now
+        end
+
+        local next_tat = tat + requested * interval
+        if next_tat < now then
+            -- devolução de tokens: o bucket não passa da capacidade
+            next_tat = now
+        end
+        local allow_at = next_tat - burst
+        if allow_at > now then
+            consumed = 0
+            wait = math.max(wait, allow_at - now)
+        end
+
+        local available = math.floor((now + burst - tat) / interval)
+        if remaining < 0 or available < remaining then
+            remaining = available
+        end
+        updated[i] = next_tat
+        reset_before = math.max(reset_before, tat - now)
+        reset_after = math.max(reset_after, next_tat - now)
+    end
+    arg = arg + 2 + bands * 3
+
+    if consumed == 1 then
+        pending[KEYS[k]] = updated
+        writes[#writes + 1] = {KEYS[k], updated, reset_after}
+        results[k] = {1, remaining - requested, '0', string.format('%.0f', reset_after),
+                      remaining, string.format('%.0f', reset_before)}
+    else
+        all_consumed = 0
+        results[k] = {0, remaining, string.format('%.0f', wait), string.format('%.0f', reset_before)}
+    end
+end
+
+local reply = {}
+for k = 1, #KEYS do
+    local result = results[k]
+    if all_consumed == 0 and result[1] == 1 then
+        result = {0, result[5], '0', result[6]}
+    end
+    for i = 1, 4 do
+        reply[#reply + 1] = result[i]
+    end
+end
+
+if all_consumed == 1 then
+    -- a última escrita de cada chave já contém o consumo de todas as ocorrências dela
+    local last = {}
+    for i = 1, #writes do
+        last[writes[i][1]] = writes[i]
+    end
+    for i = 1, #writes do
+        local write = writes[i]
+        if last[write[1]] == write then
+            local state = {}
+            for j = 1, #write[2] do
+                state[j] = string.format('%.0f', write[2][j])
+            end
+            redis.call('SET', write[1], table.concat(state, ','), 'PX', math.max(1, math.ceil(write[3] / 1000)))
+        end
+    end
+end
+
+return reply
@@ -0,0 +1,155 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+	* Testes do formato versionado do {@link CompactValueRedisSerializer} e da leitura dos formatos anteriores.
+	*/
+class CompactValueRedisSerializerTest {
+
+				private static final byte[] DICTIONARY = "\"sprites\":{\"back_default\":\"https://raw.githubusercontent.com/PokeAPI/sprites/"
+												.getBytes(StandardCharsets.UTF_8);
+
+				private static final String BODY = "{\"name\":\"pikachu\",\"sprites\":{\"back_default\":\"https://raw.githubusercontent.com/PokeAPI/sprites/1.png\"}}";
+
+				@Test
+				void roundTripsResponseWithHeadersAndEtags() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 0, 6, null);
+								CachedResponse response = CachedResponse.of(bytes(BODY), "application/json", "W/\"upstream\"");
+
+								byte[] stored = serializer.serialize(response);
+								CachedResponse read = assertInstanceOf(CachedResponse.class, serializer.deserialize(stored));
+
+								assertEquals(0x02, stored[0]);
+								assertArrayEquals(response.body(), read.body());
+								assertEquals(response.contentType(), read.contentType());
+								assertEquals(response.etag(), read.etag());
+								assertEquals(response.upstreamEtag(), read.upstreamEtag());
+				}
+
+				@Test
+				void compressesLargeBodiesWithTheDictionary() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 64, 6, DICTIONARY);
+								byte[] body = bytes(BODY.repeat(20));
+
+								byte[] stored = serializer.serialize(CachedResponse.of(body, "application/json", null));
+								CachedResponse read = assertInstanceOf(CachedResponse.class, serializer.deserialize(stored));
+
+								assertTrue(stored.length < body.length);
+								assertEquals(1L, serializer.stats().get("compressedWrites"));
+								assertArrayEquals(body, read.body());
+								assertNull(read.upstreamEtag());
+				}
+
+				@Test
+				void keepsSmallBodiesUncompressed() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 1024, 6, DICTIONARY);
+
+								serializer.serialize(CachedResponse.of(bytes(BODY), "application/json", null));
+
+								assertEquals(0L, serializer.stats().get("compressedWrites"));
+				}
+
+				@Test
+				void roundTripsRefreshAheadEnvelope() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 64, 6, DICTIONARY);
+								CacheEntry entry = new CacheEntry(CachedResponse.of(bytes(BODY.repeat(5)), "application/json", null), 1_700_000_000_000L);
+
+								CacheEntry read = assertInstanceOf(CacheEntry.class, serializer.deserialize(serializer.serialize(entry)));
+
+								assertEquals(entry.writtenAt(), read.writtenAt());
+								assertArrayEquals(((CachedResponse) entry.value()).body(), assertInstanceOf(CachedResponse.class, read.value()).body());
+				}
+
+				@Test
+				void readsNotFoundMarkerAsTheSameInstance() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 0, 6, null);
+
+								byte[] stored = serializer.serialize(CachedResponse.NOT_FOUND);
+
+								assertEquals(2, stored.length);
+								assertSame(CachedResponse.NOT_FOUND, serializer.deserialize(stored));
+				}
+
+				@Test
+				void roundTripsOtherValuesInSmileAndJson() {
+								for(boolean smile : new boolean[]{true, false}){
+												CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(smile, 0, 6, null);
+
+												Object read = serializer.deserialize(serializer.serialize(new LinkedHashMap<>(Map.of("pikachu", 25))));
+
+												assertEquals(Map.of("pikachu", 25), read);
+								}
+				}
+
+				@Test
+				void readsLegacyJsonEntries() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 0, 6, null);
+								byte[] json = new GenericJackson2JsonRedisSerializer().serialize(new LinkedHashMap<>(Map.of("pikachu", 25)));
+
+								assertEquals(Map.of("pikachu", 25), serializer.deserialize(json));
+								assertEquals(1L, serializer.stats().get("legacyReads"));
+				}
+
+				@Test
+				void readsVersionOneFramesAndRecomputesTheStrongEtag() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 0, 6, null);
+								byte[] body = bytes(BODY);
+								byte[] contentType = bytes("application/json");
+								byte[] frame = ByteBuffer.allocate(2 + 2 + contentType.length + 2 + body.length)
+																.put((byte) 0x00)
+																.put((byte) 0x00)
+																.putShort((short) contentType.length)
+																.put(contentType)
+																.putShort((short) -1)
+																.put(body)
+																.array();
+
+								CachedResponse read = assertInstanceOf(CachedResponse.class, serializer.deserialize(frame));
+
+								assertArrayEquals(body, read.body());
+								assertEquals("application/json", read.contentType());
+								assertNull(read.upstreamEtag());
+								assertEquals(CachedResponse.of(body, null, null).etag(), read.etag());
+								assertEquals(1L, serializer.stats().get("legacyReads"));
+				}
+
+				@Test
+				void treatsEntriesCompressedWithAnotherDictionaryAsMissing() {
+								CompactValueRedisSerializer writer = new CompactValueRedisSerializer(true, 64, 6, DICTIONARY);
+								CompactValueRedisSerializer reader = new CompactValueRedisSerializer(true, 64, 6, bytes("\"abilities\":[{\"ability\":"));
+
+								byte[] stored = writer.serialize(CachedResponse.of(bytes(BODY.repeat(20)), "application/json", null));
+
+								assertNull(reader.deserialize(stored));
+								assertEquals(1L, reader.stats().get("undecodableReads"));
+				}
+
+				@Test
+				void rejectsTruncatedValues() {
+								CompactValueRedisSerializer serializer = new CompactValueRedisSerializer(true, 0, 6, null);
+								byte[] stored = serializer.serialize(CachedResponse.of(bytes(BODY), "application/json", "W/\"upstream\""));
+
+								assertThrows(SerializationException.class, () -> serializer.deserialize(Arrays.copyOf(stored, 6)));
+				}
+
+				private static byte[] bytes(String value) {
+								return value.getBytes(StandardCharsets.UTF_8);
+				}
+}
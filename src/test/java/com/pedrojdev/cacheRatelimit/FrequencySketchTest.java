@@ -0,0 +1,75 @@
+package com.pedrojdev.cacheRatelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+	* Testes da contagem, saturação e envelhecimento do {@link FrequencySketch}.
+	*/
+class FrequencySketchTest {
+
+				@Test
+				void countsEachIncrement() {
+								FrequencySketch sketch = new FrequencySketch(1024);
+
+								for(int i = 1; i <= 5; i++){
+												sketch.increment("pikachu");
+												assertEquals(i, sketch.frequency("pikachu"));
+								}
+								assertEquals(0, sketch.frequency("bulbasaur"));
+				}
+
+				@Test
+				void saturatesAtFifteen() {
+								FrequencySketch sketch = new FrequencySketch(1024);
+
+								for(int i = 0; i < 40; i++){
+												sketch.increment("pikachu");
+								}
+
+								assertEquals(15, sketch.frequency("pikachu"));
+				}
+
+				@Test
+				void halvesTheCountersAfterTheSample() {
+								FrequencySketch sketch = new FrequencySketch(16);
+								for(int i = 0; i < 8; i++){
+												sketch.increment("pikachu");
+								}
+
+								// amostra de 10 * 16 incrementos; chaves distintas para não saturar os contadores
+								IntStream.range(0, 10 * 16).forEach(i -> sketch.increment("key-" + i));
+
+								assertTrue(sketch.frequency("pikachu") <= 4, "frequência " + sketch.frequency("pikachu"));
+				}
+
+				@Test
+				void keepsConcurrentIncrements() throws Exception {
+								FrequencySketch sketch = new FrequencySketch(1 << 16);
+								List<CompletableFuture<Void>> tasks = new ArrayList<>();
+								try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()){
+												for(int task = 0; task < 8; task++){
+																int offset = task;
+																tasks.add(CompletableFuture.runAsync(() -> {
+																				for(int i = 0; i < 12; i++){
+																								sketch.increment("hot-" + offset);
+																				}
+																}, executor));
+												}
+												CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).get();
+								}
+
+								for(int task = 0; task < 8; task++){
+												assertEquals(12, sketch.frequency("hot-" + task));
+								}
+				}
+}
@@ -0,0 +1,129 @@
+package com.pedrojdev.cacheRatelimit;
+
+import com.pedrojdev.cacheRatelimit.LatencyCircuitBreaker.Permit;
+import com.pedrojdev.cacheRatelimit.LatencyCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+	* Testes das transições de estado do {@link LatencyCircuitBreaker}.
+	*/
+class LatencyCircuitBreakerTest {
+
+				private static final long FAST = Duration.ofMillis(1).toNanos();
+
+				private static final long SLOW = Duration.ofMillis(100).toNanos();
+
+				@Test
+				void staysClosedBelowTheMinimumCalls() {
+								LatencyCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+								for(int i = 0; i < 3; i++){
+												breaker.onFailure(breaker.tryAcquire());
+								}
+
+								assertEquals(State.CLOSED, breaker.state());
+								assertEquals(Permit.CALL, breaker.tryAcquire());
+				}
+
+				@Test
+				void opensOnFailureRate() {
+								LatencyCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+								breaker.onSuccess(breaker.tryAcquire(), FAST);
+								breaker.onSuccess(breaker.tryAcquire(), FAST);
+								breaker.onFailure(breaker.tryAcquire());
+								assertEquals(State.CLOSED, breaker.state());
+								breaker.onFailure(breaker.tryAcquire());
+
+								assertEquals(State.OPEN, breaker.state());
+								assertEquals(Permit.DENIED, breaker.tryAcquire());
+								assertTrue(breaker.nanosUntilRetry() > 0);
+				}
+
+				@Test
+				void countsSlowCallsAsFailures() {
+								LatencyCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+								for(int i = 0; i < 4; i++){
+												breaker.onSuccess(breaker.tryAcquire(), SLOW);
+								}
+
+								assertEquals(State.OPEN, breaker.state());
+				}
+
+				@Test
+				void forgetsResultsThatLeaveTheWindow() {
+								LatencyCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+								breaker.onFailure(breaker.tryAcquire());
+								for(int i = 0; i < 8; i++){
+												breaker.onSuccess(breaker.tryAcquire(), FAST);
+								}
+								breaker.onFailure(breaker.tryAcquire());
+								breaker.onFailure(breaker.tryAcquire());
+								breaker.onFailure(breaker.tryAcquire());
+
+								assertEquals(State.CLOSED, breaker.state());
+				}
+
+				@Test
+				void allowsOneTrialAtATimeAndClosesOnFastSuccess() {
+								LatencyCircuitBreaker breaker = opened(Duration.ZERO);
+
+								Permit trial = breaker.tryAcquire();
+								assertEquals(Permit.TRIAL, trial);
+								assertEquals(State.HALF_OPEN, breaker.state());
+								assertEquals(Permit.DENIED, breaker.tryAcquire());
+
+								assertTrue(breaker.onSuccess(trial, FAST));
+								assertEquals(State.CLOSED, breaker.state());
+								assertEquals(Permit.CALL, breaker.tryAcquire());
+				}
+
+				@Test
+				void reopensWhenTheTrialIsSlowOrFails() {
+								LatencyCircuitBreaker slow = opened(Duration.ZERO);
+								assertFalse(slow.onSuccess(slow.tryAcquire(), SLOW));
+								assertEquals(State.OPEN, slow.state());
+
+								LatencyCircuitBreaker failed = opened(Duration.ZERO);
+								failed.onFailure(failed.tryAcquire());
+								assertEquals(State.OPEN, failed.state());
+								assertEquals(Permit.TRIAL, failed.tryAcquire());
+				}
+
+				@Test
+				void ignoresResultsOfCallsStartedBeforeOpening() {
+								LatencyCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+								Permit late = breaker.tryAcquire();
+								for(int i = 0; i < 4; i++){
+												breaker.onFailure(breaker.tryAcquire());
+								}
+
+								breaker.onSuccess(late, FAST);
+
+								assertEquals(State.OPEN, breaker.state());
+				}
+
+				/**
+					* Janela de 10 chamadas, mínimo de 4 e abertura com metade delas falhando; lenta a partir de 50 ms.
+					*/
+				private static LatencyCircuitBreaker breaker(Duration openDuration) {
+								return new LatencyCircuitBreaker(Duration.ofMillis(50), 0.5, 10, 4, openDuration);
+				}
+
+				private static LatencyCircuitBreaker opened(Duration openDuration) {
+								LatencyCircuitBreaker breaker = breaker(openDuration);
+								for(int i = 0; i < 4; i++){
+												breaker.onFailure(breaker.tryAcquire());
+								}
+								assertEquals(State.OPEN, breaker.state());
+								return breaker;
+				}
+}
@@ -0,0 +1,149 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+	* Testes do script GCRA ({@code scripts/rate-limit-gcra.lua}) executado pelo {@link LuaRateLimiter}.
+	*
+	* <p>
+	* Precisam de um Redis em {@code REDIS_TEST_HOST}:{@code REDIS_TEST_PORT} (padrão {@code localhost:6379}) e são
+	* ignorados quando ele não responde. Cada teste usa chaves próprias.
+	* </p>
+	*/
+class LuaRateLimiterTest {
+
+				/**
+					* Cinco tokens, um a cada 10 segundos: nada é reabastecido durante um teste.
+					*/
+				private static final Supplier<BucketConfiguration> FIVE = configuration(5, 5, Duration.ofSeconds(50));
+
+				private static final Supplier<BucketConfiguration> ONE = configuration(1, 1, Duration.ofSeconds(10));
+
+				private static RedisClient client;
+
+				private static StatefulRedisConnection<String, String> connection;
+
+				private static LuaRateLimiter rateLimiter;
+
+				@BeforeAll
+				static void connect() {
+								String host = System.getenv().getOrDefault("REDIS_TEST_HOST", "localhost");
+								int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_TEST_PORT", "6379"));
+								client = RedisClient.create(RedisURI.builder().withHost(host).withPort(port).withTimeout(Duration.ofSeconds(1)).build());
+								try {
+												connection = client.connect();
+								} catch (RuntimeException e) {
+												client.shutdown();
+												client = null;
+												assumeTrue(false, "Redis indisponível em " + host + ":" + port);
+								}
+								rateLimiter = new LuaRateLimiter(connection);
+				}
+
+				@AfterAll
+				static void disconnect() {
+								if(connection != null){
+												connection.close();
+								}
+								if(client != null){
+												client.shutdown();
+								}
+				}
+
+				@Test
+				void consumesUntilEmptyAndReportsTheWait() {
+								String key = key();
+								for(long remaining = 4; remaining >= 0; remaining--){
+												ConsumptionProbe probe = rateLimiter.tryConsume(key, FIVE, 1);
+												assertTrue(probe.isConsumed());
+												assertEquals(remaining, probe.getRemainingTokens());
+								}
+
+								ConsumptionProbe rejected = rateLimiter.tryConsume(key, FIVE, 1);
+
+								assertFalse(rejected.isConsumed());
+								assertEquals(0, rejected.getRemainingTokens());
+								assertTrue(rejected.getNanosToWaitForRefill() > Duration.ofSeconds(9).toNanos());
+								assertTrue(rejected.getNanosToWaitForRefill() <= Duration.ofSeconds(10).toNanos());
+				}
+
+				@Test
+				void consumesNothingWhenAnyBucketRejects() {
+								String plenty = key();
+								String empty = key();
+								assertTrue(rateLimiter.tryConsume(empty, ONE, 1).isConsumed());
+
+								List<ConsumptionProbe> probes = rateLimiter.tryConsumeAll(List.of(
+																new RateLimitCheck(plenty, FIVE, 2),
+																new RateLimitCheck(empty, ONE, 1)));
+
+								assertFalse(probes.get(0).isConsumed());
+								assertEquals(0, probes.get(0).getNanosToWaitForRefill());
+								assertFalse(probes.get(1).isConsumed());
+								assertEquals(4, rateLimiter.tryConsume(plenty, FIVE, 1).getRemainingTokens());
+				}
+
+				@Test
+				void countsRepeatedKeysTogether() {
+								String key = key();
+
+								List<ConsumptionProbe> probes = rateLimiter.tryConsumeAll(List.of(
+																new RateLimitCheck(key, FIVE, 3),
+																new RateLimitCheck(key, FIVE, 3)));
+
+								assertFalse(probes.get(1).isConsumed());
+								assertEquals(4, rateLimiter.tryConsume(key, FIVE, 1).getRemainingTokens());
+				}
+
+				@Test
+				void refundsWithNegativeAmountWithoutPassingCapacity() {
+								String key = key();
+								assertEquals(2, rateLimiter.tryConsume(key, FIVE, 3).getRemainingTokens());
+
+								rateLimiter.refund(key, FIVE, 2);
+								assertEquals(3, rateLimiter.tryConsume(key, FIVE, 1).getRemainingTokens());
+
+								rateLimiter.refund(key, FIVE, 100);
+								assertEquals(4, rateLimiter.tryConsume(key, FIVE, 1).getRemainingTokens());
+				}
+
+				@Test
+				void expiresTheStateWhenTheBucketWouldBeFullAgain() {
+								String key = key();
+
+								rateLimiter.tryConsume(key, FIVE, 2);
+								long ttl = connection.sync().pttl(LuaRateLimiter.KEY_PREFIX + key);
+
+								assertTrue(ttl > Duration.ofSeconds(19).toMillis(), "TTL " + ttl);
+								assertTrue(ttl <= Duration.ofSeconds(20).toMillis(), "TTL " + ttl);
+				}
+
+				private static String key() {
+								return "test:" + UUID.randomUUID();
+				}
+
+				private static Supplier<BucketConfiguration> configuration(long capacity, long refillTokens, Duration period) {
+								BucketConfiguration configuration = BucketConfiguration.builder()
+																.addLimit(Bandwidth.builder().capacity(capacity).refillGreedy(refillTokens, period).build())
+																.build();
+								return () -> configuration;
+				}
+}
@@ -0,0 +1,70 @@
+package com.pedrojdev.cacheRatelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+	* Testes do formato das sobrescritas de regra lido por {@link RateLimitRuleRegistry#parse(String)}.
+	*/
+class RateLimitRuleRegistryTest {
+
+				@Test
+				void parsesOneIntervalBand() {
+								Bandwidth band = single(RateLimitRuleRegistry.parse("5:2/60s"));
+
+								assertEquals(5, band.getCapacity());
+								assertEquals(2, band.getRefillTokens());
+								assertEquals(Duration.ofSeconds(60).toNanos(), band.getRefillPeriodNanos());
+								assertEquals(5, band.getInitialTokens());
+								assertTrue(band.isRefillIntervally());
+				}
+
+				@Test
+				void parsesInitialTokensAndGreedyRefill() {
+								Bandwidth band = single(RateLimitRuleRegistry.parse("100:10/1m:20 greedy"));
+
+								assertEquals(100, band.getCapacity());
+								assertEquals(Duration.ofMinutes(1).toNanos(), band.getRefillPeriodNanos());
+								assertEquals(20, band.getInitialTokens());
+								assertFalse(band.isRefillIntervally());
+				}
+
+				@Test
+				void readsPeriodsWithoutUnitAsSeconds() {
+								Bandwidth band = single(RateLimitRuleRegistry.parse("10:10/30"));
+
+								assertEquals(Duration.ofSeconds(30).toNanos(), band.getRefillPeriodNanos());
+				}
+
+				@Test
+				void parsesSeveralBandsSeparatedByCommas() {
+								Bandwidth[] bands = RateLimitRuleRegistry.parse(" 5:2/60s , 100:100/1h ").getBandwidths();
+
+								assertEquals(2, bands.length);
+								assertEquals(5, bands[0].getCapacity());
+								assertEquals(100, bands[1].getCapacity());
+								assertEquals(Duration.ofHours(1).toNanos(), bands[1].getRefillPeriodNanos());
+				}
+
+				@Test
+				void rejectsBandsOutOfFormat() {
+								for(String value : new String[]{"", "5/60s", "5:2", "a:2/60s", "5:2/60s, ", "5:2/60s lazy"}){
+												IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+																				() -> RateLimitRuleRegistry.parse(value), value);
+												assertTrue(error.getMessage().startsWith("Banda de rate limit inválida"), error.getMessage());
+								}
+				}
+
+				private static Bandwidth single(BucketConfiguration configuration) {
+								assertEquals(1, configuration.getBandwidths().length);
+								return configuration.getBandwidths()[0];
+				}
+}